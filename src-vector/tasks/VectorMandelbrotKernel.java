@@ -0,0 +1,225 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A Mandelbrot kernel that iterates a lane of squares of a row together using the Vector API, which is an incubator module of JDK 16 and later.
+ * All the squares of a lane start with the same count, so they advance in step, and a square keeps the count at which it leaves the lane's escape mask.
+ * The arithmetic is the same lane-wise multiplications and additions, in the same order, as the scalar loop of MandelbrotSetTask, so the counts are bit-identical.
+ * With the interior checks, the squares in the main cardioid or the period-2 bulb start outside the mask, and a square whose orbit comes back exactly to the point saved at the last power of two iterations leaves it, both with the iteration limit.
+ * It is compiled from a separate source directory with --add-modules jdk.incubator.vector, and the Computers that are run without the module use the scalar loop.
+ */
+public final class VectorMandelbrotKernel implements MandelbrotKernel {
+
+	/** The widest vector shape supported by the processor. */
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * The orbits are compared with the saved points at the counts that are multiples of 8 only, which costs less than a comparison every iteration.
+	 * An orbit that has become periodic is still caught, once the distance between the saved points is more than 8 times its period.
+	 */
+	private static final int PERIODICITY_CHECK_MASK = 7;
+
+	/**
+	 * Instantiates a new vector Mandelbrot kernel.
+	 *
+	 * @throws UnsupportedOperationException if the processor has no vectors of more than one double
+	 */
+	public VectorMandelbrotKernel() {
+		if(SPECIES.length() < 2){
+			throw new UnsupportedOperationException("No vector shape holds more than one double");
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tasks.MandelbrotKernel#computeRow(double, double, double, int, int, int, int, boolean, int[], int)
+	 */
+	@Override
+	public void computeRow(double realCoordinate, double imagCorner, double edgeLength, int numSquares, int startColumn, int numColumns, int iterationLimit, boolean interiorChecks, int[] counts, int offset) {
+		// the two loops are kept in separate methods, so that the JIT compiler keeps the vectors of each of them in registers
+		int j = interiorChecks ? computeLanesWithChecks(realCoordinate, imagCorner, edgeLength, numSquares, startColumn, numColumns, iterationLimit, counts, offset)
+				: computeLanes(realCoordinate, imagCorner, edgeLength, numSquares, startColumn, numColumns, iterationLimit, counts, offset);
+		// the squares that do not fill a lane
+		for(; j < numColumns; j++){
+			double cImag = imagCorner + ((startColumn + j) * edgeLength / numSquares);
+			counts[offset + j] = getK(realCoordinate, cImag, iterationLimit, interiorChecks);
+		}
+	}
+
+	/**
+	 * Computes the counts of the squares of a range of a row that fill whole lanes.
+	 *
+	 * @param realCoordinate the real part of the representative points of the row
+	 * @param imagCorner the imaginary part of the corner of the region
+	 * @param edgeLength the length of the edge of the region
+	 * @param numSquares the number of squares in the row
+	 * @param startColumn the first square of the range
+	 * @param numColumns the number of squares of the range
+	 * @param iterationLimit the iteration limit
+	 * @param counts the counts
+	 * @param offset the index in counts of the first square of the range
+	 * @return the number of squares of the range whose counts have been computed
+	 */
+	private static int computeLanes(double realCoordinate, double imagCorner, double edgeLength, int numSquares, int startColumn, int numColumns, int iterationLimit, int[] counts, int offset) {
+		int numLanes = SPECIES.length();
+		double[] imagCoordinates = new double[numLanes];
+		DoubleVector cReal = DoubleVector.broadcast(SPECIES, realCoordinate);
+		int j = 0;
+		for(; j + numLanes <= numColumns; j += numLanes){
+			for(int lane = 0; lane < numLanes; lane++){
+				imagCoordinates[lane] = imagCorner + ((startColumn + j + lane) * edgeLength / numSquares);
+			}
+			DoubleVector cImag = DoubleVector.fromArray(SPECIES, imagCoordinates, 0);
+			DoubleVector real = DoubleVector.zero(SPECIES);
+			DoubleVector imag = DoubleVector.zero(SPECIES);
+			VectorMask<Double> active = SPECIES.maskAll(true);
+			int k = 1;
+			while(true){
+				if(k >= iterationLimit){
+					setCounts(active, k, counts, offset + j);
+					break;
+				}
+				VectorMask<Double> inside = real.mul(real).add(imag.mul(imag)).lt(4.0);
+				VectorMask<Double> escaped = active.and(inside.not());
+				if(escaped.anyTrue()){
+					setCounts(escaped, k, counts, offset + j);
+					active = active.and(inside);
+					if(!active.anyTrue()){
+						break;
+					}
+				}
+				DoubleVector temp = real.mul(real).sub(imag.mul(imag)).add(cReal);
+				imag = real.mul(2.0).mul(imag).add(cImag);
+				real = temp;
+				k++;
+			}
+		}
+		return j;
+	}
+
+	/**
+	 * Computes the counts of the squares of a range of a row that fill whole lanes, like computeLanes, with the interior checks.
+	 * The point saved at the last power of two iterations is kept in an array rather than in vectors that are only assigned now and then, which the JIT compiler would not keep in registers.
+	 *
+	 * @param realCoordinate the real part of the representative points of the row
+	 * @param imagCorner the imaginary part of the corner of the region
+	 * @param edgeLength the length of the edge of the region
+	 * @param numSquares the number of squares in the row
+	 * @param startColumn the first square of the range
+	 * @param numColumns the number of squares of the range
+	 * @param iterationLimit the iteration limit
+	 * @param counts the counts
+	 * @param offset the index in counts of the first square of the range
+	 * @return the number of squares of the range whose counts have been computed
+	 */
+	private static int computeLanesWithChecks(double realCoordinate, double imagCorner, double edgeLength, int numSquares, int startColumn, int numColumns, int iterationLimit, int[] counts, int offset) {
+		int numLanes = SPECIES.length();
+		double[] imagCoordinates = new double[numLanes];
+		double[] savedPoint = new double[2 * numLanes];
+		DoubleVector cReal = DoubleVector.broadcast(SPECIES, realCoordinate);
+		int j = 0;
+		for(; j + numLanes <= numColumns; j += numLanes){
+			long interior = 0;
+			for(int lane = 0; lane < numLanes; lane++){
+				imagCoordinates[lane] = imagCorner + ((startColumn + j + lane) * edgeLength / numSquares);
+				if(MandelbrotSetTask.isInMainCardioidOrBulb(realCoordinate, imagCoordinates[lane])){
+					counts[offset + j + lane] = Math.max(1, iterationLimit);
+					interior |= 1L << lane;
+				}
+			}
+			if(interior == (1L << numLanes) - 1){
+				continue;
+			}
+			DoubleVector cImag = DoubleVector.fromArray(SPECIES, imagCoordinates, 0);
+			DoubleVector real = DoubleVector.zero(SPECIES);
+			DoubleVector imag = DoubleVector.zero(SPECIES);
+			VectorMask<Double> active = VectorMask.fromLong(SPECIES, ~interior);
+			int k = 1;
+			while(true){
+				if(k >= iterationLimit){
+					setCounts(active, k, counts, offset + j);
+					break;
+				}
+				VectorMask<Double> inside = real.mul(real).add(imag.mul(imag)).lt(4.0);
+				VectorMask<Double> escaped = active.and(inside.not());
+				if(escaped.anyTrue()){
+					setCounts(escaped, k, counts, offset + j);
+					active = active.and(inside);
+					if(!active.anyTrue()){
+						break;
+					}
+				}
+				if((k & (k - 1)) == 0){
+					real.intoArray(savedPoint, 0);
+					imag.intoArray(savedPoint, numLanes);
+				}
+				DoubleVector temp = real.mul(real).sub(imag.mul(imag)).add(cReal);
+				imag = real.mul(2.0).mul(imag).add(cImag);
+				real = temp;
+				k++;
+				if((k & PERIODICITY_CHECK_MASK) == 0){
+					VectorMask<Double> periodic = active.and(real.eq(DoubleVector.fromArray(SPECIES, savedPoint, 0))).and(imag.eq(DoubleVector.fromArray(SPECIES, savedPoint, numLanes)));
+					if(periodic.anyTrue()){
+						setCounts(periodic, iterationLimit, counts, offset + j);
+						active = active.and(periodic.not());
+						if(!active.anyTrue()){
+							break;
+						}
+					}
+				}
+			}
+		}
+		return j;
+	}
+
+	/**
+	 * Gets the count of a single square, in the same way as MandelbrotSetTask.
+	 *
+	 * @param cReal the real part of the representative point of the square
+	 * @param cImag the imaginary part of the representative point of the square
+	 * @param iterationLimit the iteration limit
+	 * @param interiorChecks whether the square is checked for being in the set without iterating up to the iteration limit
+	 * @return the count
+	 */
+	private static int getK(double cReal, double cImag, int iterationLimit, boolean interiorChecks) {
+		int k = 1;
+		if(interiorChecks && MandelbrotSetTask.isInMainCardioidOrBulb(cReal, cImag)){
+			return Math.max(k, iterationLimit);
+		}
+		double real = 0, imag = 0;
+		double savedReal = 0, savedImag = 0;
+		while((real * real + imag * imag < 4) && k < iterationLimit){
+			if(interiorChecks && (k & (k - 1)) == 0){
+				savedReal = real;
+				savedImag = imag;
+			}
+			double temp = real * real - imag * imag + cReal;
+			imag = 2 * real * imag + cImag;
+			real = temp;
+			k++;
+			if(interiorChecks && real == savedReal && imag == savedImag){
+				return iterationLimit;
+			}
+		}
+		return k;
+	}
+
+	/**
+	 * Sets the count of the squares of the lanes in the mask.
+	 *
+	 * @param lanes the lanes
+	 * @param k the count
+	 * @param counts the counts
+	 * @param offset the index in counts of the square of the first lane
+	 */
+	private static void setCounts(VectorMask<Double> lanes, int k, int[] counts, int offset) {
+		for(long bits = lanes.toLong(); bits != 0; bits &= bits - 1){
+			counts[offset + Long.numberOfTrailingZeros(bits)] = k;
+		}
+	}
+}
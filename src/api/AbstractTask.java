@@ -0,0 +1,56 @@
+/*
+ * @author gautham
+ */
+package api;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A convenience base class for Tasks that holds the identifiers of the task and of the job that it belongs to.
+ *
+ * @param <T> a type parameter, T, which represents the result type of the task's computation.
+ */
+public abstract class AbstractTask<T> implements Task<T>{
+	
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The task id. */
+	protected int taskId;
+	
+	/** The id of the job that this task belongs to. */
+	protected int jobId;
+	
+	/* (non-Javadoc)
+	 * @see api.Task#getTaskId()
+	 */
+	@Override
+	public int getTaskId() {
+		return taskId;
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.Task#getJobId()
+	 */
+	@Override
+	public int getJobId() {
+		return jobId;
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.Task#setJobId(int)
+	 */
+	@Override
+	public void setJobId(int jobId) {
+		this.jobId = jobId;
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.Task#getSharedInputs()
+	 */
+	@Override
+	public List<SharedInput<?>> getSharedInputs() {
+		return Collections.emptyList();
+	}
+}
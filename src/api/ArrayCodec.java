@@ -0,0 +1,139 @@
+/*
+ * @author gautham
+ */
+package api;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes and reads arrays of primitives as their length followed by the raw big-endian values, without the class descriptors of the default serialization.
+ * It is used by the Externalizable Tasks and Results.
+ */
+public final class ArrayCodec {
+	
+	/**
+	 * Instantiates a new array codec. It is not used since the class only has static methods.
+	 */
+	private ArrayCodec() {
+	}
+	
+	/**
+	 * Writes an array of ints. The values are written using the fewest bytes per value, 1, 2 or 4, that hold all of them, since the values of many Results, such as the iteration counts of the Mandelbrot set, are small.
+	 *
+	 * @param out the output
+	 * @param values the values; may be null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void writeInts(ObjectOutput out, int[] values) throws IOException {
+		if(values == null){
+			out.writeInt(-1);
+			return;
+		}
+		int min = 0;
+		int max = 0;
+		for(int value : values){
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		out.writeInt(values.length);
+		if(min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE){
+			out.writeByte(1);
+			byte[] bytes = new byte[values.length];
+			for(int i = 0; i < values.length; i++){
+				bytes[i] = (byte) values[i];
+			}
+			out.write(bytes);
+		}
+		else if(min >= Short.MIN_VALUE && max <= Short.MAX_VALUE){
+			out.writeByte(2);
+			ByteBuffer buffer = ByteBuffer.allocate(values.length * 2);
+			for(int value : values){
+				buffer.putShort((short) value);
+			}
+			out.write(buffer.array());
+		}
+		else{
+			out.writeByte(4);
+			ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+			buffer.asIntBuffer().put(values);
+			out.write(buffer.array());
+		}
+	}
+	
+	/**
+	 * Reads an array of ints written by writeInts.
+	 *
+	 * @param in the input
+	 * @return the values; null if a null array was written
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static int[] readInts(ObjectInput in) throws IOException {
+		int length = in.readInt();
+		if(length < 0){
+			return null;
+		}
+		int width = in.readByte();
+		byte[] bytes = new byte[length * width];
+		in.readFully(bytes);
+		int[] values = new int[length];
+		switch(width){
+		case 1:
+			for(int i = 0; i < length; i++){
+				values[i] = bytes[i];
+			}
+			break;
+		case 2:
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			for(int i = 0; i < length; i++){
+				values[i] = buffer.getShort();
+			}
+			break;
+		case 4:
+			ByteBuffer.wrap(bytes).asIntBuffer().get(values);
+			break;
+		default:
+			throw new IOException("Unknown value width " + width);
+		}
+		return values;
+	}
+	
+	/**
+	 * Writes an array of doubles.
+	 *
+	 * @param out the output
+	 * @param values the values; may be null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void writeDoubles(ObjectOutput out, double[] values) throws IOException {
+		if(values == null){
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(values.length);
+		ByteBuffer buffer = ByteBuffer.allocate(values.length * 8);
+		buffer.asDoubleBuffer().put(values);
+		out.write(buffer.array());
+	}
+	
+	/**
+	 * Reads an array of doubles written by writeDoubles.
+	 *
+	 * @param in the input
+	 * @return the values; null if a null array was written
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static double[] readDoubles(ObjectInput in) throws IOException {
+		int length = in.readInt();
+		if(length < 0){
+			return null;
+		}
+		byte[] bytes = new byte[length * 8];
+		in.readFully(bytes);
+		double[] values = new double[length];
+		ByteBuffer.wrap(bytes).asDoubleBuffer().get(values);
+		return values;
+	}
+}
@@ -0,0 +1,19 @@
+/*
+ * @author gautham
+ */
+package api;
+
+/**
+ * A Task that searches a part of the solution space of a branch and bound job, pruning the partial solutions that cannot be better than the shared bound of the job.
+ *
+ * @param <T> a type parameter, T, which represents the result type of the task's computation.
+ */
+public interface BranchAndBoundTask<T> extends Task<T> {
+	
+	/**
+	 * Sets the bound shared by all the tasks of the job. The Computer sets it before the task is executed.
+	 *
+	 * @param bound the shared bound
+	 */
+	void setSharedBound(SharedBound bound);
+}
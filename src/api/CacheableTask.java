@@ -0,0 +1,19 @@
+/*
+ * @author gautham
+ */
+package api;
+
+/**
+ * A Task whose value depends only on its cache key, so that the Space keeps the value it returns and a later job gets it using Space.getCachedValues instead of executing the Task again.
+ *
+ * @param <T> a type parameter, T, which represents the result type of the task's computation.
+ */
+public interface CacheableTask<T> extends Task<T> {
+
+	/**
+	 * Gets the key under which the Space keeps the value returned by the task. Two tasks with the same key return the same value.
+	 *
+	 * @return the cache key; null if the value is not kept
+	 */
+	String getCacheKey();
+}
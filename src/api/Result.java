@@ -3,29 +3,57 @@
  */
 package api;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
 /**
  * The class represents the Result objects of the Tasks that are executed in the Compute Space.
  * Each Task in the ComputeSpace is turned into a result by one of the Compute Servers.
  * Results of the executed Tasks are read from the Compute Space by the respective Jobs and combined into an overall result for the Client.
  *
+ * Results are Externalizable: an int[] return value, and a TourResult such as the tours of the TSP, are written as raw primitives;
+ * other return values are written using the default serialization.
+ * A Computer that cannot execute a Task hands it back to the Space with a failed Result, which carries no return value and is not delivered to the job.
+ *
  * @param <T> A task execute method's return value of type T.
  */
-public class Result<T> implements Serializable{
+public class Result<T> implements Externalizable{
 		
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
 
+	/** The tag written before a null return value. */
+	private static final byte NULL_VALUE = 0;
+	
+	/** The tag written before an int[] return value. */
+	private static final byte INT_ARRAY_VALUE = 1;
+	
+	/** The tag written before a TourResult return value. */
+	private static final byte TOUR_RESULT_VALUE = 2;
+	
+	/** The tag written before any other return value, which is written using the default serialization. */
+	private static final byte OBJECT_VALUE = 3;
+	
+	/** The tag written instead of the return value of a failed Result. */
+	private static final byte FAILED_VALUE = 4;
+
 	/** The task id. */
 	private int taskId;
 	
+	/** The id of the job that the task belongs to. */
+	private int jobId;
+	
 	/** The elapsed time. */
 	private long elapsedTime;		
 	
 	/** The return value. */
 	private T returnValue;
 	
+	/** Whether the Task could not be executed, so that the Space schedules it again. */
+	private boolean failed;
+	
 	/**
 	 * Gets the task return value.
 	 *
@@ -44,6 +72,24 @@ public class Result<T> implements Serializable{
 		this.returnValue = returnValue;
 	}
 	
+	/**
+	 * Checks if the Task could not be executed by the Computer.
+	 *
+	 * @return true, if the Result is failed
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+	
+	/**
+	 * Marks the Result as failed, so that the Space schedules the Task again instead of delivering the Result to the job.
+	 *
+	 * @param failed whether the Task could not be executed
+	 */
+	public void setFailed(boolean failed) {
+		this.failed = failed;
+	}
+	
 	/**
 	 * Sets the task run time.
 	 *
@@ -79,6 +125,85 @@ public class Result<T> implements Serializable{
 	public int getTaskId() {
 		return taskId;
 	}
-	
-	
+
+	/**
+	 * Sets the id of the job that the task belongs to.
+	 *
+	 * @param jobId the new job id
+	 */
+	public void setJobId(int jobId) {
+		this.jobId = jobId;
+	}
+
+	/**
+	 * Gets the id of the job that the task belongs to.
+	 *
+	 * @return the job id
+	 */
+	public int getJobId() {
+		return jobId;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(taskId);
+		out.writeInt(jobId);
+		out.writeLong(elapsedTime);
+		if(failed){
+			out.writeByte(FAILED_VALUE);
+		}
+		else if(returnValue == null){
+			out.writeByte(NULL_VALUE);
+		}
+		else if(returnValue instanceof int[]){
+			out.writeByte(INT_ARRAY_VALUE);
+			ArrayCodec.writeInts(out, (int[]) returnValue);
+		}
+		else if(returnValue instanceof TourResult){
+			// written without the class descriptor that writeObject would add
+			out.writeByte(TOUR_RESULT_VALUE);
+			((TourResult) returnValue).writeExternal(out);
+		}
+		else{
+			out.writeByte(OBJECT_VALUE);
+			out.writeObject(returnValue);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		taskId = in.readInt();
+		jobId = in.readInt();
+		elapsedTime = in.readLong();
+		byte tag = in.readByte();
+		switch(tag){
+		case NULL_VALUE:
+			returnValue = null;
+			break;
+		case INT_ARRAY_VALUE:
+			returnValue = (T) ArrayCodec.readInts(in);
+			break;
+		case TOUR_RESULT_VALUE:
+			TourResult tour = new TourResult();
+			tour.readExternal(in);
+			returnValue = (T) tour;
+			break;
+		case OBJECT_VALUE:
+			returnValue = (T) in.readObject();
+			break;
+		case FAILED_VALUE:
+			returnValue = null;
+			failed = true;
+			break;
+		default:
+			throw new IOException("Unknown return value tag " + tag);
+		}
+	}
 }
@@ -0,0 +1,30 @@
+/*
+ * @author gautham
+ */
+package api;
+
+import java.io.Serializable;
+
+/**
+ * The best bound found so far by all the Tasks of a branch and bound job, such as the cost of the shortest tour of a TSP.
+ * The Computers share the bound through the Space while the job runs, so that every Task prunes its search with the best bound found anywhere.
+ * The Space keeps the solution that achieves the bound, so that it is not lost when the Task that found it is executed again and prunes it.
+ */
+public interface SharedBound {
+	
+	/**
+	 * Gets the best bound known to this Computer.
+	 *
+	 * @return the bound; Double.MAX_VALUE if no bound has been found yet
+	 */
+	double get();
+	
+	/**
+	 * Offers a bound found by a Task, along with the solution that achieves it. If the bound is better, that is lower, than the current bound,
+	 * it replaces the current bound and is sent to the Space, which keeps the solution and sends the bound to the other Computers.
+	 *
+	 * @param bound the bound
+	 * @param solution the solution that achieves the bound, such as a tour
+	 */
+	void update(double bound, Serializable solution);
+}
@@ -0,0 +1,114 @@
+/*
+ * @author gautham
+ */
+package api;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * A reference to an input that is shared by many Tasks of a job, such as the cities of a TSP.
+ * An input that has been put into the Space using Space.putSharedInput is identified by the hash of its content, and only the hash travels with the Tasks:
+ * each Computer fetches the input from the Space once and keeps it in its cache for the Tasks that refer to it.
+ * An input that has not been put into the Space has no key and travels with the Task as usual.
+ *
+ * @param <T> the type of the input
+ */
+public final class SharedInput<T extends Serializable> implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+	
+	/** The hash of the content of the input; null if the input has not been put into the Space. */
+	private String key;
+	
+	/** The input. It is serialized only if the input has no key; otherwise it is set by the Computer before the Task is executed. */
+	private transient T value;
+	
+	/**
+	 * Instantiates a shared input that has not been put into the Space. The input is serialized along with the Task.
+	 *
+	 * @param value the input
+	 */
+	public SharedInput(T value) {
+		this.value = value;
+	}
+	
+	/**
+	 * Instantiates a reference to an input that has been put into the Space.
+	 *
+	 * @param key the hash of the content of the input
+	 * @param value the input; null if it is not available locally
+	 */
+	public SharedInput(String key, T value) {
+		this.key = key;
+		this.value = value;
+	}
+	
+	/**
+	 * Gets the hash of the content of the input.
+	 *
+	 * @return the key; null if the input has not been put into the Space
+	 */
+	public String getKey() {
+		return key;
+	}
+	
+	/**
+	 * Gets the input.
+	 *
+	 * @return the input; null if it has not been resolved yet
+	 */
+	public T getValue() {
+		return value;
+	}
+	
+	/**
+	 * Checks if the input is available to the Task that refers to it.
+	 *
+	 * @return true, if the input has no key or has already been fetched
+	 */
+	public boolean isResolved() {
+		return key == null || value != null;
+	}
+	
+	/**
+	 * Sets the input fetched for the key. It is used by the Computer before the Task is executed.
+	 *
+	 * @param value the input
+	 */
+	@SuppressWarnings("unchecked")
+	public void resolve(Serializable value) {
+		this.value = (T) value;
+	}
+	
+	/**
+	 * Writes the input along with the key, if the input has not been put into the Space.
+	 *
+	 * @param out the output stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		if(key == null){
+			out.writeObject(value);
+		}
+	}
+	
+	/**
+	 * Reads the input along with the key, if the input has not been put into the Space.
+	 *
+	 * @param in the input stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException the class not found exception
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if(key == null){
+			value = (T) in.readObject();
+		}
+	}
+}
@@ -3,8 +3,10 @@
  */
 package api;
 
+import java.io.Serializable;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 /**
  * The remote interface through which different tasks are submitted and results obtained
@@ -16,6 +18,89 @@ public interface Space extends Remote {
 	/** The name under which the RMI registry binds the remote reference. */
 	public static final String SERVICE_NAME = "Space";
 	
+	/** The id of the job that Tasks belong to when they have not been assigned one. The Results of such Tasks are returned by take() and takeBatch(int, long). */
+	public static final int DEFAULT_JOB_ID = 0;
+	
+	/**
+	 * A remote method used by the Clients to obtain a new job id. The Results of the Tasks that are assigned this job id are kept apart from the Results of other jobs,
+	 * so that many jobs can share the ComputeSpace at the same time.
+	 *
+	 * @return the job id
+	 * @throws RemoteException the remote exception
+	 */
+	int createJob() throws RemoteException;
+	
+	/**
+	 * A remote method used by the Clients to release the resources held for a job once all of its Results have been taken, or once the job no longer needs the remaining ones.
+	 * The Tasks of the job that have not been executed yet are cancelled, and Results that arrive for the job afterwards are discarded.
+	 *
+	 * @param jobId the job id
+	 * @throws RemoteException the remote exception
+	 */
+	void finishJob(int jobId) throws RemoteException;
+	
+	/**
+	 * A remote method used by the Clients to put an input that is shared by many Tasks of a job into the ComputeSpace.
+	 * The input is identified by the hash of its content, so the Tasks only carry the returned reference, and each Computer fetches the input once and caches it.
+	 * The input is kept until all the jobs that have put it have been finished.
+	 *
+	 * @param <T> the type of the input
+	 * @param jobId the job id
+	 * @param input the input
+	 * @return the reference to the input to be given to the Tasks
+	 * @throws RemoteException the remote exception
+	 */
+	<T extends Serializable> SharedInput<T> putSharedInput(int jobId, T input) throws RemoteException;
+	
+	/**
+	 * A remote method used by the Clients to release a shared input that the job no longer needs before the job is finished.
+	 * The input is removed from the ComputeSpace and from the caches of the Computers, unless another running job has also put it.
+	 *
+	 * @param jobId the job id
+	 * @param input the reference to the input
+	 * @throws RemoteException the remote exception
+	 */
+	void releaseSharedInput(int jobId, SharedInput<?> input) throws RemoteException;
+
+	/**
+	 * A remote method used by the Clients to get the values that the ComputeSpace has kept for CacheableTasks executed before, by this job or by earlier ones, so that a job only puts the Tasks whose values are missing.
+	 * The least recently used values are evicted once the cache is full, so a value may be missing even though its Task has been executed.
+	 *
+	 * @param keys the cache keys of the Tasks
+	 * @return the values, in the order of the keys; an element is null if the value of its key is not in the cache
+	 * @throws RemoteException the remote exception
+	 */
+	List<Serializable> getCachedValues(List<String> keys) throws RemoteException;
+
+	/**
+	 * A remote method used by the Clients and the ComputeServers to offer a bound for a branch and bound job, such as the cost of a known tour of a TSP, along with the solution that achieves it.
+	 * If it is better, that is lower, than the job's current bound, it replaces the current bound and solution, and the bound is sent to all the ComputeServers, so that their Tasks prune their searches with it.
+	 *
+	 * @param jobId the job id
+	 * @param bound the bound
+	 * @param solution the solution that achieves the bound
+	 * @throws RemoteException the remote exception
+	 */
+	void updateBound(int jobId, double bound, Serializable solution) throws RemoteException;
+	
+	/**
+	 * A remote method to get the best bound offered so far for a branch and bound job.
+	 *
+	 * @param jobId the job id
+	 * @return the bound; Double.MAX_VALUE if no bound has been offered
+	 * @throws RemoteException the remote exception
+	 */
+	double getBound(int jobId) throws RemoteException;
+	
+	/**
+	 * A remote method used by the Clients to get the solution that achieves the best bound of a branch and bound job. It is called before the job is finished.
+	 *
+	 * @param jobId the job id
+	 * @return the solution; null if no bound has been offered
+	 * @throws RemoteException the remote exception
+	 */
+	Serializable getSolution(int jobId) throws RemoteException;
+	
 	/**
 	 * A remote method used by the Clients to put the Task into the ComputeSpace
 	 *
@@ -23,16 +108,65 @@ public interface Space extends Remote {
 	 * @throws RemoteException the remote exception
 	 */
 	void put( Task<?> task ) throws RemoteException;
+	
+	/**
+	 * A remote method used by the Clients to put a batch of Tasks into the ComputeSpace using a single remote call
+	 *
+	 * @param tasks the tasks
+	 * @throws RemoteException the remote exception
+	 */
+	void putAll( List<Task<?>> tasks ) throws RemoteException;
     
 	/**
-	 * A remote method to take the Result that has been computed by the ComputeServers. This method blocks until a Result is available to return to the client
+	 * A remote method to take the Result that has been computed by the ComputeServers for a Task of the default job. This method blocks until a Result is available to return to the client
 	 *
 	 * @return result
 	 * @throws RemoteException the remote exception
 	 * @throws InterruptedException the interrupted exception
 	 */
 	Result<?> take() throws RemoteException, InterruptedException;
+	
+	/**
+	 * A remote method to take the Result that has been computed by the ComputeServers for a Task of the given job. This method blocks until a Result is available to return to the client
+	 *
+	 * @param jobId the job id
+	 * @return result
+	 * @throws RemoteException the remote exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	Result<?> take(int jobId) throws RemoteException, InterruptedException;
+	
+	/**
+	 * A remote method to take a batch of Results of the default job using a single remote call. This method blocks until max Results are available or the timeout has elapsed, and returns the Results that are available by then.
+	 *
+	 * @param max the maximum number of Results to return
+	 * @param timeout the time in milliseconds to wait for the Results
+	 * @return the results; the list is empty if no Result became available before the timeout
+	 * @throws RemoteException the remote exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	List<Result<?>> takeBatch(int max, long timeout) throws RemoteException, InterruptedException;
+	
+	/**
+	 * A remote method to take a batch of Results of the given job using a single remote call. This method blocks until max Results are available or the timeout has elapsed, and returns the Results that are available by then.
+	 *
+	 * @param jobId the job id
+	 * @param max the maximum number of Results to return
+	 * @param timeout the time in milliseconds to wait for the Results
+	 * @return the results; the list is empty if no Result became available before the timeout
+	 * @throws RemoteException the remote exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	List<Result<?>> takeBatch(int jobId, int max, long timeout) throws RemoteException, InterruptedException;
     
+	/**
+	 * A remote method used by the Clients to find out how many Tasks the registered ComputeServers can execute in parallel, so that jobs can be decomposed accordingly.
+	 *
+	 * @return the total number of processors of the registered Computers
+	 * @throws RemoteException the remote exception
+	 */
+	int getParallelism() throws RemoteException;
+	
 	/**
 	 * A remote method to stop the execution of the ComputeSpace
 	 *
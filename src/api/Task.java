@@ -5,6 +5,7 @@
 package api;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * This defines the interface between the Computer implementation and the work that it needs to do, providing the way to start the work.
@@ -21,4 +22,34 @@ public interface Task<T> extends Serializable{
 	 * @return Object of type T
 	 */
 	Result<T> execute();
+	
+	/**
+	 * Gets the task id.
+	 * The id is copied into the Result of the task, which lets the ComputeSpace match a Result with the Task it was computed from.
+	 *
+	 * @return the task id
+	 */
+	int getTaskId();
+	
+	/**
+	 * Gets the id of the job that this task belongs to.
+	 * The id is copied into the Result of the task, which lets the ComputeSpace return the Result only to the job that it belongs to.
+	 *
+	 * @return the job id
+	 */
+	int getJobId();
+	
+	/**
+	 * Sets the id of the job that this task belongs to.
+	 *
+	 * @param jobId the job id obtained from Space.createJob
+	 */
+	void setJobId(int jobId);
+	
+	/**
+	 * Gets the inputs that this task shares with the other tasks of its job. The Computer resolves them before the task is executed.
+	 *
+	 * @return the shared inputs; an empty list if the task has none
+	 */
+	List<SharedInput<?>> getSharedInputs();
 }
@@ -0,0 +1,122 @@
+/*
+ * @author gautham
+ */
+package api;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * A tour of a Traveling Salesman Problem and its cost, as returned by the TSP tasks.
+ * The tour lists the cities in the order in which they are visited, starting with city 0. It is written at the narrowest width that holds its cities, using ArrayCodec.
+ */
+public final class TourResult implements Externalizable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The cities in the order in which they are visited. */
+	private int[] tour;
+
+	/** The cost of the tour. */
+	private double cost;
+
+	/**
+	 * Instantiates a new tour result. It is used by the deserialization, which sets the fields using readExternal.
+	 */
+	public TourResult(){
+	}
+
+	/**
+	 * Instantiates a new tour result.
+	 *
+	 * @param tour the cities in the order in which they are visited
+	 * @param cost the cost of the tour
+	 */
+	public TourResult(int[] tour, double cost){
+		this.tour = tour;
+		this.cost = cost;
+	}
+
+	/**
+	 * Gets the cities in the order in which they are visited.
+	 *
+	 * @return the tour
+	 */
+	public int[] getTour() {
+		return tour;
+	}
+
+	/**
+	 * Gets the cost of the tour.
+	 *
+	 * @return the cost
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * Checks if this tour is better than the other one: it costs less, or it costs the same and comes first in lexicographic order,
+	 * so that the choice between the tours that cost exactly the same does not depend on the order in which they are found.
+	 *
+	 * @param other the other tour; null if there is none
+	 * @return true, if this tour is better
+	 */
+	public boolean isBetterThan(TourResult other) {
+		return other == null || cost < other.cost || (cost == other.cost && precedes(tour, other.tour));
+	}
+
+	/**
+	 * Gets the better of two tours.
+	 *
+	 * @param a a tour; null if there is none
+	 * @param b another tour; null if there is none
+	 * @return the better tour; null if there is neither
+	 */
+	public static TourResult min(TourResult a, TourResult b) {
+		if(b == null){
+			return a;
+		}
+		return b.isBetterThan(a) ? b : a;
+	}
+
+	/**
+	 * Checks if the tour comes before the other tour in lexicographic order.
+	 *
+	 * @param tour the tour
+	 * @param other the other tour; null if there is none
+	 * @return true, if the tour comes first
+	 */
+	public static boolean precedes(int[] tour, int[] other) {
+		if(other == null){
+			return true;
+		}
+		for(int i = 0; i < tour.length; i++){
+			if(tour[i] != other[i]){
+				return tour[i] < other[i];
+			}
+		}
+		return false;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		ArrayCodec.writeInts(out, tour);
+		out.writeDouble(cost);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		tour = ArrayCodec.readInts(in);
+		cost = in.readDouble();
+	}
+}
@@ -3,6 +3,8 @@
  */
 package client;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.rmi.Naming;
 import java.rmi.NotBoundException;
@@ -10,8 +12,11 @@ import java.rmi.RMISecurityManager;
 import java.rmi.RemoteException;
 
 import jobs.EuclideanTspJob;
+import jobs.FrameListener;
+import jobs.FrameWriter;
 import jobs.Job;
-import jobs.MandelbrotSetJob;
+import jobs.MandelbrotSetProgressiveJob;
+import jobs.MandelbrotSetZoomJob;
 
 import api.Space;
 
@@ -29,10 +34,16 @@ public class Client {
 	/** The space. */
 	private static Space space;
 	
+	/** The number of frames of the zoom animation. */
+	private static final int ZOOM_FRAMES = 100;
+	
+	/** The factor by which the edge length of the zoom animation shrinks from each frame to the next one. */
+	private static final double ZOOM_FACTOR = 0.95;
+	
 	/**
 	 * The main method.
 	 *
-	 * @param args the arguments
+	 * @param args the arguments: the domain name of the Space, and optionally the directory to which the frames of a zoom animation into the Mandelbrot set are written
 	 * @throws MalformedURLException the malformed url exception
 	 * @throws RemoteException the remote exception
 	 * @throws NotBoundException the not bound exception
@@ -43,9 +54,16 @@ public class Client {
 		String serverDomainName = args[0];
 		spaceURL = "//" + serverDomainName + "/" + Space.SERVICE_NAME;
 		
-		// mJob is an instance of MandelbrotSet Job.
-		Job<int[][]> mJob = new MandelbrotSetJob(new double[] {-0.7510975859375, 0.1315680625}, 0.01611,
-				1024, 512);		
+		// mJob is an instance of the progressive MandelbrotSet Job, whose frames are shown as soon as they are composed, from a coarse preview to the full picture.
+		Job<int[]> mJob = new MandelbrotSetProgressiveJob(new double[] {-0.7510975859375, 0.1315680625}, 0.01611,
+				1024, 512, new FrameListener() {
+					@Override
+					public void frameReady(int[] framebuffer, int stride) {
+						long startTime = System.currentTimeMillis();
+						Visualizer.showMandelbrotSetFrame(framebuffer, 512, 1024);
+						System.out.println("Elapsed time for Mandelbrot Set visualization of stride " + stride + ": " + (System.currentTimeMillis() - startTime) + " ms");
+					}
+				});		
 		
 		double[][] cities = { { 1, 1 }, { 8, 1 }, { 8, 8 }, { 1, 8 }, { 2, 2 },
 				{ 7, 2 }, { 7, 7 }, { 2, 7 }, { 3, 3 }, { 6, 3 }, {6, 6}, {3, 6} };
@@ -54,23 +72,48 @@ public class Client {
 		
 		// The RMI client requests a reference to a named remote object. The reference (the remote object's stub instance) is what the client will use to make remote method calls to the remote object.
 		space = (Space) Naming.lookup(spaceURL);
-		int[][] counts = (int[][]) runTask(mJob);
+		runTask(mJob);
 		int[] tour = (int[]) runTask(tspJob);
 		
-		// Visualize the results using Java graphics
+		// Visualize the results using Java graphics; the Mandelbrot set picture has been shown by the frames of its job
 		long startTime = System.currentTimeMillis();
-		Visualizer.visualizeMandelbrotSetTask(counts, 512, 1024);
-		long endTime = System.currentTimeMillis();
-		System.out.println("Elapsed time for Mandelbrot Set visualization: " + (endTime - startTime) + " ms");
-		startTime = System.currentTimeMillis();
 		Visualizer.visualizeEuclideanTspTask(tour, cities, 512);
-		endTime = System.currentTimeMillis();
+		long endTime = System.currentTimeMillis();
 		System.out.println("Elapsed time for EuclideanTSP Task visualization: " + (endTime - startTime) + " ms");
 		
+		if(args.length > 1){
+			runZoomAnimation(new File(args[1]));
+		}
+		
 		stopExecution();
 
 	}
 	
+	/**
+	 * Runs a zoom animation into the center of the Mandelbrot set picture as a single job, writing each frame to a PNG file of the directory as soon as it and the frames before it are complete.
+	 *
+	 * @param directory the directory of the frames
+	 * @throws RemoteException the remote exception
+	 * @throws MalformedURLException the malformed url exception
+	 * @throws NotBoundException the not bound exception
+	 */
+	private static void runZoomAnimation(final File directory) throws RemoteException, MalformedURLException, NotBoundException{
+		if(!directory.isDirectory() && !directory.mkdirs()){
+			System.out.println("Cannot create the directory " + directory);
+			return;
+		}
+		final int iterationLimit = 512;
+		final int numPixels = 1024;
+		Job<Integer> zoomJob = new MandelbrotSetZoomJob(new double[] {-0.7510975859375 + 0.01611 / 2, 0.1315680625 + 0.01611 / 2}, 0.01611, ZOOM_FACTOR, ZOOM_FRAMES,
+				numPixels, iterationLimit, new FrameWriter() {
+					@Override
+					public void writeFrame(int frameIndex, int[] framebuffer) throws IOException {
+						Visualizer.writeMandelbrotSetFrame(framebuffer, iterationLimit, numPixels, new File(directory, String.format("frame%04d.png", frameIndex)));
+					}
+				});
+		runTask(zoomJob);
+	}
+	
 	/**
 	 * Stop execution of the Space which would in turn stop all the registered Compute Servers and then stop itself.
 	 */
@@ -9,10 +9,13 @@ import java.awt.Container;
 import java.awt.Graphics;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
 
+import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -30,18 +33,21 @@ public class Visualizer {
 	/** The color map. */
 	private static Map<Integer, Color> colorMap = new HashMap<Integer, Color>();	
 	
+	/** The label that shows the Mandelbrot set picture; null until the picture is first shown. */
+	private static JLabel mandelbrotLabel;
+	
 	/**
 	 * Visualize.
 	 *
-	 * @param counts the counts
+	 * @param counts the framebuffer of the counts, row after row
 	 * @param iterLimit the iter limit
 	 * @param numPixels the num pixels
 	 */
-	public static void visualizeMandelbrotSetTask(int[][] counts, int iterLimit, int numPixels)
+	public static void visualizeMandelbrotSetTask(int[] counts, int iterLimit, int numPixels)
 	{ 		
 		iterationLimit = iterLimit;
 	    
-	    JLabel mandelbrotLabel = displayMandelbrotSetTaskReturnValue(counts, numPixels);
+	    mandelbrotLabel = displayMandelbrotSetTaskReturnValue(counts, numPixels);
 
 	    // display JLabels: graphic images
 	    JFrame frame = new JFrame( "Visualization of MandelbrotSet Task" );
@@ -54,6 +60,40 @@ public class Visualizer {
 	}
 
 
+	/**
+	 * Shows a frame of a progressive Mandelbrot set job. The first frame opens the window, and the following ones replace the picture in it.
+	 *
+	 * @param counts the framebuffer of the counts, row after row
+	 * @param iterLimit the iter limit
+	 * @param numPixels the num pixels
+	 */
+	public static void showMandelbrotSetFrame(int[] counts, int iterLimit, int numPixels)
+	{
+		if ( mandelbrotLabel == null ){
+			visualizeMandelbrotSetTask(counts, iterLimit, numPixels);
+			return;
+		}
+		iterationLimit = iterLimit;
+		mandelbrotLabel.setIcon( displayMandelbrotSetTaskReturnValue(counts, numPixels).getIcon() );
+	}
+
+	/**
+	 * Writes a frame of a Mandelbrot set zoom animation to a PNG file, with the colors of the picture shown by visualizeMandelbrotSetTask.
+	 *
+	 * @param counts the framebuffer of the counts, row after row
+	 * @param iterLimit the iter limit
+	 * @param numPixels the num pixels
+	 * @param file the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void writeMandelbrotSetFrame(int[] counts, int iterLimit, int numPixels, File file) throws IOException
+	{
+		iterationLimit = iterLimit;
+		if ( !ImageIO.write( createMandelbrotSetImage(counts, numPixels), "png", file ) ){
+			throw new IOException("No PNG writer is available");
+		}
+	}
+
 	/**
 	 * Visualize euclidean tsp task.
 	 *
@@ -158,22 +198,33 @@ public class Visualizer {
 	/**
 	 * Display mandelbrot set task return value.
 	 *
-	 * @param counts the counts
+	 * @param counts the framebuffer of the counts, row after row
 	 * @param numPixels the num pixels
 	 * @return j label
 	 */
-	private static JLabel displayMandelbrotSetTaskReturnValue( int[][] counts, int numPixels )
+	private static JLabel displayMandelbrotSetTaskReturnValue( int[] counts, int numPixels )
 	{
-	    Image image = new BufferedImage(numPixels, numPixels, BufferedImage.TYPE_INT_ARGB );
-	    Graphics graphics = image.getGraphics();
-	    for ( int i = 0; i < counts.length; i++ )
-	    for ( int j = 0; j < counts.length; j++ )
+	    ImageIcon imageIcon = new ImageIcon( createMandelbrotSetImage(counts, numPixels) );
+	    return new JLabel( imageIcon );
+	}
+
+	/**
+	 * Creates the picture of the Mandelbrot set.
+	 *
+	 * @param counts the framebuffer of the counts, row after row
+	 * @param numPixels the num pixels
+	 * @return the image
+	 */
+	private static BufferedImage createMandelbrotSetImage( int[] counts, int numPixels )
+	{
+	    BufferedImage image = new BufferedImage(numPixels, numPixels, BufferedImage.TYPE_INT_ARGB );
+	    // the pixels are set directly, which is much quicker than filling a rectangle for each of them
+	    for ( int i = 0; i < numPixels; i++ )
+	    for ( int j = 0; j < numPixels; j++ )
 	    {
-	        graphics.setColor( getColor( counts[i][j] ) );
-	        graphics.fillRect(i, j, 1, 1);
+	        image.setRGB(i, j, getColor( counts[i * numPixels + j] ).getRGB());
 	    }
-	    ImageIcon imageIcon = new ImageIcon( image );
-	    return new JLabel( imageIcon );
+	    return image;
 	}
 
 	/**
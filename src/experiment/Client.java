@@ -72,7 +72,11 @@ public class Client {
 		
 		// Visualize the results using Java graphics
 		long startTime = System.currentTimeMillis();
-		Visualizer.visualizeMandelbrotSetTask(counts, 512, 1024);
+		int[] framebuffer = new int[counts.length * counts.length];
+		for(int i = 0; i < counts.length; i++){
+			System.arraycopy(counts[i], 0, framebuffer, i * counts.length, counts.length);
+		}
+		Visualizer.visualizeMandelbrotSetTask(framebuffer, 512, 1024);
 		long endTime = System.currentTimeMillis();
 		System.out.println("Elapsed time for Mandelbrot Set visualization: " + (endTime - startTime) + " ms");
 		startTime = System.currentTimeMillis();
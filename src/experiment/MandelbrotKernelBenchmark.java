@@ -0,0 +1,111 @@
+/*
+ * @author gautham
+ */
+package experiment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import tasks.MandelbrotKernel;
+import tasks.MandelbrotSetTask;
+
+/**
+ * A benchmark that compares the scalar loop of MandelbrotSetTask with the kernel that uses the Vector API, each with and without the interior checks.
+ * For several iteration limits, it computes the region of the Client's Mandelbrot set job, which is near the boundary of the set, and the region of the whole set with each kernel in the same JVM,
+ * and prints the throughput in squares and in iterations per second after the warm-up runs, the speedup of the interior checks, and whether all the counts are identical. The Client's default view uses the iteration limit 512.
+ * The vector kernel is only available if its class has been built from src-vector and the JVM has been started with --add-modules jdk.incubator.vector.
+ */
+public class MandelbrotKernelBenchmark {
+
+	/** The names of the regions. */
+	private static final String[] REGION_NAMES = {"client view", "whole set"};
+
+	/** The lower left corners of the regions. */
+	private static final double[][] REGION_CORNERS = {{-0.7510975859375, 0.1315680625}, {-2.0, -1.5}};
+
+	/** The edge lengths of the regions. */
+	private static final double[] REGION_EDGE_LENGTHS = {0.01611, 3.0};
+
+	/** The iteration limits at which the kernels are compared. */
+	private static final int[] ITERATION_LIMITS = {64, 512, 4096};
+
+	/** The number of squares in each row and column of the region. */
+	private static final int NUM_SQUARES = 1024;
+
+	/** The number of runs of each kernel before the measurement starts, so that the JIT compiler has compiled both. */
+	private static final int NUM_WARMUP_RUNS = 3;
+
+	/** The number of runs of each kernel during the measurement. */
+	private static final int NUM_RUNS = 5;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		MandelbrotKernel vectorKernel = MandelbrotSetTask.getVectorKernel();
+		// null stands for the scalar loop
+		List<MandelbrotKernel> kernels = new ArrayList<MandelbrotKernel>();
+		kernels.add(null);
+		if(vectorKernel != null){
+			kernels.add(vectorKernel);
+		}
+		else{
+			System.out.println("The Vector API kernel is not available; only the scalar loop is measured");
+		}
+		for(int region = 0; region < REGION_NAMES.length; region++){
+			for(int iterationLimit : ITERATION_LIMITS){
+				measure(kernels, REGION_NAMES[region], iterationLimit, new MandelbrotSetTask(REGION_CORNERS[region], REGION_EDGE_LENGTHS[region], NUM_SQUARES, iterationLimit, 0, NUM_SQUARES, 0));
+			}
+		}
+	}
+
+	/**
+	 * Measures the kernels on the region of a task and prints the results.
+	 *
+	 * @param kernels the kernels, where null stands for the scalar loop
+	 * @param regionName the name of the region
+	 * @param iterationLimit the iteration limit
+	 * @param task the task that computes the region
+	 */
+	private static void measure(List<MandelbrotKernel> kernels, String regionName, int iterationLimit, MandelbrotSetTask task) {
+		int[] counts = task.computeCounts(null, false);
+		long numIterations = 0;
+		for(int count : counts){
+			numIterations += count;
+		}
+		boolean identical = true;
+		StringBuilder line = new StringBuilder(regionName + ", iteration limit " + iterationLimit + ":");
+		for(MandelbrotKernel kernel : kernels){
+			long[] times = new long[2];
+			for(int checks = 0; checks < 2; checks++){
+				for(int i = 0; i < NUM_WARMUP_RUNS; i++){
+					identical &= Arrays.equals(counts, task.computeCounts(kernel, checks == 1));
+				}
+				long startTime = System.nanoTime();
+				for(int i = 0; i < NUM_RUNS; i++){
+					task.computeCounts(kernel, checks == 1);
+				}
+				times[checks] = System.nanoTime() - startTime;
+			}
+			line.append(kernel == null ? " scalar " : "; vector ").append(getThroughput(times[0], numIterations))
+					.append(", with interior checks ").append(getThroughput(times[1], numIterations))
+					.append(", speedup ").append(String.format("%.2f", (double) times[0] / times[1]));
+		}
+		System.out.println(line.append("; identical counts: ").append(identical));
+	}
+
+	/**
+	 * Formats the throughput of the runs of a kernel.
+	 *
+	 * @param time the total time of the runs in nanoseconds
+	 * @param numIterations the number of iterations of a run without the interior checks
+	 * @return the throughput in millions of squares and of iterations per second
+	 */
+	private static String getThroughput(long time, long numIterations) {
+		double seconds = time / 1e9 / NUM_RUNS;
+		return String.format("%.1f Msquares/s (%.1f Miterations/s)", (double) NUM_SQUARES * NUM_SQUARES / seconds / 1e6, numIterations / seconds / 1e6);
+	}
+}
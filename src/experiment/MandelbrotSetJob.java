@@ -74,7 +74,7 @@ public class MandelbrotSetJob implements Job<int[][]> {
 		for (int i = 0; i < numTasks; i++) {
 			MandelbrotSetTask task = new MandelbrotSetTask(
 					this.leftCornerCoordinates, this.edgeLength,
-					this.numSquares, this.iterationLimit, i);
+					this.numSquares, this.iterationLimit, i * NUM_ROWS_PER_TASK, NUM_ROWS_PER_TASK, i);
 			long startTime = System.currentTimeMillis();
 			taskStartTimeMap.put(i, startTime);
 			try {
@@ -117,15 +117,9 @@ public class MandelbrotSetJob implements Job<int[][]> {
 				System.out.println("task " + (taskId + 1) + ": " + taskElapsedTime_computer	+ " ms");
 				totalElapsedTime_computer += taskElapsedTime_computer;
 
-				for (int j = 0; j < returnValue.length; j++) {
-					if (rowNum >= numSquares) {
-						System.out.println("i " + rowNum + " Breaking");
-						break;
-					}
-					count[rowNum][(numSquares - (j % numSquares) - 1)] = returnValue[j];
-					if ((j + 1) % numSquares == 0) {
-						rowNum++;
-					}
+				// the task returns the columns of each row in decreasing order, which is the order of the picture, so each row is copied at once
+				for (int r = 0; r < returnValue.length / numSquares; r++) {
+					System.arraycopy(returnValue, r * numSquares, count[rowNum + r], 0, numSquares);
 				}
 			} catch (InterruptedException ie) {
 				ie.printStackTrace();
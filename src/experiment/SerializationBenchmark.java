@@ -0,0 +1,254 @@
+/*
+ * @author gautham
+ */
+package experiment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import tasks.EuclideanTspTask;
+import tasks.MandelbrotSetTask;
+import api.Result;
+import api.SharedInput;
+import api.TourResult;
+
+/**
+ * A benchmark that compares the Externalizable encoding of the Tasks and Results with the default Java serialization that they used before.
+ * The default serialization is measured using Legacy classes that have the same fields as the original ones.
+ * For every object, it prints the number of bytes on the wire and the average time taken to encode and to decode it.
+ */
+public class SerializationBenchmark {
+	
+	/** The number of times each object is encoded and decoded before the measurement starts. */
+	private static final int NUM_WARMUP_ITERATIONS = 2000;
+	
+	/** The number of times each object is encoded and decoded during the measurement. */
+	private static final int NUM_ITERATIONS = 5000;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the arguments
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		double[] leftCorner = { -0.7510975859375, 0.1315680625 };
+		int numSquares = 1024;
+		int numRows = 32;
+		int[] counts = new int[numRows * numSquares];
+		for(int i = 0; i < counts.length; i++){
+			counts[i] = i % 512;
+		}
+		double[][] cities = { { 1, 1 }, { 8, 1 }, { 8, 8 }, { 1, 8 }, { 2, 2 },
+				{ 7, 2 }, { 7, 7 }, { 2, 7 }, { 3, 3 }, { 6, 3 }, {6, 6}, {3, 6} };
+		int[] permutation = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
+		int[] tour = {0, 4, 8, 9, 5, 1, 2, 6, 10, 11, 7, 3};
+		
+		Result<int[]> mandelbrotResult = new Result<int[]>();
+		mandelbrotResult.setTaskReturnValue(counts);
+		compare("Mandelbrot result", new LegacyResult(counts), mandelbrotResult);
+		
+		Map<int[], Double> tourMap = new HashMap<int[], Double>();
+		tourMap.put(tour, 30.0);
+		Result<TourResult> tspResult = new Result<TourResult>();
+		tspResult.setTaskReturnValue(new TourResult(tour, 30.0));
+		compare("TSP result", new LegacyResult(tourMap), tspResult);
+		
+		compare("Mandelbrot task", new LegacyMandelbrotSetTask(leftCorner, 0.01611, numSquares, 512, 0, numRows),
+				new MandelbrotSetTask(leftCorner, 0.01611, numSquares, 512, 0, numRows, 0));
+		compare("TSP task", new LegacyEuclideanTspTask(cities, permutation),
+				new EuclideanTspTask(cities, permutation, 0));
+		compare("TSP task with shared cities", new LegacyEuclideanTspTask(cities, permutation),
+				new EuclideanTspTask(new SharedInput<double[][]>("b12fa946e2e0a3b0c2d8a1f1b1f3e7f7a2a1d0c9e8f7a6b5c4d3e2f1a0b9c8d7", null), permutation, 0));
+	}
+	
+	/**
+	 * Prints the size and the encoding and decoding times of an object in the default serialization and of the equivalent Externalizable object.
+	 *
+	 * @param name the name of the object
+	 * @param legacy the object using the default serialization
+	 * @param current the Externalizable object
+	 * @throws Exception the exception
+	 */
+	private static void compare(String name, Serializable legacy, Serializable current) throws Exception {
+		System.out.println(name);
+		measure("  default serialization", legacy);
+		measure("  externalizable", current);
+	}
+	
+	/**
+	 * Prints the number of bytes of the encoded object and the average time taken to encode and to decode it.
+	 * Every iteration uses a new stream, since every remote call writes the class descriptors again.
+	 *
+	 * @param name the name of the encoding
+	 * @param object the object
+	 * @throws Exception the exception
+	 */
+	private static void measure(String name, Serializable object) throws Exception {
+		byte[] bytes = null;
+		for(int i = 0; i < NUM_WARMUP_ITERATIONS; i++){
+			bytes = encode(object);
+			decode(bytes);
+		}
+		long encodeTime = 0;
+		long decodeTime = 0;
+		for(int i = 0; i < NUM_ITERATIONS; i++){
+			long startTime = System.nanoTime();
+			bytes = encode(object);
+			long midTime = System.nanoTime();
+			decode(bytes);
+			long endTime = System.nanoTime();
+			encodeTime += midTime - startTime;
+			decodeTime += endTime - midTime;
+		}
+		System.out.println(name + ": " + bytes.length + " bytes, encode " + encodeTime / NUM_ITERATIONS / 1000.0 + " us, decode " + decodeTime / NUM_ITERATIONS / 1000.0 + " us");
+	}
+	
+	/**
+	 * Encodes the object.
+	 *
+	 * @param object the object
+	 * @return the bytes
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static byte[] encode(Serializable object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Decodes the object.
+	 *
+	 * @param bytes the bytes
+	 * @return the object
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException the class not found exception
+	 */
+	private static Object decode(byte[] bytes) throws IOException, ClassNotFoundException {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		return in.readObject();
+	}
+	
+	/**
+	 * A Result with the fields of api.Result, using the default serialization.
+	 */
+	private static class LegacyResult implements Serializable {
+		
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+		
+		/** The task id. */
+		private int taskId;
+		
+		/** The job id. */
+		private int jobId;
+		
+		/** The elapsed time. */
+		private long elapsedTime;
+		
+		/** The return value. */
+		private Object returnValue;
+		
+		/**
+		 * Instantiates a new legacy result.
+		 *
+		 * @param returnValue the return value
+		 */
+		LegacyResult(Object returnValue) {
+			this.returnValue = returnValue;
+		}
+	}
+	
+	/**
+	 * A task with the fields of tasks.MandelbrotSetTask, using the default serialization.
+	 */
+	private static class LegacyMandelbrotSetTask implements Serializable {
+		
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+		
+		/** The task id. */
+		private int taskId;
+		
+		/** The job id. */
+		private int jobId;
+		
+		/** The left corner coordinates. */
+		private double[] leftCornerCoordinates;
+		
+		/** The edge length. */
+		private double edgeLength;
+		
+		/** The num squares. */
+		private int numSquares;
+		
+		/** The iteration limit. */
+		private int iterationLimit;
+		
+		/** The start row. */
+		private int startRow;
+		
+		/** The num rows. */
+		private int numRows;
+		
+		/**
+		 * Instantiates a new legacy mandelbrot set task.
+		 *
+		 * @param leftCornerCoordinates the left corner coordinates
+		 * @param edgeLength the edge length
+		 * @param numSquares the num squares
+		 * @param iterationLimit the iteration limit
+		 * @param startRow the start row
+		 * @param numRows the num rows
+		 */
+		LegacyMandelbrotSetTask(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, int startRow, int numRows) {
+			this.leftCornerCoordinates = leftCornerCoordinates;
+			this.edgeLength = edgeLength;
+			this.numSquares = numSquares;
+			this.iterationLimit = iterationLimit;
+			this.startRow = startRow;
+			this.numRows = numRows;
+		}
+	}
+	
+	/**
+	 * A task with the fields of tasks.EuclideanTspTask before the cities were shared, using the default serialization.
+	 */
+	private static class LegacyEuclideanTspTask implements Serializable {
+		
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+		
+		/** The task id. */
+		private int taskId;
+		
+		/** The job id. */
+		private int jobId;
+		
+		/** The cities. */
+		private double[][] cities;
+		
+		/** The task permutation. */
+		private int[] taskPermutation;
+		
+		/**
+		 * Instantiates a new legacy euclidean tsp task.
+		 *
+		 * @param cities the cities
+		 * @param taskPermutation the task permutation
+		 */
+		LegacyEuclideanTspTask(double[][] cities, int[] taskPermutation) {
+			this.cities = cities;
+			this.taskPermutation = taskPermutation;
+		}
+	}
+}
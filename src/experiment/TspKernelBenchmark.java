@@ -0,0 +1,262 @@
+/*
+ * @author gautham
+ */
+package experiment;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import tasks.EuclideanTspTask;
+import api.TourResult;
+
+/**
+ * A benchmark that compares the kernel of EuclideanTspTask with the kernels that it replaced.
+ * The legacy kernel computed the cost of every permutation from the coordinates of the cities. The incremental kernel uses a distance matrix and the costs of the unchanged prefixes of the permutations,
+ * and the current kernel, in addition, only iterates over the tours in one direction.
+ * For 10, 11 and 12 random cities, it runs all the tasks of a TSP job with each kernel in the same JVM and prints the average time of a job after the warm-up runs,
+ * and whether the kernels found the same tour.
+ */
+public class TspKernelBenchmark {
+	
+	/** The number of runs of each kernel before the measurement starts, so that the JIT compiler has compiled both. */
+	private static final int NUM_WARMUP_RUNS = 2;
+	
+	/** The number of runs of each kernel during the measurement. */
+	private static final int NUM_RUNS = 3;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(42);
+		for(int numCities = 10; numCities <= 12; numCities++){
+			double[][] cities = new double[numCities][2];
+			for(double[] city : cities){
+				city[0] = random.nextDouble() * 100;
+				city[1] = random.nextDouble() * 100;
+			}
+			int[][] taskPermutations = getTaskPermutations(numCities);
+			int[] legacyTour = null;
+			int[] incrementalTour = null;
+			int[] currentTour = null;
+			for(int i = 0; i < NUM_WARMUP_RUNS; i++){
+				legacyTour = runLegacy(cities, taskPermutations);
+				incrementalTour = runIncremental(cities, taskPermutations);
+				currentTour = runCurrent(cities, taskPermutations);
+			}
+			long legacyTime = 0;
+			long incrementalTime = 0;
+			long currentTime = 0;
+			for(int i = 0; i < NUM_RUNS; i++){
+				long startTime = System.nanoTime();
+				runLegacy(cities, taskPermutations);
+				long legacyEndTime = System.nanoTime();
+				runIncremental(cities, taskPermutations);
+				long incrementalEndTime = System.nanoTime();
+				runCurrent(cities, taskPermutations);
+				long endTime = System.nanoTime();
+				legacyTime += legacyEndTime - startTime;
+				incrementalTime += incrementalEndTime - legacyEndTime;
+				currentTime += endTime - incrementalEndTime;
+			}
+			System.out.println(numCities + " cities: legacy kernel " + legacyTime / NUM_RUNS / 1000000 + " ms, incremental kernel " + incrementalTime / NUM_RUNS / 1000000
+					+ " ms, current kernel " + currentTime / NUM_RUNS / 1000000 + " ms; same tour: " + (Arrays.equals(legacyTour, incrementalTour) && Arrays.equals(legacyTour, currentTour))
+					+ " " + Arrays.toString(currentTour));
+		}
+	}
+	
+	/**
+	 * Gets the permutations given to the tasks of a TSP job, in the same way as jobs.EuclideanTspJob.
+	 *
+	 * @param numCities the number of cities
+	 * @return the permutations
+	 */
+	private static int[][] getTaskPermutations(int numCities) {
+		int[] permutation = new int[numCities - 1];
+		for(int i = 0; i < permutation.length; i++){
+			permutation[i] = i + 1;
+		}
+		int[][] taskPermutations = new int[numCities - 1][];
+		for(int i = 0; i < numCities - 1; i++){
+			if(i != 0){
+				int temp = permutation[0];
+				permutation[0] = permutation[i];
+				permutation[i] = temp;
+			}
+			taskPermutations[i] = permutation.clone();
+		}
+		return taskPermutations;
+	}
+	
+	/**
+	 * Runs all the tasks of a TSP job using the current kernel.
+	 *
+	 * @param cities the cities
+	 * @param taskPermutations the permutations given to the tasks
+	 * @return the shortest tour
+	 */
+	private static int[] runCurrent(double[][] cities, int[][] taskPermutations) {
+		double minDistance = Double.MAX_VALUE;
+		int[] minTour = null;
+		for(int i = 0; i < taskPermutations.length; i++){
+			TourResult tour = new EuclideanTspTask(cities, taskPermutations[i], i).execute().getTaskReturnValue();
+			if(tour != null && tour.getCost() < minDistance){
+				minDistance = tour.getCost();
+				minTour = tour.getTour();
+			}
+		}
+		return minTour;
+	}
+	
+	/**
+	 * Runs all the tasks of a TSP job using the incremental kernel.
+	 *
+	 * @param cities the cities
+	 * @param taskPermutations the permutations given to the tasks
+	 * @return the shortest tour
+	 */
+	private static int[] runIncremental(double[][] cities, int[][] taskPermutations) {
+		double[] minDistance = { Double.MAX_VALUE };
+		int[] minTour = new int[cities.length];
+		for(int[] taskPermutation : taskPermutations){
+			executeIncremental(cities, taskPermutation, minDistance, minTour);
+		}
+		return minTour;
+	}
+	
+	/**
+	 * Runs all the tasks of a TSP job using the legacy kernel.
+	 *
+	 * @param cities the cities
+	 * @param taskPermutations the permutations given to the tasks
+	 * @return the shortest tour
+	 */
+	private static int[] runLegacy(double[][] cities, int[][] taskPermutations) {
+		double[] minDistance = { Double.MAX_VALUE };
+		int[] minTour = new int[cities.length];
+		for(int[] taskPermutation : taskPermutations){
+			executeLegacy(cities, taskPermutation, minDistance, minTour);
+		}
+		return minTour;
+	}
+	
+	/**
+	 * The incremental kernel of EuclideanTspTask. It iterates over the tours in both directions, computing the costs of the changed suffixes of the permutations from a distance matrix.
+	 *
+	 * @param cities the cities
+	 * @param taskPermutation the permutation given to the task
+	 * @param minDistance the cost of the shortest tour so far, which is updated
+	 * @param minTour the shortest tour so far, which is updated
+	 */
+	private static void executeIncremental(double[][] cities, int[] taskPermutation, double[] minDistance, int[] minTour) {
+		int numCities = cities.length;
+		double[] distances = new double[numCities * numCities];
+		for(int i = 0; i < numCities; i++){
+			for(int j = 0; j < numCities; j++){
+				distances[i * numCities + j] = calculateDistance(cities[i], cities[j]);
+			}
+		}
+		int[] permutation = taskPermutation.clone();
+		int length = permutation.length;
+		Arrays.sort(permutation, 1, length);
+		double[] pathDistances = new double[length];
+		int changed = 0;
+		while(changed >= 0){
+			for(int j = changed; j < length; j++){
+				if(j == 0){
+					pathDistances[j] = distances[permutation[0]];
+				}
+				else{
+					pathDistances[j] = pathDistances[j - 1] + distances[permutation[j - 1] * numCities + permutation[j]];
+				}
+			}
+			double currentDistance = pathDistances[length - 1] + distances[permutation[length - 1] * numCities];
+			if(minDistance[0] > currentDistance){
+				minDistance[0] = currentDistance;
+				System.arraycopy(permutation, 0, minTour, 1, length);
+			}
+			changed = nextPermutation(permutation, 1);
+		}
+	}
+	
+	/**
+	 * The legacy kernel of EuclideanTspTask. It computes the cost of every permutation from the coordinates of the cities.
+	 *
+	 * @param cities the cities
+	 * @param taskPermutation the permutation given to the task
+	 * @param minDistance the cost of the shortest tour so far, which is updated
+	 * @param minTour the shortest tour so far, which is updated
+	 */
+	private static void executeLegacy(double[][] cities, int[] taskPermutation, double[] minDistance, int[] minTour) {
+		int[] permutation = Arrays.copyOfRange(taskPermutation, 1, taskPermutation.length);
+		double initDistance = calculateDistance(cities[0], cities[taskPermutation[0]]);
+		boolean first = true;
+		while(true){
+			// unlike the original kernel, the first permutation is not skipped, so that all the kernels consider the same tours
+			if(!first && nextPermutation(permutation, 0) < 0){
+				break;
+			}
+			first = false;
+			double currentDistance = initDistance;
+			currentDistance += calculateDistance(cities[taskPermutation[0]], cities[permutation[0]]);
+			for(int j = 0; j < permutation.length - 1; j++){
+				currentDistance += calculateDistance(cities[permutation[j]], cities[permutation[j + 1]]);
+			}
+			currentDistance += calculateDistance(cities[permutation[permutation.length - 1]], cities[0]);
+			if(minDistance[0] > currentDistance){
+				minDistance[0] = currentDistance;
+				minTour[1] = taskPermutation[0];
+				System.arraycopy(permutation, 0, minTour, 2, permutation.length);
+			}
+		}
+	}
+	
+	/**
+	 * Rearranges the elements of the permutation from the given index in place into their next permutation in lexicographic order.
+	 *
+	 * @param permutation the permutation
+	 * @param from the index of the first element that is permuted
+	 * @return the index of the first element that has changed; -1 if the elements are in their last permutation
+	 */
+	private static int nextPermutation(int[] permutation, int from) {
+		int k, l;
+		for (k = permutation.length - 2; k >= from && permutation[k] >= permutation[k + 1]; k--);
+		if(k < from){
+			return -1;
+		}
+		for (l = permutation.length - 1; permutation[k] >= permutation[l]; l--);
+		swap(permutation, k, l);
+		for (int j = 1; k + j < permutation.length - j; j++){
+			swap(permutation, k + j, permutation.length - j);
+		}
+		return k;
+	}
+	
+	/**
+	 * Swap the elements of the array in place.
+	 *
+	 * @param arr the array
+	 * @param i the ith position
+	 * @param j the jth position
+	 */
+	private static void swap(int[] arr, int i, int j){
+		int temp = arr[i];
+		arr[i] = arr[j];
+		arr[j] = temp;
+	}
+	
+	/**
+	 * Calculate the Euclidean distance, in the same way as the legacy kernel.
+	 *
+	 * @param pointA the starting point
+	 * @param pointB the ending point
+	 * @return distance the distance between the points
+	 */
+	private static double calculateDistance(double[] pointA, double[] pointB){
+		double temp1 = Math.pow((pointA[0] - pointB[0]), 2);
+		double temp2 = Math.pow((pointA[1] - pointB[1]), 2);
+		return Math.sqrt(temp1 + temp2);
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * @author gautham
+ */
+package jobs;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import tasks.EuclideanTspBranchAndBoundTask;
+import api.Result;
+import api.SharedInput;
+import api.Space;
+import api.Task;
+import api.TourResult;
+
+/**
+ * This class represents the entire work involved in solving a Traveling Salesman Problem (TSP) by branch and bound, where the cities are points in the 2D Euclidean plane.
+ * The job is split into one task for every prefix of PREFIX_LENGTH cities starting with city 0. The cost of the shortest tour found so far is shared through the Space with all the tasks,
+ * which prune the partial tours that cannot be shorter. The bound starts from the cost of the tour that visits the nearest unvisited city next.
+ */
+public class EuclideanTspBranchAndBoundJob implements Job<int[]>{
+	
+	/** The number of cities, including city 0, that each task's tours start with. */
+	public static final int PREFIX_LENGTH = 3;
+
+	/** The cities in 2D Euclidean plane that are part of the TSP. */
+	private double[][] cities;
+	
+	/** The id assigned to this job by the Space. */
+	private int jobId;
+	
+	/** The number of tasks put into the Space. */
+	private int numTasks;
+	
+	/** The tour that visits the nearest unvisited city next, whose cost is the initial bound. */
+	private int[] initialTour;
+	
+	/** Mapping between a taskId and its start time. It is used for experimentation purposes. */
+	private Map<Integer, Long> taskStartTimeMap = new HashMap<Integer, Long>();
+	
+	/**
+	 * Instantiates a new Euclidean TSP branch and bound job.
+	 *
+	 * @param cities the cities in 2D Euclidean plane that are part of the TSP; it codes the x and y coordinates of city[i]: cities[i][0] is the x-coordinate of city[i] and cities[i][1] is the y-coordinate of city[i]
+	 */
+	public EuclideanTspBranchAndBoundJob(double[][] cities){
+		this.cities = cities;		
+	}	
+	
+	/**
+	 * Generates multiple tasks from this job. The client decomposes the problem (job), constructing a set of Task objects
+	 * The job is split into one task for every prefix of PREFIX_LENGTH cities starting with city 0, that is (n-1)(n-2) tasks for n cities.
+	 */
+	@Override
+	public void generateTasks(Space space) {
+		List<int[]> prefixes = new ArrayList<int[]>();
+		int[] prefix = new int[Math.min(PREFIX_LENGTH, cities.length)];
+		boolean[] used = new boolean[cities.length];
+		used[0] = true;
+		addPrefixes(prefixes, prefix, used, 1);
+		initialTour = getNearestNeighborTour();
+		try{
+			jobId = space.createJob();
+			SharedInput<double[][]> sharedCities = space.putSharedInput(jobId, cities);
+			space.updateBound(jobId, getCost(initialTour), initialTour);
+			List<Task<?>> tasks = new ArrayList<Task<?>>(prefixes.size());
+			long startTime = System.currentTimeMillis();
+			for(int[] taskPrefix : prefixes){
+				EuclideanTspBranchAndBoundTask task = new EuclideanTspBranchAndBoundTask(sharedCities, taskPrefix, numTasks);
+				task.setJobId(jobId);
+				taskStartTimeMap.put(numTasks, startTime);
+				tasks.add(task);
+				numTasks++;
+			}
+			space.putAll(tasks);
+		}
+		catch(RemoteException e){
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Collects results from the Space, composing them into a solution to the original problem.
+	 * Each result is the shortest tour found by the task and its cost; it is null if the task found no tour shorter than the shared bound.
+	 * The shortest tour is the one kept by the Space along with the final bound.
+	 */
+	@Override
+	public int[] collectResults(Space space) {
+		System.out.println("Collect Results");
+		int[] minTour = initialTour;
+		double minDistance = getCost(initialTour);
+		
+		long totalElapsedTime_computer = 0;
+		
+		int numCollected = 0;
+		try{
+			while(numCollected < numTasks){
+				List<Result<?>> results = space.takeBatch(jobId, numTasks - numCollected, TAKE_BATCH_TIMEOUT);
+				numCollected += results.size();
+				for(Result<?> r : results){
+					Result<TourResult> result = (Result<TourResult>) r;
+					long taskElapsedTime_computer = result.getTaskRunTime();
+					totalElapsedTime_computer += taskElapsedTime_computer;
+					System.out.println("task " + (result.getTaskId() + 1) + ": " + taskElapsedTime_computer + " ms");
+					TourResult tour = result.getTaskReturnValue();
+					if(tour != null && tour.getCost() < minDistance){
+						minDistance = tour.getCost();
+						minTour = tour.getTour();
+					}
+				}
+			}
+			// the task that found the shortest tour may have been executed again and pruned it, so the tour kept by the Space is taken too
+			int[] solution = (int[]) space.getSolution(jobId);
+			if(solution != null && getCost(solution) < minDistance){
+				minDistance = getCost(solution);
+				minTour = solution;
+			}
+			System.out.println("Average elapsed time as seen by the Computer: " + totalElapsedTime_computer / Math.max(1, numTasks) + " ms, shortest tour: " + minDistance);
+			space.finishJob(jobId);
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+		catch(InterruptedException ie){
+			ie.printStackTrace();
+		}
+		return minTour;
+	}
+	
+	/**
+	 * Adds all the prefixes that extend the given partial prefix with cities that are not used yet.
+	 *
+	 * @param prefixes the list to which the prefixes are added
+	 * @param prefix the partial prefix
+	 * @param used whether each city is in the partial prefix
+	 * @param length the number of cities in the partial prefix
+	 */
+	private void addPrefixes(List<int[]> prefixes, int[] prefix, boolean[] used, int length) {
+		if(length == prefix.length){
+			prefixes.add(prefix.clone());
+			return;
+		}
+		for(int city = 1; city < cities.length; city++){
+			if(!used[city]){
+				used[city] = true;
+				prefix[length] = city;
+				addPrefixes(prefixes, prefix, used, length + 1);
+				used[city] = false;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the tour that starts at city 0 and always visits the nearest unvisited city next.
+	 *
+	 * @return the tour
+	 */
+	private int[] getNearestNeighborTour() {
+		int[] tour = new int[cities.length];
+		boolean[] visited = new boolean[cities.length];
+		visited[0] = true;
+		for(int i = 1; i < cities.length; i++){
+			int nearest = -1;
+			for(int city = 1; city < cities.length; city++){
+				if(!visited[city] && (nearest < 0 || calculateDistance(cities[tour[i - 1]], cities[city]) < calculateDistance(cities[tour[i - 1]], cities[nearest]))){
+					nearest = city;
+				}
+			}
+			tour[i] = nearest;
+			visited[nearest] = true;
+		}
+		return tour;
+	}
+	
+	/**
+	 * Gets the cost of the tour, including the edge from its last city back to its first city.
+	 *
+	 * @param tour the tour
+	 * @return the cost
+	 */
+	private double getCost(int[] tour) {
+		double cost = 0;
+		for(int i = 0; i < tour.length; i++){
+			cost += calculateDistance(cities[tour[i]], cities[tour[(i + 1) % tour.length]]);
+		}
+		return cost;
+	}
+	
+	/**
+	 * Calculate the Euclidean distance.
+	 *
+	 * @param pointA the starting point
+	 * @param pointB the ending point
+	 * @return distance the distance between the points
+	 */
+	private double calculateDistance(double[] pointA, double[] pointB){
+		double dx = pointA[0] - pointB[0];
+		double dy = pointA[1] - pointB[1];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * @author gautham
+ */
+package jobs;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+
+import tasks.EuclideanTspHeldKarpTask;
+import tasks.HeldKarpSlice;
+import api.Result;
+import api.SharedInput;
+import api.Space;
+import api.Task;
+
+/**
+ * This class represents the entire work involved in solving a Traveling Salesman Problem (TSP) by the Held-Karp dynamic programming, where the cities are points in the 2D Euclidean plane.
+ * The table is computed layer by layer: the costs of each layer are put into the Space as a shared input, and the subsets of the next layer are split into ranges that are computed by the tasks.
+ * The job keeps the costs of the last layer only, and the parents of all the layers, from which the tour is built once the last layer has been computed.
+ * It takes time in the order of n^2 2^n and memory in the order of n 2^n for n cities, so it is meant for the instances that are too large to iterate over all the tours.
+ */
+public class EuclideanTspHeldKarpJob implements Job<int[]>{
+
+	/** The number of tasks of each layer for each processor in the Space, so that the processors that get the quicker tasks are not left idle. */
+	public static final int TASKS_PER_PROCESSOR = 4;
+
+	/** The smallest number of subsets given to a task, so that the small layers are not split into tasks that cost less than sending them. */
+	private static final int MIN_SUBSETS_PER_TASK = 256;
+
+	/** The cities in 2D Euclidean plane that are part of the TSP. */
+	private double[][] cities;
+
+	/** The id assigned to this job by the Space. */
+	private int jobId;
+
+	/** The reference to the cities, which have been put into the Space. */
+	private SharedInput<double[][]> sharedCities;
+
+	/** The number of processors in the Space. */
+	private int parallelism;
+
+	/** The binomial coefficients up to the number of cities other than city 0. */
+	private int[][] binomials;
+
+	/** The costs of the entries of the last layer computed. */
+	private double[] costs;
+
+	/** The parents of the entries of each layer, where the layer k is at index k. */
+	private byte[][] parents;
+
+	/** The number of tasks put into the Space. */
+	private int numTasks;
+
+	/**
+	 * Instantiates a new Euclidean TSP Held-Karp job.
+	 *
+	 * @param cities the cities in 2D Euclidean plane that are part of the TSP; it codes the x and y coordinates of city[i]: cities[i][0] is the x-coordinate of city[i] and cities[i][1] is the y-coordinate of city[i]
+	 * @throws IllegalArgumentException if there are more than MAX_CITIES cities, or if the table of the cities does not fit in an array or in the heap
+	 */
+	public EuclideanTspHeldKarpJob(double[][] cities){
+		if(cities.length > EuclideanTspHeldKarpTask.MAX_CITIES){
+			throw new IllegalArgumentException("The Held-Karp job takes at most " + EuclideanTspHeldKarpTask.MAX_CITIES + " cities");
+		}
+		// the sizes are computed in long, since the largest layer of 31 cities has more entries than an int counts
+		int numOtherCities = Math.max(0, cities.length - 1);
+		int[][] binomials = EuclideanTspHeldKarpTask.getBinomials(numOtherCities);
+		long maxLayerEntries = 0;
+		long numEntries = 0;
+		for(int k = 1; k <= numOtherCities; k++){
+			long layerEntries = (long) binomials[numOtherCities][k] * k;
+			maxLayerEntries = Math.max(maxLayerEntries, layerEntries);
+			numEntries += layerEntries;
+		}
+		if(maxLayerEntries > EuclideanTspHeldKarpTask.MAX_LAYER_ENTRIES){
+			throw new IllegalArgumentException("The largest layer of the Held-Karp table of " + cities.length + " cities has " + maxLayerEntries + " entries, more than an array holds");
+		}
+		// the job holds a byte for the parent of every entry of the table, and the costs of the previous layer and of the layer being collected
+		long numBytes = numEntries + 2 * 8 * maxLayerEntries;
+		long maxMemory = Runtime.getRuntime().maxMemory();
+		if(numBytes > maxMemory){
+			throw new IllegalArgumentException("The Held-Karp table of " + cities.length + " cities takes about " + (numBytes >> 20) + " MB, more than the " + (maxMemory >> 20) + " MB of the heap");
+		}
+		this.cities = cities;
+	}
+
+	/**
+	 * Generates the tasks of the first layer that is computed by the Computers. The layer of the subsets of a single city is computed here, since its entries are the distances from city 0.
+	 */
+	@Override
+	public void generateTasks(Space space) {
+		int numOtherCities = Math.max(0, cities.length - 1);
+		binomials = EuclideanTspHeldKarpTask.getBinomials(numOtherCities);
+		parents = new byte[numOtherCities + 1][];
+		costs = new double[numOtherCities];
+		parents[1] = new byte[numOtherCities];
+		for(int city = 1; city < cities.length; city++){
+			double dx = cities[city][0] - cities[0][0];
+			double dy = cities[city][1] - cities[0][1];
+			costs[city - 1] = Math.sqrt(dx * dx + dy * dy);
+		}
+		try{
+			jobId = space.createJob();
+			parallelism = space.getParallelism();
+			sharedCities = space.putSharedInput(jobId, cities);
+		}
+		catch(RemoteException e){
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Computes the remaining layers using the Computers and builds the shortest tour from the parents of the entries.
+	 */
+	@Override
+	public int[] collectResults(Space space) {
+		int numOtherCities = Math.max(0, cities.length - 1);
+		long startTime = System.currentTimeMillis();
+		for(int k = 2; k <= numOtherCities; k++){
+			try{
+				computeLayer(space, k);
+			}
+			catch(RemoteException e){
+				e.printStackTrace();
+				return null;
+			}
+			catch(InterruptedException e){
+				e.printStackTrace();
+				return null;
+			}
+		}
+		System.out.println("Computed the Held-Karp table of " + cities.length + " cities using " + numTasks + " tasks in " + (System.currentTimeMillis() - startTime) + " ms");
+		try{
+			space.finishJob(jobId);
+		}
+		catch(RemoteException e){
+			e.printStackTrace();
+		}
+		return buildTour();
+	}
+
+	/**
+	 * Computes the layer of the subsets of the given size from the costs of the previous layer, replacing the costs with the ones of the layer.
+	 *
+	 * @param space the space
+	 * @param k the size of the subsets of the layer
+	 * @throws RemoteException the remote exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	private void computeLayer(Space space, int k) throws RemoteException, InterruptedException {
+		int numSubsets = binomials[cities.length - 1][k];
+		int numLayerTasks = (int) Math.max(1, Math.min((long) TASKS_PER_PROCESSOR * parallelism, numSubsets / MIN_SUBSETS_PER_TASK));
+		SharedInput<double[]> previousLayer = space.putSharedInput(jobId, costs);
+		List<Task<?>> tasks = new ArrayList<Task<?>>(numLayerTasks);
+		for(int t = 0; t < numLayerTasks; t++){
+			int fromRank = (int) ((long) numSubsets * t / numLayerTasks);
+			int toRank = (int) ((long) numSubsets * (t + 1) / numLayerTasks);
+			EuclideanTspHeldKarpTask task = new EuclideanTspHeldKarpTask(sharedCities, previousLayer, k, fromRank, toRank, numTasks++);
+			task.setJobId(jobId);
+			tasks.add(task);
+		}
+		space.putAll(tasks);
+
+		double[] layerCosts = new double[numSubsets * k];
+		byte[] layerParents = new byte[numSubsets * k];
+		int numCollected = 0;
+		while(numCollected < numLayerTasks){
+			List<Result<?>> results = space.takeBatch(jobId, numLayerTasks - numCollected, TAKE_BATCH_TIMEOUT);
+			numCollected += results.size();
+			for(Result<?> r : results){
+				HeldKarpSlice slice = ((Result<HeldKarpSlice>) r).getTaskReturnValue();
+				int offset = slice.getFromRank() * k;
+				System.arraycopy(slice.getCosts(), 0, layerCosts, offset, slice.getCosts().length);
+				System.arraycopy(slice.getParents(), 0, layerParents, offset, slice.getParents().length);
+			}
+		}
+		// the Computers no longer need the previous layer, which is the largest input they hold
+		space.releaseSharedInput(jobId, previousLayer);
+		costs = layerCosts;
+		parents[k] = layerParents;
+	}
+
+	/**
+	 * Builds the shortest tour, starting with city 0, by following the parents of the entries back from the city that closes the tour at the least cost.
+	 *
+	 * @return the tour
+	 */
+	private int[] buildTour() {
+		int numCities = cities.length;
+		int[] tour = new int[numCities];
+		if(numCities < 2){
+			return tour;
+		}
+		int numOtherCities = numCities - 1;
+		double minCost = Double.MAX_VALUE;
+		int last = 1;
+		// the layer of all the cities other than city 0 has a single subset, whose entries are the cities in increasing order
+		for(int city = 1; city < numCities; city++){
+			double dx = cities[city][0] - cities[0][0];
+			double dy = cities[city][1] - cities[0][1];
+			double cost = costs[city - 1] + Math.sqrt(dx * dx + dy * dy);
+			if(cost < minCost){
+				minCost = cost;
+				last = city;
+			}
+		}
+		int subset = (1 << numOtherCities) - 1;
+		int city = last;
+		for(int k = numOtherCities; k >= 1; k--){
+			tour[k] = city;
+			int position = Integer.bitCount(subset & ((1 << (city - 1)) - 1));
+			int parent = parents[k][EuclideanTspHeldKarpTask.rank(subset, binomials) * k + position];
+			subset &= ~(1 << (city - 1));
+			city = parent;
+		}
+		System.out.println("Held-Karp tour cost: " + minCost);
+		return tour;
+	}
+}
@@ -4,94 +4,182 @@
 package jobs;
 
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import tasks.EuclideanTspTask;
 import api.Result;
+import api.SharedInput;
 import api.Space;
+import api.Task;
+import api.TourResult;
 
 /**
  * This class represents the entire work involved in solving a Traveling Salesman Problem (TSP), where the cities are points in the 2D Euclidean plane.
  * The job is split into multiple tasks by the clients and then passed to the Compute Space for computation whose results are later obtained and composed to form the solution to the original problem.
  */
 public class EuclideanTspJob implements Job<int[]>{
+	
+	/** The number of tasks for each processor in the Space that the default decomposition depth aims for, so that the processors that get the quicker tasks are not left idle. */
+	public static final int TASKS_PER_PROCESSOR = 4;
 
 	/** The cities in 2D Euclidean plane that are part of the TSP. */
 	private double[][] cities;
 	
+	/** The number of cities, including city 0, that are fixed at the start of the tours of each task; 0 if it is chosen from the number of processors in the Space. */
+	private int depth;
+	
+	/** The number of tasks put into the Space. */
+	private int numTasks;
+	
+	/** The id assigned to this job by the Space. */
+	private int jobId;
+	
+	/** Mapping between a taskId and its start time. It is used for experimentation purposes. */
+	private Map<Integer, Long> taskStartTimeMap = new HashMap<Integer, Long>();
+	
 	/**
 	 * Instantiates a new Euclidean TSP task.
 	 *
 	 * @param cities the cities in 2D Euclidean plane that are part of the TSP; it codes the x and y coordinates of city[i]: cities[i][0] is the x-coordinate of city[i] and cities[i][1] is the y-coordinate of city[i]
 	 */
 	public EuclideanTspJob(double[][] cities){
-		this.cities = cities;		
-	}	
+		this(cities, 0);
+	}
+	
+	/**
+	 * Instantiates a new Euclidean TSP task.
+	 *
+	 * @param cities the cities in 2D Euclidean plane that are part of the TSP; it codes the x and y coordinates of city[i]: cities[i][0] is the x-coordinate of city[i] and cities[i][1] is the y-coordinate of city[i]
+	 * @param depth the number of cities, including city 0, that are fixed at the start of the tours of each task; 0 to choose it from the number of processors in the Space
+	 */
+	public EuclideanTspJob(double[][] cities, int depth){
+		this.cities = cities;
+		this.depth = depth;
+	}
 	
 	/**
 	 * Generates multiple tasks from this job. The client decomposes the problem (job), constructing a set of Task objects
-	 * The EuclideanTsp job is split into n-1 tasks (n corresponds to the number of cities), representing the (n-1)! factorial permutations that are needed to find the minimal tour
-	 * 
+	 * The EuclideanTsp job is split into one task for every prefix of depth cities starting with city 0, that is (n-1)(n-2)...(n-depth+1) tasks for n cities, each of which iterates over the permutations of the remaining cities.
+	 * Since a tour costs the same in either direction, the tasks only iterate over the tours whose second city is smaller than their last city, and the prefixes that cannot start such a tour get no task.
+	 * Unless the depth is given, it is the smallest depth, at least 2, that makes TASKS_PER_PROCESSOR tasks for every processor in the Space.
 	 */
 	@Override
 	public void generateTasks(Space space) {
-		int[] permutation = new int[cities.length - 1];
-		for(int i = 0; i < permutation.length; i++){
-			permutation[i] = i + 1;
+		try{
+			int taskDepth = depth > 0 ? depth : getDefaultDepth(space.getParallelism());
+			taskDepth = Math.max(1, Math.min(taskDepth, cities.length));
+			jobId = space.createJob();
+			// the cities are sent to the Space once; the tasks only carry the reference to them
+			SharedInput<double[][]> sharedCities = space.putSharedInput(jobId, cities);
+			List<int[]> permutations = new ArrayList<int[]>();
+			int[] permutation = new int[cities.length - 1];
+			boolean[] used = new boolean[cities.length];
+			used[0] = true;
+			addPermutations(permutations, permutation, used, taskDepth - 1, 0);
+			List<Task<?>> tasks = new ArrayList<Task<?>>(permutations.size());
+			long startTime = System.currentTimeMillis();
+			for(int[] taskPermutation : permutations){
+				EuclideanTspTask task = new EuclideanTspTask(sharedCities, taskPermutation, taskDepth - 1, numTasks);
+				task.setJobId(jobId);
+				taskStartTimeMap.put(numTasks, startTime);
+				tasks.add(task);
+				numTasks++;
+			}
+			System.out.println("Decomposed the TSP of " + cities.length + " cities into " + numTasks + " tasks of depth " + taskDepth);
+			// all the tasks are put into the Space using a single remote call
+			space.putAll(tasks);
+		}
+		catch(RemoteException e){
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Gets the smallest depth, at least 2, that makes TASKS_PER_PROCESSOR tasks for every processor.
+	 *
+	 * @param parallelism the number of processors in the Space
+	 * @return the depth
+	 */
+	private int getDefaultDepth(int parallelism) {
+		int taskDepth = 2;
+		long numDepthTasks = cities.length - 1;
+		while(taskDepth < cities.length - 1 && numDepthTasks < (long) TASKS_PER_PROCESSOR * parallelism){
+			numDepthTasks *= cities.length - taskDepth;
+			taskDepth++;
 		}
-		for(int i = 0; i < cities.length - 1; i++){
-			if(i != 0){
-				swap(permutation, 0, i);
+		return taskDepth;
+	}
+	
+	/**
+	 * Adds a permutation for every way of filling the prefix of the given length with cities that are not used yet, unless none of the tours that start with the prefix is canonical.
+	 * The rest of each permutation holds the remaining cities in increasing order.
+	 *
+	 * @param permutations the list to which the permutations are added
+	 * @param permutation the permutation whose first filled cities have been chosen
+	 * @param used whether each city is in the prefix
+	 * @param prefixLength the length of the prefix
+	 * @param filled the number of cities of the prefix that have been chosen
+	 */
+	private void addPermutations(List<int[]> permutations, int[] permutation, boolean[] used, int prefixLength, int filled) {
+		if(filled == prefixLength){
+			int[] taskPermutation = permutation.clone();
+			int index = prefixLength;
+			for(int city = 1; city < cities.length; city++){
+				if(!used[city]){
+					taskPermutation[index++] = city;
+				}
 			}
-			EuclideanTspTask task = new EuclideanTspTask(cities, permutation, i);
-			long startTime = System.currentTimeMillis();
-			taskStartTimeMap.put(i, startTime);
-			try{
-				space.put(task);
+			// a tour is iterated over only in the direction in which its second city is smaller than its last city, so a task none of whose tours can end with a greater city is not needed
+			int length = taskPermutation.length;
+			if(prefixLength == 0 || length < 2 || taskPermutation[0] < taskPermutation[length - 1]){
+				permutations.add(taskPermutation);
 			}
-			catch(RemoteException e){
-				e.printStackTrace();
+			return;
+		}
+		for(int city = 1; city < cities.length; city++){
+			if(!used[city]){
+				used[city] = true;
+				permutation[filled] = city;
+				addPermutations(permutations, permutation, used, prefixLength, filled + 1);
+				used[city] = false;
 			}
 		}
 	}
 
 	/**
 	 * Collects results from the Space, composing them into a solution to the original problem.
-	 * Each result in the EuclideanTSP job is a map of the minimal tour among the permutations computed by this task and the cost involved for that tour. 	
+	 * Each result in the EuclideanTSP job is the minimal tour among the permutations computed by the task and its cost, or null if the task has no canonical tour. 	
 	 */
 	@Override
 	public int[] collectResults(Space space) {
 		System.out.println("Collect Results");
-		int minTour[] = null;
-		double minDistance = Double.MAX_VALUE;
+		TourResult minTour = null;
 		
 		long totalElapsedTime_computer = 0;
 		long taskElapsedTime_computer = 0;
 		long taskElapsedTime_client = 0;
 		long totalElapsedTime_client = 0;
-		int numTasks = cities.length - 1;
-		
-		for(int i = 0; i < numTasks; i++){
+		int numCollected = 0;
+		while(numCollected < numTasks){
 			try{
-				Result<Map<int[], Double>> result = (Result<Map<int[], Double>>) space.take();
-				int taskId = result.getTaskId();
-				taskElapsedTime_client = System.currentTimeMillis() - taskStartTimeMap.get(taskId);
-				totalElapsedTime_client += taskElapsedTime_client;
-				//System.out.println("task " + (taskId + 1) + ": " + taskElapsedTime_client + " ms");
-				
-				taskElapsedTime_computer = result.getTaskRunTime();
-				totalElapsedTime_computer += taskElapsedTime_computer;
-				System.out.println("task " + (taskId + 1) + ": " + taskElapsedTime_computer + " ms");
-				
-				Map<int[], Double> minTourMap = result.getTaskReturnValue();
-				
-				for(Entry<int[], Double> entry : minTourMap.entrySet()){
-					double distance = entry.getValue();
-					if(distance < minDistance){
-						minDistance = distance;
-						minTour = entry.getKey();						
-					}
+				List<Result<?>> results = space.takeBatch(jobId, numTasks - numCollected, TAKE_BATCH_TIMEOUT);
+				numCollected += results.size();
+				for(Result<?> r : results){
+					Result<TourResult> result = (Result<TourResult>) r;
+					int taskId = result.getTaskId();
+					taskElapsedTime_client = System.currentTimeMillis() - taskStartTimeMap.get(taskId);
+					totalElapsedTime_client += taskElapsedTime_client;
+					//System.out.println("task " + (taskId + 1) + ": " + taskElapsedTime_client + " ms");
+					
+					taskElapsedTime_computer = result.getTaskRunTime();
+					totalElapsedTime_computer += taskElapsedTime_computer;
+					System.out.println("task " + (taskId + 1) + ": " + taskElapsedTime_computer + " ms");
+					
+					// of the tours that cost exactly the same, the one that comes first in lexicographic order is kept, so that the result does not depend on the order in which the Results arrive
+					minTour = TourResult.min(minTour, result.getTaskReturnValue());
 				}
 			}
 			catch(RemoteException re){
@@ -102,23 +190,16 @@ public class EuclideanTspJob implements Job<int[]>{
 			}
 		}
 		//System.out.println("Average elapsed time as seen by the Client: " + totalElapsedTime_client / numTasks + " ms");
-		System.out.println("Average elapsed time as seen by the Computer: " + totalElapsedTime_computer / numTasks + " ms");
-		return minTour;
+		System.out.println("Average elapsed time as seen by the Computer: " + totalElapsedTime_computer / Math.max(1, numTasks) + " ms over " + numTasks + " tasks");
+		try{
+			space.finishJob(jobId);
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+		return minTour == null ? null : minTour.getTour();
 	}
 
-	/**
-	 * Swap.
-	 *
-	 * @param arr the arr
-	 * @param i the i
-	 * @param j the j
-	 */
-	private void swap(int[] arr, int i, int j){
-		int temp = arr[i];
-		arr[i] = arr[j];
-		arr[j] = temp;
-	}
-	
 	/**
 	 * Prints the array.
 	 *
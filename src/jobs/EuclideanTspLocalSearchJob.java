@@ -0,0 +1,133 @@
+/*
+ * @author gautham
+ */
+package jobs;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+
+import tasks.EuclideanTspLocalSearchTask;
+import api.Result;
+import api.SharedInput;
+import api.Space;
+import api.Task;
+import api.TourResult;
+
+/**
+ * This class represents the work involved in finding a good tour of a large Traveling Salesman Problem (TSP), where the cities are points in the 2D Euclidean plane, within a given time.
+ * Each task is an independent local search run with its own seed, and the job keeps every processor in the Space busy with new runs until the time limit has passed.
+ * The job then returns the shortest tour found so far, and finishing the job makes the Space cancel the runs that have not started yet.
+ * The tour is not guaranteed to be the shortest one; EuclideanTspJob finds the shortest tour of the small instances.
+ */
+public class EuclideanTspLocalSearchJob implements Job<int[]>{
+
+	/** The number of runs kept in the Space for each processor, so that a processor that finishes a run finds the next one already waiting. */
+	public static final int RUNS_PER_PROCESSOR = 2;
+
+	/** The cities in 2D Euclidean plane that are part of the TSP. */
+	private double[][] cities;
+
+	/** The time in milliseconds within which the job returns its tour. */
+	private long timeLimit;
+
+	/** The id assigned to this job by the Space. */
+	private int jobId;
+
+	/** The reference to the cities, which have been put into the Space. */
+	private SharedInput<double[][]> sharedCities;
+
+	/** The reference to the nearest neighbors of the cities, which have been put into the Space. */
+	private SharedInput<int[]> sharedNeighbors;
+
+	/** The time after which no more runs are started and the shortest tour found is returned. */
+	private long deadline;
+
+	/** The number of tasks put into the Space. */
+	private int numTasks;
+
+	/**
+	 * Instantiates a new Euclidean TSP local search job.
+	 *
+	 * @param cities the cities in 2D Euclidean plane that are part of the TSP; it codes the x and y coordinates of city[i]: cities[i][0] is the x-coordinate of city[i] and cities[i][1] is the y-coordinate of city[i]
+	 * @param timeLimit the time in milliseconds within which the job returns its tour
+	 */
+	public EuclideanTspLocalSearchJob(double[][] cities, long timeLimit){
+		this.cities = cities;
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * Generates the first runs, RUNS_PER_PROCESSOR for every processor in the Space. The cities and their nearest neighbors are put into the Space once and shared by all the runs.
+	 */
+	@Override
+	public void generateTasks(Space space) {
+		deadline = System.currentTimeMillis() + timeLimit;
+		try{
+			jobId = space.createJob();
+			sharedCities = space.putSharedInput(jobId, cities);
+			sharedNeighbors = space.putSharedInput(jobId, EuclideanTspLocalSearchTask.getNeighbors(cities, EuclideanTspLocalSearchTask.DEFAULT_NUM_NEIGHBORS));
+			putRuns(space, RUNS_PER_PROCESSOR * Math.max(1, space.getParallelism()));
+		}
+		catch(RemoteException e){
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Puts new runs into the Space, each with its own seed and with the time that is left as its time limit.
+	 *
+	 * @param space the space
+	 * @param numRuns the number of runs
+	 * @throws RemoteException the remote exception
+	 */
+	private void putRuns(Space space, int numRuns) throws RemoteException {
+		long remaining = Math.max(1, deadline - System.currentTimeMillis());
+		List<Task<?>> tasks = new ArrayList<Task<?>>(numRuns);
+		for(int i = 0; i < numRuns; i++){
+			EuclideanTspLocalSearchTask task = new EuclideanTspLocalSearchTask(sharedCities, sharedNeighbors, numTasks, remaining, numTasks);
+			task.setJobId(jobId);
+			tasks.add(task);
+			numTasks++;
+		}
+		space.putAll(tasks);
+	}
+
+	/**
+	 * Collects the tours of the runs until the time limit has passed, starting a new run for every run that finishes before then, and returns the shortest tour.
+	 * If no run has finished by the time limit, the tour of the first run to finish is returned.
+	 */
+	@Override
+	public int[] collectResults(Space space) {
+		TourResult minTour = null;
+		int numCollected = 0;
+		while(minTour == null || System.currentTimeMillis() < deadline){
+			try{
+				long timeout = Math.max(1, Math.min(TAKE_BATCH_TIMEOUT, deadline - System.currentTimeMillis()));
+				List<Result<?>> results = space.takeBatch(jobId, numTasks - numCollected, timeout);
+				numCollected += results.size();
+				for(Result<?> r : results){
+					minTour = TourResult.min(minTour, ((Result<TourResult>) r).getTaskReturnValue());
+				}
+				if(!results.isEmpty() && System.currentTimeMillis() < deadline){
+					putRuns(space, results.size());
+				}
+			}
+			catch(RemoteException re){
+				re.printStackTrace();
+			}
+			catch(InterruptedException ie){
+				ie.printStackTrace();
+			}
+		}
+		System.out.println("Shortest tour of " + cities.length + " cities found by " + numCollected + " local search runs costs " + minTour.getCost());
+		try{
+			// the runs that are still waiting are cancelled
+			space.finishJob(jobId);
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+		return minTour.getTour();
+	}
+}
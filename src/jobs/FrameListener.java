@@ -0,0 +1,19 @@
+/*
+ * @author gautham
+ */
+package jobs;
+
+/**
+ * A listener that is given the partial frames of a progressive Mandelbrot set job as they are composed, so that the Client can show a preview before the whole picture has been computed.
+ */
+public interface FrameListener {
+
+	/**
+	 * Called by collectResults when a pass of the job has been composed into the framebuffer. Each square that has not been computed yet has the count of the computed square at the corner of the stride x stride block that it lies in.
+	 * The framebuffer is the one that the job goes on filling in, so the listener copies it if it keeps it beyond the call.
+	 *
+	 * @param framebuffer the framebuffer of the counts, row after row, in the layout of MandelbrotSetJob
+	 * @param stride the distance in squares between the squares that have been computed; 1 for the full picture
+	 */
+	void frameReady(int[] framebuffer, int stride);
+}
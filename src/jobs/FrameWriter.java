@@ -0,0 +1,22 @@
+/*
+ * @author gautham
+ */
+package jobs;
+
+import java.io.IOException;
+
+/**
+ * A writer that is given the frames of a Mandelbrot set zoom animation, one at a time and in the order of the animation, so that the Client can write them to disk while the later frames are being computed.
+ */
+public interface FrameWriter {
+
+	/**
+	 * Called by collectResults when all the frames before the given one have been written and all the tiles of the frame have been composed.
+	 * The framebuffer is given to a later frame once the call returns, so the writer copies it if it keeps it beyond the call.
+	 *
+	 * @param frameIndex the index of the frame in the animation, starting at 0
+	 * @param framebuffer the framebuffer of the counts, row after row, in the layout of MandelbrotSetJob
+	 * @throws IOException Signals that the frame could not be written.
+	 */
+	void writeFrame(int frameIndex, int[] framebuffer) throws IOException;
+}
@@ -3,9 +3,6 @@
  */
 package jobs;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import api.Space;
 
 /**
@@ -30,7 +27,7 @@ public interface Job<T> {
 	 */
 	public T collectResults(Space space);
 	
-	/** Mapping between a taskId and its start time. It is used for experimentation purposes. */
-	public Map<Integer, Long> taskStartTimeMap = new HashMap<Integer, Long>();
+	/** The time in milliseconds that collectResults waits for a batch of Results before asking the Space again. */
+	public static final long TAKE_BATCH_TIMEOUT = 1000;
 	
 }
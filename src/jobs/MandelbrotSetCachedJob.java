@@ -0,0 +1,192 @@
+/*
+ * @author gautham
+ */
+package jobs;
+
+import java.io.Serializable;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import tasks.MandelbrotSetTask;
+import api.Result;
+import api.Space;
+import api.Task;
+
+/**
+ * This class produces the framebuffer of the counts of a view of the Mandelbrot set, in the layout of MandelbrotSetJob, reusing the tiles computed for the earlier views of a pan and zoom session.
+ * The complex plane is covered, at each zoom level, by a fixed grid of tiles of CACHE_TILE_EDGE x CACHE_TILE_EDGE squares, whose counts depend only on the size of the squares, the position of the tile in the grid and the iteration limit.
+ * The Space keeps the counts of the tiles computed before under that key, so that a view that overlaps the earlier ones only puts the tasks of the tiles that are missing; a view of another size of squares, or of another iteration limit, uses tiles of its own.
+ * The left corner of the view is rounded to the grid of squares of its zoom level, so that the views of the same zoom level share their tiles. The tiles at the edges of the view are computed whole, and only their part inside the view is composed.
+ */
+public class MandelbrotSetCachedJob implements Job<int[]> {
+
+	/** The number of squares of the edges of the tiles of the grid. */
+	public static final int CACHE_TILE_EDGE = 64;
+
+	/** The left corner coordinates of the square in the complex plane. */
+	private double[] leftCornerCoordinates;
+
+	/** The edge length of the square in the complex plane. */
+	private double edgeLength;
+
+	/** The numSquares denotes the number of pixels (n x n squares) representing the square region in the complex plane. */
+	private int numSquares;
+
+	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
+	private int iterationLimit;
+
+	/** The id assigned to this job by the Space. */
+	private int jobId;
+
+	/** The edge length of a square in the complex plane, which identifies the zoom level. */
+	private double squareSize;
+
+	/** The row of the grid of squares of the zoom level that is the first row of the view. */
+	private long firstRow;
+
+	/** The column of the grid of squares of the zoom level that is the first column of the view. */
+	private long firstColumn;
+
+	/** The framebuffer of the counts, row after row, with the columns in decreasing order. */
+	private int[] framebuffer;
+
+	/** Mapping between a taskId and the tile that the task computes, as its row and its column in the grid of tiles. */
+	private Map<Integer, long[]> taskTileMap = new HashMap<Integer, long[]>();
+
+	/** The number of tasks put into the Space. */
+	private int numTasks;
+
+	/** The number of tiles found in the cache of the Space. */
+	private int numCachedTiles;
+
+	/**
+	 * Instantiates a new cached Mandelbrot set job.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) inside the square region in the complex plane
+	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 */
+	public MandelbrotSetCachedJob(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit){
+		this.leftCornerCoordinates = leftCornerCoordinates;
+		this.edgeLength = edgeLength;
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+	}
+
+	/**
+	 * Looks up the tiles that cover the view in the cache of the Space using a single remote call, composes the ones that are found and puts the tasks of the missing ones into the Space.
+	 */
+	@Override
+	public void generateTasks(Space space) {
+		squareSize = edgeLength / numSquares;
+		firstRow = Math.round(leftCornerCoordinates[0] / squareSize);
+		firstColumn = Math.round(leftCornerCoordinates[1] / squareSize);
+		framebuffer = new int[numSquares * numSquares];
+		List<long[]> tiles = new ArrayList<long[]>();
+		List<String> keys = new ArrayList<String>();
+		for(long tileRow = Math.floorDiv(firstRow, CACHE_TILE_EDGE); tileRow <= Math.floorDiv(firstRow + numSquares - 1, CACHE_TILE_EDGE); tileRow++){
+			for(long tileColumn = Math.floorDiv(firstColumn, CACHE_TILE_EDGE); tileColumn <= Math.floorDiv(firstColumn + numSquares - 1, CACHE_TILE_EDGE); tileColumn++){
+				tiles.add(new long[] {tileRow, tileColumn});
+				keys.add(getCacheKey(tileRow, tileColumn));
+			}
+		}
+		try{
+			jobId = space.createJob();
+			List<Serializable> values = space.getCachedValues(keys);
+			List<Task<?>> tasks = new ArrayList<Task<?>>();
+			for(int i = 0; i < tiles.size(); i++){
+				long[] tile = tiles.get(i);
+				if(values.get(i) != null){
+					compose((int[]) values.get(i), tile);
+					numCachedTiles++;
+					continue;
+				}
+				double[] tileCornerCoordinates = {tile[0] * CACHE_TILE_EDGE * squareSize, tile[1] * CACHE_TILE_EDGE * squareSize};
+				MandelbrotSetTask task = new MandelbrotSetTask(tileCornerCoordinates, CACHE_TILE_EDGE * squareSize, CACHE_TILE_EDGE, iterationLimit, 0, CACHE_TILE_EDGE, numTasks);
+				task.setCacheKey(keys.get(i));
+				task.setJobId(jobId);
+				taskTileMap.put(numTasks, tile);
+				tasks.add(task);
+				numTasks++;
+			}
+			if(!tasks.isEmpty()){
+				space.putAll(tasks);
+			}
+			System.out.println("Found " + numCachedTiles + " of " + tiles.size() + " tiles in the cache");
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+	}
+
+	/**
+	 * Collects the tiles that were missing from the cache and composes them into the framebuffer.
+	 *
+	 * @return the framebuffer of the counts, row after row
+	 */
+	@Override
+	public int[] collectResults(Space space) {
+		int numCollected = 0;
+		while(numCollected < numTasks){
+			try{
+				List<Result<?>> results = space.takeBatch(jobId, numTasks - numCollected, TAKE_BATCH_TIMEOUT);
+				numCollected += results.size();
+				for(Result<?> r : results){
+					Result<int[]> result = (Result<int[]>) r;
+					compose(result.getTaskReturnValue(), taskTileMap.remove(result.getTaskId()));
+				}
+			}
+			catch(RemoteException e){
+				e.printStackTrace();
+				return framebuffer;
+			}
+			catch(InterruptedException ie){
+				ie.printStackTrace();
+				return framebuffer;
+			}
+		}
+		try{
+			space.finishJob(jobId);
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+		return framebuffer;
+	}
+
+	/**
+	 * Gets the key of a tile of the grid of the zoom level of the view. The size of the squares is given by its bits, so that only the views of exactly the same zoom level share a tile.
+	 *
+	 * @param tileRow the row of the tile in the grid of tiles
+	 * @param tileColumn the column of the tile in the grid of tiles
+	 * @return the cache key
+	 */
+	private String getCacheKey(long tileRow, long tileColumn) {
+		return "MandelbrotSet/" + Long.toHexString(Double.doubleToLongBits(squareSize)) + "/" + iterationLimit + "/" + CACHE_TILE_EDGE + "/" + tileRow + "/" + tileColumn;
+	}
+
+	/**
+	 * Composes the part of the tile that lies inside the view into the framebuffer. The tile holds the columns of each row in decreasing order, as the framebuffer does, so each row is copied at once.
+	 *
+	 * @param counts the counts of the tile, row after row, with the columns of each row in decreasing order
+	 * @param tile the tile, as its row and its column in the grid of tiles
+	 */
+	private void compose(int[] counts, long[] tile) {
+		long tileFirstRow = tile[0] * CACHE_TILE_EDGE;
+		long tileFirstColumn = tile[1] * CACHE_TILE_EDGE;
+		int fromRow = (int) Math.max(0, firstRow - tileFirstRow);
+		int toRow = (int) Math.min(CACHE_TILE_EDGE, firstRow + numSquares - tileFirstRow);
+		int fromColumn = (int) Math.max(0, firstColumn - tileFirstColumn);
+		int toColumn = (int) Math.min(CACHE_TILE_EDGE, firstColumn + numSquares - tileFirstColumn);
+		// the last column of the tile inside the view comes first in the rows of both the tile and the framebuffer
+		int framebufferColumn = numSquares - 1 - (int) (tileFirstColumn + toColumn - 1 - firstColumn);
+		for(int row = fromRow; row < toRow; row++){
+			int viewRow = (int) (tileFirstRow + row - firstRow);
+			System.arraycopy(counts, row * CACHE_TILE_EDGE + CACHE_TILE_EDGE - toColumn, framebuffer, viewRow * numSquares + framebufferColumn, toColumn - fromColumn);
+		}
+	}
+}
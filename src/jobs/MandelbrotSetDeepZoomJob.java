@@ -0,0 +1,195 @@
+/*
+ * @author gautham
+ */
+package jobs;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import tasks.MandelbrotSetPerturbationTask;
+import api.Result;
+import api.SharedInput;
+import api.Space;
+import api.Task;
+
+/**
+ * This class produces the framebuffer of the counts of a part of the Mandelbrot set, in the layout of MandelbrotSetJob, for deep zooms whose squares are smaller than the precision of the doubles around their points, about 1e-16 of their coordinates.
+ * The left corner of the square is given in arbitrary precision. The job computes the orbit of one reference point in arbitrary precision, puts it into the Space as a shared input, so that each Computer fetches it once,
+ * and the MandelbrotSetPerturbationTasks iterate each square in double precision as its delta from the reference orbit, which costs about as much as the iteration of MandelbrotSetTask.
+ * The reference point is the one of the square at the center; if its orbit escapes before the iteration limit, the squares of a grid of candidates are tried as well, and the one whose orbit is the longest is kept,
+ * since the deltas of the squares that outlast the reference orbit are rebased on its start and lose the precision of the deep zoom.
+ */
+public class MandelbrotSetDeepZoomJob implements Job<int[]> {
+
+	/** The number of squares of the edges of the tiles that the tasks work upon. */
+	public static final int TILE_EDGE = 64;
+
+	/** The number of candidate reference points along each edge of the square, tried if the orbit of the square at the center escapes. */
+	private static final int CANDIDATES_PER_EDGE = 4;
+
+	/** The number of decimal digits computed beyond the ones of the edge length of a square. */
+	private static final int GUARD_DIGITS = 20;
+
+	/** The left corner coordinates of the square in the complex plane. */
+	private BigDecimal[] leftCornerCoordinates;
+
+	/** The edge length of the square in the complex plane. */
+	private double edgeLength;
+
+	/** The numSquares denotes the number of pixels (n x n squares) representing the square region in the complex plane. */
+	private int numSquares;
+
+	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
+	private int iterationLimit;
+
+	/** The id assigned to this job by the Space. */
+	private int jobId;
+
+	/** The framebuffer of the counts, row after row, with the columns in decreasing order. */
+	private int[] framebuffer;
+
+	/** Mapping between a taskId and the tile that the task works upon, as the first row, the first column, the number of rows and the number of columns. */
+	private Map<Integer, int[]> taskTileMap = new HashMap<Integer, int[]>();
+
+	/** The number of tasks put into the Space. */
+	private int numTasks;
+
+	/**
+	 * Instantiates a new deep zoom Mandelbrot set job.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane, in arbitrary precision
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) inside the square region in the complex plane
+	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 */
+	public MandelbrotSetDeepZoomJob(BigDecimal[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit){
+		this.leftCornerCoordinates = leftCornerCoordinates;
+		this.edgeLength = edgeLength;
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+	}
+
+	/**
+	 * Computes the reference orbit, puts it into the Space and puts the tasks of the tiles using a single remote call.
+	 */
+	@Override
+	public void generateTasks(Space space) {
+		long startTime = System.currentTimeMillis();
+		double squareSize = edgeLength / numSquares;
+		MathContext mathContext = new MathContext(Math.max(0, (int) Math.ceil(-Math.log10(squareSize))) + GUARD_DIGITS);
+		int referenceRow = numSquares / 2;
+		int referenceColumn = numSquares / 2;
+		double[] orbit = getReferenceOrbit(referenceRow, referenceColumn, squareSize, mathContext);
+		for(int i = 0; i < CANDIDATES_PER_EDGE && orbit.length / 2 < iterationLimit; i++){
+			for(int j = 0; j < CANDIDATES_PER_EDGE && orbit.length / 2 < iterationLimit; j++){
+				int row = (2 * i + 1) * numSquares / (2 * CANDIDATES_PER_EDGE);
+				int column = (2 * j + 1) * numSquares / (2 * CANDIDATES_PER_EDGE);
+				double[] candidate = getReferenceOrbit(row, column, squareSize, mathContext);
+				if(candidate.length > orbit.length){
+					orbit = candidate;
+					referenceRow = row;
+					referenceColumn = column;
+				}
+			}
+		}
+		System.out.println("Computed a reference orbit of " + (orbit.length / 2) + " points with " + mathContext.getPrecision() + " digits in " + (System.currentTimeMillis() - startTime) + " ms");
+		framebuffer = new int[numSquares * numSquares];
+		try{
+			jobId = space.createJob();
+			SharedInput<double[]> referenceOrbit = space.putSharedInput(jobId, orbit);
+			List<Task<?>> tasks = new ArrayList<Task<?>>();
+			for(int row = 0; row < numSquares; row += TILE_EDGE){
+				for(int column = 0; column < numSquares; column += TILE_EDGE){
+					int[] tile = {row, column, Math.min(TILE_EDGE, numSquares - row), Math.min(TILE_EDGE, numSquares - column)};
+					MandelbrotSetPerturbationTask task = new MandelbrotSetPerturbationTask(referenceOrbit, squareSize, referenceRow, referenceColumn, iterationLimit, tile[0], tile[2], tile[1], tile[3], numTasks);
+					task.setJobId(jobId);
+					taskTileMap.put(numTasks, tile);
+					tasks.add(task);
+					numTasks++;
+				}
+			}
+			space.putAll(tasks);
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+	}
+
+	/**
+	 * Collects the tiles and composes them into the framebuffer.
+	 *
+	 * @return the framebuffer of the counts, row after row
+	 */
+	@Override
+	public int[] collectResults(Space space) {
+		int numCollected = 0;
+		while(numCollected < numTasks){
+			try{
+				List<Result<?>> results = space.takeBatch(jobId, numTasks - numCollected, TAKE_BATCH_TIMEOUT);
+				numCollected += results.size();
+				for(Result<?> r : results){
+					Result<int[]> result = (Result<int[]>) r;
+					int[] tile = taskTileMap.remove(result.getTaskId());
+					int numColumns = tile[3];
+					int framebufferColumn = numSquares - tile[1] - numColumns;
+					for(int i = 0; i < tile[2]; i++){
+						System.arraycopy(result.getTaskReturnValue(), i * numColumns, framebuffer, (tile[0] + i) * numSquares + framebufferColumn, numColumns);
+					}
+				}
+			}
+			catch(RemoteException e){
+				e.printStackTrace();
+				return framebuffer;
+			}
+			catch(InterruptedException ie){
+				ie.printStackTrace();
+				return framebuffer;
+			}
+		}
+		try{
+			space.finishJob(jobId);
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+		return framebuffer;
+	}
+
+	/**
+	 * Computes the orbit of the point of the given square in arbitrary precision, rounded to doubles, until it escapes or the iteration limit is reached.
+	 *
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @param squareSize the edge length of a square in the complex plane
+	 * @param mathContext the precision of the computation
+	 * @return the orbit, as the real and imaginary parts of each of its points in turn, starting at 0; it holds at most iterationLimit points
+	 */
+	private double[] getReferenceOrbit(int row, int column, double squareSize, MathContext mathContext) {
+		BigDecimal size = new BigDecimal(squareSize);
+		BigDecimal cReal = leftCornerCoordinates[0].add(size.multiply(BigDecimal.valueOf(row)), mathContext);
+		BigDecimal cImag = leftCornerCoordinates[1].add(size.multiply(BigDecimal.valueOf(column)), mathContext);
+		BigDecimal real = BigDecimal.ZERO, imag = BigDecimal.ZERO;
+		double[] orbit = new double[2 * Math.max(2, iterationLimit)];
+		int length = 1;
+		while(length < iterationLimit){
+			BigDecimal temp = real.multiply(real, mathContext).subtract(imag.multiply(imag, mathContext), mathContext).add(cReal, mathContext);
+			imag = real.multiply(imag, mathContext).multiply(BigDecimal.valueOf(2), mathContext).add(cImag, mathContext);
+			real = temp;
+			double realValue = real.doubleValue();
+			double imagValue = imag.doubleValue();
+			orbit[2 * length] = realValue;
+			orbit[2 * length + 1] = imagValue;
+			length++;
+			if(realValue * realValue + imagValue * imagValue >= 4){
+				break;
+			}
+		}
+		return Arrays.copyOf(orbit, 2 * Math.max(2, length));
+	}
+}
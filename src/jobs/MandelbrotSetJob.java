@@ -4,18 +4,35 @@
 package jobs;
 
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import tasks.MandelbrotSetTask;
 import api.Result;
 import api.Space;
+import api.Task;
 
 /**
  * This class helps to produce a visualization of the some part of the Mandelbrot set which is probably one of the most well known fractals, and probably one of the most widely implemented fractal in fractal plotting programs.
+ * The tiles near the boundary of the set cost much more than the tiles outside it, so the job sizes its tasks adaptively: 
+ * it starts with coarse square tiles, measures the cost per square of the completed tasks and splits the remaining tiles that are expected to take longer than the target task time.
+ * The counts are composed into a flat framebuffer, where the count of the square in row i and column j of the picture is at index i * numSquares + j; each row of a tile is copied into it at once,
+ * so that the framebuffer is the only copy of the picture held by the job and large pictures are composed in time linear in their size.
  */
-public class MandelbrotSetJob implements Job<int[][]> {
+public class MandelbrotSetJob implements Job<int[]> {
 
-	/** The constant represents the number of rows that each task gets to process */
-	public static final int NUM_ROWS_PER_TASK = 32;
+	/** The number of squares of the edges of the coarse tiles that the job starts with. */
+	public static final int INITIAL_TILE_EDGE = 128;
+	
+	/** The default time in milliseconds that each task is expected to take. */
+	public static final long DEFAULT_TARGET_TASK_TIME = 50;
+	
+	/** The number of tasks kept outstanding for each processor in the Space. The remaining regions are held back until cost estimates are available for them. */
+	private static final int TASKS_PER_PROCESSOR = 2;
 	
 	/** The left corner coordinates of the square in the complex plane. */
 	private double[] leftCornerCoordinates;
@@ -29,6 +46,33 @@ public class MandelbrotSetJob implements Job<int[][]> {
 	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
 	private int iterationLimit;
 	
+	/** The time in milliseconds that each task is expected to take. */
+	private long targetTaskTime;
+	
+	/** The id assigned to this job by the Space. */
+	private int jobId;
+	
+	/** Mapping between a taskId and its start time. It is used for experimentation purposes. */
+	private Map<Integer, Long> taskStartTimeMap = new HashMap<Integer, Long>();
+	
+	/** Mapping between a taskId and the tile that the task works upon, as the first row, the first column, the number of rows and the number of columns. */
+	private Map<Integer, int[]> taskTileMap = new HashMap<Integer, int[]>();
+	
+	/** The tiles, as the first row, the first column, the number of rows and the number of columns, that have not been given to any task yet. */
+	private LinkedList<int[]> pendingTiles = new LinkedList<int[]>();
+	
+	/** The number of coarse tiles along each edge of the square. */
+	private int tilesPerEdge;
+	
+	/** The measured cost in milliseconds per square of each coarse tile, row after row; negative if no part of the tile has been computed yet. */
+	private double[] tileCosts;
+	
+	/** The number of tasks that are kept outstanding in the Space. */
+	private int maxOutstandingTasks;
+	
+	/** The number of tasks put into the Space. */
+	private int numTasks;
+	
 	/**
 	 * Instantiates a new Mandelbrot set task.
 	 *
@@ -38,79 +82,109 @@ public class MandelbrotSetJob implements Job<int[][]> {
 	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
 	 */
 	public MandelbrotSetJob(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit){
+		this(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, DEFAULT_TARGET_TASK_TIME);
+	}
+	
+	/**
+	 * Instantiates a new Mandelbrot set task.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) inside the square region in the complex plane
+	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 * @param targetTaskTime the time in milliseconds that each task is expected to take
+	 */
+	public MandelbrotSetJob(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, long targetTaskTime){
 		this.leftCornerCoordinates = leftCornerCoordinates;
 		this.edgeLength = edgeLength;
 		this.numSquares = numSquares;
-		this.iterationLimit = iterationLimit;		
+		this.iterationLimit = iterationLimit;
+		this.targetTaskTime = targetTaskTime;
 	}
 	
 	/**
 	 * Generates multiple tasks from this job. The client decomposes the problem (job), constructing a set of Task objects
-	 * The MandelbrotSet job is decomposed into 'n' number of tasks, with each task taking care of a fixed number of rows as defined by NUM_ROWS_PER_TASK
+	 * The MandelbrotSet job is decomposed into coarse tiles of INITIAL_TILE_EDGE squares on each edge. Only the first wave of tasks, spread evenly over the square, is put into the Space here;
+	 * the remaining tiles are given out by collectResults, once the costs of the nearby tiles have been measured.
 	 */
 	@Override
 	public void generateTasks(Space space) {
 		System.out.println("Generate Tasks");
 		
-		// the number of tasks. The below computation works even if the number of rows is not a power of 2.
-		int numTasks = (numSquares / NUM_ROWS_PER_TASK) + ((numSquares % NUM_ROWS_PER_TASK) == 0 ? 0 : 1);
-		for(int i = 0; i < numTasks; i++){			
-			MandelbrotSetTask task = new MandelbrotSetTask(this.leftCornerCoordinates, this.edgeLength, this.numSquares, this.iterationLimit, i);
-			long startTime = System.currentTimeMillis();
-			taskStartTimeMap.put(i, startTime);
-			try{
-				space.put(task);
+		tilesPerEdge = (numSquares + INITIAL_TILE_EDGE - 1) / INITIAL_TILE_EDGE;
+		tileCosts = new double[tilesPerEdge * tilesPerEdge];
+		Arrays.fill(tileCosts, -1);
+		// the tiles are taken out of the square in an interleaved order, so that the first wave measures the cost of every part of it
+		List<int[]> tiles = new ArrayList<int[]>();
+		for(int row = 0; row < numSquares; row += INITIAL_TILE_EDGE){
+			for(int column = 0; column < numSquares; column += INITIAL_TILE_EDGE){
+				tiles.add(new int[] {row, column, Math.min(INITIAL_TILE_EDGE, numSquares - row), Math.min(INITIAL_TILE_EDGE, numSquares - column)});
 			}
-			catch(RemoteException re){
-				re.printStackTrace();
-			}			
-		}		
+		}
+		try{
+			jobId = space.createJob();
+			maxOutstandingTasks = TASKS_PER_PROCESSOR * Math.max(1, space.getParallelism());
+			int stride = Math.max(1, tiles.size() / maxOutstandingTasks);
+			for(int offset = 0; offset < stride; offset++){
+				for(int i = offset; i < tiles.size(); i += stride){
+					pendingTiles.add(tiles.get(i));
+				}
+			}
+			putTasks(space, maxOutstandingTasks);
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
 	}
 
 	/**
 	 * Collects results from the Space, composing them into a solution to the original problem.
-	 * Each result in the MandelbrotSet job is a one-dimensional array that contains the 'k' values of multiple rows (which correspond to the number of rows that each task works upon)
+	 * Each result in the MandelbrotSet job is a one-dimensional array that contains the 'k' values of the rows of the tile that the task works upon, with the columns of each row in the order of the framebuffer.
+	 * For each result, the cost per square is measured and more tasks are put into the Space, until all the tiles have been computed.
+	 *
+	 * @return the framebuffer of the counts, row after row
 	 */
 	@Override
-	public int[][] collectResults(Space space) {
+	public int[] collectResults(Space space) {
 		System.out.println("Collect Results");
-		int[][] count = new int[numSquares][numSquares];	
-		int numTasks = (numSquares / NUM_ROWS_PER_TASK) + ((numSquares % NUM_ROWS_PER_TASK) == 0 ? 0 : 1);
+		int[] count = new int[numSquares * numSquares];	
 		
 		long totalElapsedTime_computer = 0;
 		long taskElapsedTime_computer = 0;
 		long taskElapsedTime_client = 0;
 		long totalElapsedTime_client = 0;
 		
-		for(int k = 0; k < numTasks; k++){
-			try {				
-				Result<int[]> result = (Result<int[]>)space.take();
-				int taskId = result.getTaskId();
-				taskElapsedTime_client = System.currentTimeMillis() - taskStartTimeMap.get(taskId);
-				totalElapsedTime_client += taskElapsedTime_client;
-				
-				//System.out.println("task " + (taskId + 1) + ": " + taskElapsedTime_client + " ms");
-				int[] returnValue = result.getTaskReturnValue();
-				//Entry<Integer, int[]> entry = rowMap.entrySet().iterator().next();
-				//int taskNum = entry.getKey();
-				int rowNum = NUM_ROWS_PER_TASK * taskId;
-				//int[] returnValue = entry.getValue();
-				
-				taskElapsedTime_computer = result.getTaskRunTime();
-				System.out.println("task " + (taskId + 1) + ": " + taskElapsedTime_computer + " ms");
-				totalElapsedTime_computer += taskElapsedTime_computer;
-				
-				
-				for(int j = 0; j < returnValue.length; j++){
-					if(rowNum >= numSquares){
-						System.out.println("i " + rowNum + " Breaking");
-						break;
+		int numCollected = 0;
+		while(numCollected < numTasks || !pendingTiles.isEmpty()){
+			try {
+				List<Result<?>> results = space.takeBatch(jobId, numTasks - numCollected, TAKE_BATCH_TIMEOUT);
+				numCollected += results.size();
+				for(Result<?> r : results){
+					Result<int[]> result = (Result<int[]>) r;
+					int taskId = result.getTaskId();
+					taskElapsedTime_client = System.currentTimeMillis() - taskStartTimeMap.get(taskId);
+					totalElapsedTime_client += taskElapsedTime_client;
+					
+					//System.out.println("task " + (taskId + 1) + ": " + taskElapsedTime_client + " ms");
+					int[] returnValue = result.getTaskReturnValue();
+					int[] tile = taskTileMap.get(taskId);
+					int startRow = tile[0];
+					int startColumn = tile[1];
+					int numRows = tile[2];
+					int numColumns = tile[3];
+					
+					taskElapsedTime_computer = result.getTaskRunTime();
+					System.out.println("task " + (taskId + 1) + ": " + taskElapsedTime_computer + " ms for " + numRows + "x" + numColumns + " squares");
+					totalElapsedTime_computer += taskElapsedTime_computer;
+					
+					tileCosts[(startRow / INITIAL_TILE_EDGE) * tilesPerEdge + startColumn / INITIAL_TILE_EDGE] = (double) taskElapsedTime_computer / (numRows * numColumns);
+					// the columns of the picture are in decreasing order of the columns of the square, and so are the ones of each row of the tile
+					int framebufferColumn = numSquares - startColumn - numColumns;
+					for(int i = 0; i < numRows; i++){
+						System.arraycopy(returnValue, i * numColumns, count, (startRow + i) * numSquares + framebufferColumn, numColumns);
 					}
-					count[rowNum][(numSquares - (j % numSquares) - 1)] = returnValue[j];
-					if((j + 1) % numSquares == 0){
-						rowNum++ ;
-					}
-				}				
+				}
+				putTasks(space, maxOutstandingTasks - (numTasks - numCollected));
 			} catch (RemoteException e) {
 				e.printStackTrace();
 			}
@@ -119,9 +193,86 @@ public class MandelbrotSetJob implements Job<int[][]> {
 			}
 		}		
 		//System.out.println("Average elapsed time as seen by the Client: " + totalElapsedTime_client / numTasks + " ms");
-		System.out.println("Average elapsed time as seen by the Computer: " + totalElapsedTime_computer / numTasks + " ms");
+		System.out.println("Average elapsed time as seen by the Computer: " + totalElapsedTime_computer / numTasks + " ms over " + numTasks + " tasks");
+		try{
+			space.finishJob(jobId);
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
 		
 		return count;
 	}
 	
+	/**
+	 * Puts tasks for the next pending tiles into the Space using a single remote call.
+	 * A tile that is expected to take longer than the target task time is split in halves along its longer edge, and only its first half is given to a task, until the half is expected to take no longer.
+	 *
+	 * @param space the space
+	 * @param max the maximum number of tasks to put
+	 * @throws RemoteException the remote exception
+	 */
+	private void putTasks(Space space, int max) throws RemoteException {
+		List<Task<?>> tasks = new ArrayList<Task<?>>();
+		long startTime = System.currentTimeMillis();
+		while(tasks.size() < max && !pendingTiles.isEmpty()){
+			int[] tile = pendingTiles.removeFirst();
+			double squareCost = getEstimatedSquareCost(tile[0], tile[1]);
+			while(squareCost * tile[2] * tile[3] > targetTaskTime && tile[2] * tile[3] > 1){
+				int[] half = tile.clone();
+				if(tile[2] >= tile[3]){
+					tile[2] /= 2;
+					half[0] += tile[2];
+					half[2] -= tile[2];
+				}
+				else{
+					tile[3] /= 2;
+					half[1] += tile[3];
+					half[3] -= tile[3];
+				}
+				pendingTiles.addFirst(half);
+			}
+			MandelbrotSetTask task = new MandelbrotSetTask(this.leftCornerCoordinates, this.edgeLength, this.numSquares, this.iterationLimit, tile[0], tile[2], tile[1], tile[3], numTasks);
+			task.setJobId(jobId);
+			taskStartTimeMap.put(numTasks, startTime);
+			taskTileMap.put(numTasks, tile);
+			tasks.add(task);
+			numTasks++;
+		}
+		if(!tasks.isEmpty()){
+			space.putAll(tasks);
+		}
+	}
+	
+	/**
+	 * Gets the estimated cost of a square in the coarse tile that holds the given square. It is the measured cost of the coarse tile if a part of it has been computed,
+	 * and otherwise the largest of the measured costs of the nearest computed coarse tiles above, below, to the left and to the right of it.
+	 *
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @return the estimated cost in milliseconds; 0 if no nearby tile has been computed yet
+	 */
+	private double getEstimatedSquareCost(int row, int column) {
+		int tileRow = row / INITIAL_TILE_EDGE;
+		int tileColumn = column / INITIAL_TILE_EDGE;
+		if(tileCosts[tileRow * tilesPerEdge + tileColumn] >= 0){
+			return tileCosts[tileRow * tilesPerEdge + tileColumn];
+		}
+		double cost = 0;
+		int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+		for(int[] direction : directions){
+			int r = tileRow + direction[0];
+			int c = tileColumn + direction[1];
+			while(r >= 0 && r < tilesPerEdge && c >= 0 && c < tilesPerEdge){
+				if(tileCosts[r * tilesPerEdge + c] >= 0){
+					cost = Math.max(cost, tileCosts[r * tilesPerEdge + c]);
+					break;
+				}
+				r += direction[0];
+				c += direction[1];
+			}
+		}
+		return cost;
+	}
+	
 }
@@ -0,0 +1,200 @@
+/*
+ * @author gautham
+ */
+package jobs;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import tasks.MandelbrotSetSampleTask;
+import api.Result;
+import api.Space;
+import api.Task;
+
+/**
+ * This class produces the same framebuffer of the counts of a part of the Mandelbrot set as MandelbrotSetJob, in passes from coarse to fine, so that a preview of the picture is available long before the whole of it.
+ * The first pass computes the squares whose row and column are multiples of INITIAL_STRIDE; each following pass halves the stride and computes the squares of its grid that the previous passes have not computed, down to the stride of 1.
+ * When a pass has been composed, the framebuffer is given to the FrameListener, with every square that has not been computed yet showing the count of the computed square at the corner of its block.
+ * The first frame costs about 1 / INITIAL_STRIDE^2 of the picture, and no square is computed twice.
+ */
+public class MandelbrotSetProgressiveJob implements Job<int[]> {
+
+	/** The distance in squares between the squares of the first pass. It is a power of two, so that each pass halves it. */
+	public static final int INITIAL_STRIDE = 16;
+
+	/** The number of tasks of each pass for each processor in the Space, so that the processors that get the quicker bands are not left idle. */
+	private static final int TASKS_PER_PROCESSOR = 4;
+
+	/** The left corner coordinates of the square in the complex plane. */
+	private double[] leftCornerCoordinates;
+
+	/** The edge length of the square in the complex plane. */
+	private double edgeLength;
+
+	/** The numSquares denotes the number of pixels (n x n squares) representing the square region in the complex plane. */
+	private int numSquares;
+
+	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
+	private int iterationLimit;
+
+	/** The listener that is given the frames; null if there is none. */
+	private FrameListener listener;
+
+	/** The id assigned to this job by the Space. */
+	private int jobId;
+
+	/** The number of processors in the Space. */
+	private int parallelism;
+
+	/** The framebuffer of the counts, row after row, with the columns in decreasing order. */
+	private int[] framebuffer;
+
+	/** Mapping between a taskId and the task, which composes its counts into the framebuffer. */
+	private Map<Integer, MandelbrotSetSampleTask> taskMap = new HashMap<Integer, MandelbrotSetSampleTask>();
+
+	/** The number of tasks put into the Space. */
+	private int numTasks;
+
+	/** The number of tasks of the first pass. */
+	private int firstPassEnd;
+
+	/** The time at which the tasks of the first pass were generated. */
+	private long startTime;
+
+	/**
+	 * Instantiates a new progressive Mandelbrot set job.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) inside the square region in the complex plane
+	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 * @param listener the listener that is given the frames; null if there is none
+	 */
+	public MandelbrotSetProgressiveJob(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, FrameListener listener){
+		this.leftCornerCoordinates = leftCornerCoordinates;
+		this.edgeLength = edgeLength;
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+		this.listener = listener;
+	}
+
+	/**
+	 * Generates the tasks of the first pass, and the ones of the second pass, which are kept queued behind them.
+	 */
+	@Override
+	public void generateTasks(Space space) {
+		startTime = System.currentTimeMillis();
+		framebuffer = new int[numSquares * numSquares];
+		try{
+			jobId = space.createJob();
+			parallelism = space.getParallelism();
+			putPass(space, INITIAL_STRIDE, false);
+			firstPassEnd = numTasks;
+			if(INITIAL_STRIDE > 1){
+				putPass(space, INITIAL_STRIDE / 2, true);
+			}
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+	}
+
+	/**
+	 * Collects the results of each pass and gives the frame to the listener once the pass has been composed, until the pass of stride 1 has been composed.
+	 * The tasks of the pass after the current one are always in the Space, so that the Computers go on with them while the last tasks of the current pass are collected and the listener draws the frame.
+	 * A result of the next pass that is taken before the current pass is complete is held until then, since the blocks of the current pass cover its squares.
+	 *
+	 * @return the framebuffer of the counts, row after row
+	 */
+	@Override
+	public int[] collectResults(Space space) {
+		int numCollected = 0;
+		int numComposed = 0;
+		int passEnd = firstPassEnd;
+		List<Result<int[]>> heldResults = new ArrayList<Result<int[]>>();
+		for(int stride = INITIAL_STRIDE; ; stride /= 2){
+			for(Result<int[]> result : heldResults){
+				taskMap.remove(result.getTaskId()).compose(result.getTaskReturnValue(), framebuffer);
+			}
+			numComposed += heldResults.size();
+			heldResults.clear();
+			while(numComposed < passEnd){
+				try{
+					List<Result<?>> results = space.takeBatch(jobId, numTasks - numCollected, TAKE_BATCH_TIMEOUT);
+					numCollected += results.size();
+					for(Result<?> r : results){
+						Result<int[]> result = (Result<int[]>) r;
+						// the task ids of the passes are consecutive, so the ones from passEnd on belong to the next pass
+						if(result.getTaskId() >= passEnd){
+							heldResults.add(result);
+							continue;
+						}
+						taskMap.remove(result.getTaskId()).compose(result.getTaskReturnValue(), framebuffer);
+						numComposed++;
+					}
+				}
+				catch(RemoteException e){
+					e.printStackTrace();
+					return framebuffer;
+				}
+				catch(InterruptedException ie){
+					ie.printStackTrace();
+					return framebuffer;
+				}
+			}
+			// the pass after the next one is put before the listener is called, so that the next pass is never the last one in the Space while the frame is drawn
+			int nextPassEnd = numTasks;
+			if(stride >= 4){
+				try{
+					putPass(space, stride / 4, true);
+				}
+				catch(RemoteException re){
+					re.printStackTrace();
+					return framebuffer;
+				}
+			}
+			System.out.println("Frame of stride " + stride + " after " + (System.currentTimeMillis() - startTime) + " ms");
+			if(listener != null){
+				listener.frameReady(framebuffer, stride);
+			}
+			if(stride == 1){
+				break;
+			}
+			passEnd = nextPassEnd;
+		}
+		try{
+			space.finishJob(jobId);
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+		return framebuffer;
+	}
+
+	/**
+	 * Puts the tasks of a pass into the Space using a single remote call. The rows of the pass are split into bands of about the same number of rows.
+	 *
+	 * @param space the space
+	 * @param stride the distance in squares between the squares of the pass
+	 * @param refining whether the squares computed by the previous passes are skipped
+	 * @throws RemoteException the remote exception
+	 */
+	private void putPass(Space space, int stride, boolean refining) throws RemoteException {
+		int numPassRows = (numSquares - 1) / stride + 1;
+		int numPassTasks = Math.max(1, Math.min(TASKS_PER_PROCESSOR * Math.max(1, parallelism), numPassRows));
+		List<Task<?>> tasks = new ArrayList<Task<?>>(numPassTasks);
+		for(int t = 0; t < numPassTasks; t++){
+			int fromRow = numPassRows * t / numPassTasks * stride;
+			int toRow = numPassRows * (t + 1) / numPassTasks * stride;
+			MandelbrotSetSampleTask task = new MandelbrotSetSampleTask(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, fromRow, toRow - fromRow, stride, refining, numTasks);
+			task.setJobId(jobId);
+			taskMap.put(numTasks, task);
+			tasks.add(task);
+			numTasks++;
+		}
+		space.putAll(tasks);
+	}
+}
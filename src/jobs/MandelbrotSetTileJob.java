@@ -0,0 +1,151 @@
+/*
+ * @author gautham
+ */
+package jobs;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+
+import tasks.MandelbrotSetTile;
+import tasks.MandelbrotSetTileTask;
+import api.Result;
+import api.Space;
+import api.Task;
+
+/**
+ * This class produces the same framebuffer of the counts of a part of the Mandelbrot set as MandelbrotSetJob, using the Mariani-Silver algorithm of MandelbrotSetTileTask, which fills in the tiles whose border has a uniform count without iterating their squares.
+ * The square is covered with tiles of INITIAL_TILE_EDGE + 1 squares that share their borders. A task computes a tile of at most MAX_TASK_TILE_EDGE squares on each edge; a larger tile whose border is not uniform comes back subdivided,
+ * and the job puts its halves into the Space, so that the parts near the boundary of the set are spread over the Computers.
+ * The counts are exact for the squares that are computed; a square that is filled in gets the count of the border around it, which differs from its own count only if a detail thinner than a square passes between the squares of the border.
+ */
+public class MandelbrotSetTileJob implements Job<int[]> {
+
+	/** The number of squares between the first rows and columns of neighbouring initial tiles. */
+	public static final int INITIAL_TILE_EDGE = 256;
+
+	/** The largest number of squares of an edge of a tile that is computed by a single task. Tiles of 2^n + 1 squares split into halves of 2^(n-1) + 1 squares. */
+	public static final int MAX_TASK_TILE_EDGE = 129;
+
+	/** The left corner coordinates of the square in the complex plane. */
+	private double[] leftCornerCoordinates;
+
+	/** The edge length of the square in the complex plane. */
+	private double edgeLength;
+
+	/** The numSquares denotes the number of pixels (n x n squares) representing the square region in the complex plane. */
+	private int numSquares;
+
+	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
+	private int iterationLimit;
+
+	/** The id assigned to this job by the Space. */
+	private int jobId;
+
+	/** The number of tasks put into the Space. */
+	private int numTasks;
+
+	/**
+	 * Instantiates a new Mandelbrot set tile job.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) inside the square region in the complex plane
+	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 */
+	public MandelbrotSetTileJob(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit){
+		this.leftCornerCoordinates = leftCornerCoordinates;
+		this.edgeLength = edgeLength;
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+	}
+
+	/**
+	 * Generates the tasks of the initial tiles, which cover the square and share their borders.
+	 */
+	@Override
+	public void generateTasks(Space space) {
+		List<int[]> tiles = new ArrayList<int[]>();
+		int lastSquare = Math.max(1, numSquares - 1);
+		for(int row = 0; row < lastSquare; row += INITIAL_TILE_EDGE){
+			for(int column = 0; column < lastSquare; column += INITIAL_TILE_EDGE){
+				tiles.add(new int[] {row, column, Math.min(INITIAL_TILE_EDGE, numSquares - 1 - row) + 1, Math.min(INITIAL_TILE_EDGE, numSquares - 1 - column) + 1});
+			}
+		}
+		try{
+			jobId = space.createJob();
+			putTasks(space, tiles);
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+	}
+
+	/**
+	 * Collects the tiles from the Space and composes their counts into a framebuffer with the same layout as the one of MandelbrotSetJob. The halves of the subdivided tiles are put into the Space as new tasks, until all the tiles have been computed.
+	 *
+	 * @return the framebuffer of the counts, row after row
+	 */
+	@Override
+	public int[] collectResults(Space space) {
+		int[] count = new int[numSquares * numSquares];
+		long numComputed = 0;
+		int numCollected = 0;
+		while(numCollected < numTasks){
+			try{
+				List<Result<?>> results = space.takeBatch(jobId, numTasks - numCollected, TAKE_BATCH_TIMEOUT);
+				numCollected += results.size();
+				List<int[]> halves = new ArrayList<int[]>();
+				for(Result<?> r : results){
+					MandelbrotSetTile tile = ((Result<MandelbrotSetTile>) r).getTaskReturnValue();
+					numComputed += tile.getNumComputed();
+					if(tile.isSubdivided()){
+						for(int[] half : MandelbrotSetTileTask.split(tile.getRow(), tile.getColumn(), tile.getNumRows(), tile.getNumColumns())){
+							halves.add(half);
+						}
+						continue;
+					}
+					int numColumns = tile.getNumColumns();
+					int framebufferColumn = numSquares - tile.getColumn() - numColumns;
+					for(int i = 0; i < tile.getNumRows(); i++){
+						System.arraycopy(tile.getCounts(), i * numColumns, count, (tile.getRow() + i) * numSquares + framebufferColumn, numColumns);
+					}
+				}
+				if(!halves.isEmpty()){
+					putTasks(space, halves);
+				}
+			}
+			catch(RemoteException e){
+				e.printStackTrace();
+			}
+			catch(InterruptedException ie){
+				ie.printStackTrace();
+			}
+		}
+		System.out.println("Computed " + numComputed + " of " + ((long) numSquares * numSquares) + " squares by iterating using " + numTasks + " tasks");
+		try{
+			space.finishJob(jobId);
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+		return count;
+	}
+
+	/**
+	 * Puts the tasks of the given tiles into the Space using a single remote call.
+	 *
+	 * @param space the space
+	 * @param tiles the tiles, each as the first row, the first column, the number of rows and the number of columns
+	 * @throws RemoteException the remote exception
+	 */
+	private void putTasks(Space space, List<int[]> tiles) throws RemoteException {
+		List<Task<?>> tasks = new ArrayList<Task<?>>(tiles.size());
+		for(int[] tile : tiles){
+			MandelbrotSetTileTask task = new MandelbrotSetTileTask(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, tile, MAX_TASK_TILE_EDGE, numTasks++);
+			task.setJobId(jobId);
+			tasks.add(task);
+		}
+		space.putAll(tasks);
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * @author gautham
+ */
+package jobs;
+
+import java.io.IOException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import tasks.MandelbrotSetTask;
+import api.Result;
+import api.Space;
+import api.Task;
+
+/**
+ * This class produces the frames of an animation that zooms into the Mandelbrot set, each with the framebuffer of the counts in the layout of MandelbrotSetJob, as a single job.
+ * Frame f shows the square of edge length initialEdgeLength * zoomFactor^f around the center. The tasks of up to FRAMES_IN_FLIGHT frames are kept in the Space at once,
+ * and the tasks of the next frame are put as soon as a frame is complete, so that the Computers are not left idle while the last tiles of a frame are collected and the frame is written.
+ * The frames are given to the FrameWriter in their order, whichever order they complete in.
+ * All the frames share the job id, the tiling and the framebuffers; the tiles of each frame are put in decreasing order of the time that the same tile took in the latest frame,
+ * since consecutive frames differ little, so that the expensive tiles do not end up at the tail of the frame.
+ */
+public class MandelbrotSetZoomJob implements Job<Integer> {
+
+	/** The number of squares of the edges of the tiles that the tasks work upon. */
+	public static final int TILE_EDGE = 128;
+
+	/** The number of frames whose tasks are kept in the Space at once. */
+	public static final int FRAMES_IN_FLIGHT = 3;
+
+	/** The coordinates of the center of the frames in the complex plane. */
+	private double[] centerCoordinates;
+
+	/** The edge length in the complex plane of the square of the first frame. */
+	private double initialEdgeLength;
+
+	/** The factor by which the edge length shrinks from each frame to the next one. */
+	private double zoomFactor;
+
+	/** The number of frames of the animation. */
+	private int numFrames;
+
+	/** The numSquares denotes the number of pixels (n x n squares) of each frame. */
+	private int numSquares;
+
+	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
+	private int iterationLimit;
+
+	/** The writer that is given the frames; null if there is none. */
+	private FrameWriter writer;
+
+	/** The id assigned to this job by the Space. */
+	private int jobId;
+
+	/** The tiles of each frame, as the first row, the first column, the number of rows and the number of columns. */
+	private List<int[]> tiles = new ArrayList<int[]>();
+
+	/** The time in milliseconds that the task of each tile took in the latest frame; negative if no task of the tile has completed yet. */
+	private long[] tileTimes;
+
+	/** Mapping between a taskId and the frame that the task belongs to. */
+	private Map<Integer, Integer> taskFrameMap = new HashMap<Integer, Integer>();
+
+	/** Mapping between a taskId and the index of the tile that the task works upon. */
+	private Map<Integer, Integer> taskTileMap = new HashMap<Integer, Integer>();
+
+	/** Mapping between a frame that has been put and not written yet and its framebuffer. */
+	private Map<Integer, int[]> framebufferMap = new HashMap<Integer, int[]>();
+
+	/** The framebuffers of the frames that have been written, which are reused by the next frames. */
+	private LinkedList<int[]> freeFramebuffers = new LinkedList<int[]>();
+
+	/** The number of tiles of each frame that have not been composed yet. */
+	private int[] numRemainingTiles;
+
+	/** The number of frames whose tasks have been put into the Space. */
+	private int numFramesPut;
+
+	/** The number of frames that have been given to the writer. */
+	private int numFramesWritten;
+
+	/** The number of tasks put into the Space. */
+	private int numTasks;
+
+	/** The time at which the tasks of the first frames were generated. */
+	private long startTime;
+
+	/**
+	 * Instantiates a new Mandelbrot set zoom job.
+	 *
+	 * @param centerCoordinates the coordinates of the center of the frames in the complex plane
+	 * @param initialEdgeLength the edge length in the complex plane of the square of the first frame
+	 * @param zoomFactor the factor by which the edge length shrinks from each frame to the next one, such as 0.95
+	 * @param numFrames the number of frames of the animation
+	 * @param numSquares the number denoting the number of pixels (n x n squares) of each frame
+	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 * @param writer the writer that is given the frames; null if there is none
+	 */
+	public MandelbrotSetZoomJob(double[] centerCoordinates, double initialEdgeLength, double zoomFactor, int numFrames, int numSquares, int iterationLimit, FrameWriter writer){
+		this.centerCoordinates = centerCoordinates;
+		this.initialEdgeLength = initialEdgeLength;
+		this.zoomFactor = zoomFactor;
+		this.numFrames = numFrames;
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+		this.writer = writer;
+	}
+
+	/**
+	 * Generates the tasks of the first FRAMES_IN_FLIGHT frames.
+	 */
+	@Override
+	public void generateTasks(Space space) {
+		startTime = System.currentTimeMillis();
+		for(int row = 0; row < numSquares; row += TILE_EDGE){
+			for(int column = 0; column < numSquares; column += TILE_EDGE){
+				tiles.add(new int[] {row, column, Math.min(TILE_EDGE, numSquares - row), Math.min(TILE_EDGE, numSquares - column)});
+			}
+		}
+		tileTimes = new long[tiles.size()];
+		Arrays.fill(tileTimes, -1);
+		numRemainingTiles = new int[numFrames];
+		try{
+			jobId = space.createJob();
+			while(numFramesPut < Math.min(FRAMES_IN_FLIGHT, numFrames)){
+				putFrame(space);
+			}
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+	}
+
+	/**
+	 * Collects the tiles of the frames in flight. When the oldest frame in flight is complete, the tasks of the next frame are put into the Space, and then the frame is given to the writer.
+	 *
+	 * @return the number of frames completed
+	 */
+	@Override
+	public Integer collectResults(Space space) {
+		int numCollected = 0;
+		while(numFramesWritten < numFrames){
+			try{
+				List<Result<?>> results = space.takeBatch(jobId, numTasks - numCollected, TAKE_BATCH_TIMEOUT);
+				numCollected += results.size();
+				for(Result<?> r : results){
+					Result<int[]> result = (Result<int[]>) r;
+					int frame = taskFrameMap.remove(result.getTaskId());
+					int tileIndex = taskTileMap.remove(result.getTaskId());
+					tileTimes[tileIndex] = result.getTaskRunTime();
+					compose(result.getTaskReturnValue(), tiles.get(tileIndex), framebufferMap.get(frame));
+					numRemainingTiles[frame]--;
+				}
+				while(numFramesWritten < numFramesPut && numRemainingTiles[numFramesWritten] == 0){
+					if(numFramesPut < numFrames){
+						putFrame(space);
+					}
+					writeFrame(numFramesWritten);
+					numFramesWritten++;
+				}
+			}
+			catch(RemoteException e){
+				e.printStackTrace();
+				return numFramesWritten;
+			}
+			catch(InterruptedException ie){
+				ie.printStackTrace();
+				return numFramesWritten;
+			}
+		}
+		System.out.println("Computed " + numFrames + " frames using " + numTasks + " tasks in " + (System.currentTimeMillis() - startTime) + " ms");
+		try{
+			space.finishJob(jobId);
+		}
+		catch(RemoteException re){
+			re.printStackTrace();
+		}
+		return numFramesWritten;
+	}
+
+	/**
+	 * Puts the tasks of the next frame into the Space using a single remote call, in decreasing order of the time that their tiles took in the latest frame.
+	 *
+	 * @param space the space
+	 * @throws RemoteException the remote exception
+	 */
+	private void putFrame(Space space) throws RemoteException {
+		int frame = numFramesPut++;
+		double edgeLength = initialEdgeLength * Math.pow(zoomFactor, frame);
+		double[] leftCornerCoordinates = {centerCoordinates[0] - edgeLength / 2, centerCoordinates[1] - edgeLength / 2};
+		int[] framebuffer = freeFramebuffers.poll();
+		framebufferMap.put(frame, framebuffer != null ? framebuffer : new int[numSquares * numSquares]);
+		numRemainingTiles[frame] = tiles.size();
+		Integer[] order = new Integer[tiles.size()];
+		for(int i = 0; i < order.length; i++){
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer tile1, Integer tile2) {
+				return Long.compare(tileTimes[tile2], tileTimes[tile1]);
+			}
+		});
+		List<Task<?>> tasks = new ArrayList<Task<?>>(order.length);
+		for(int tileIndex : order){
+			int[] tile = tiles.get(tileIndex);
+			MandelbrotSetTask task = new MandelbrotSetTask(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, tile[0], tile[2], tile[1], tile[3], numTasks);
+			task.setJobId(jobId);
+			taskFrameMap.put(numTasks, frame);
+			taskTileMap.put(numTasks, tileIndex);
+			tasks.add(task);
+			numTasks++;
+		}
+		space.putAll(tasks);
+	}
+
+	/**
+	 * Gives the complete frame to the writer, and keeps its framebuffer for the next frames.
+	 *
+	 * @param frame the index of the frame
+	 */
+	private void writeFrame(int frame) {
+		int[] framebuffer = framebufferMap.remove(frame);
+		if(writer != null){
+			try{
+				writer.writeFrame(frame, framebuffer);
+			}
+			catch(IOException e){
+				System.out.println("Cannot write frame " + frame + ": " + e.getMessage());
+			}
+		}
+		System.out.println("Frame " + frame + " after " + (System.currentTimeMillis() - startTime) + " ms");
+		freeFramebuffers.add(framebuffer);
+	}
+
+	/**
+	 * Composes the counts of a tile into the framebuffer of its frame.
+	 *
+	 * @param counts the counts of the tile, row after row, with the columns of each row in decreasing order
+	 * @param tile the tile, as the first row, the first column, the number of rows and the number of columns
+	 * @param framebuffer the framebuffer of the frame
+	 */
+	private void compose(int[] counts, int[] tile, int[] framebuffer) {
+		int numColumns = tile[3];
+		// the columns of the picture are in decreasing order of the columns of the square, and so are the ones of each row of the tile
+		int framebufferColumn = numSquares - tile[1] - numColumns;
+		for(int i = 0; i < tile[2]; i++){
+			System.arraycopy(counts, i * numColumns, framebuffer, (tile[0] + i) * numSquares + framebufferColumn, numColumns);
+		}
+	}
+}
@@ -5,6 +5,7 @@ package system;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 import api.Result;
 import api.Task;
@@ -27,6 +28,75 @@ public interface Computer extends Remote{
 	 */
 	public <T> Result<?> execute(Task<T> t) throws RemoteException;
 	
+	/**
+	 * A remote method through which the ComputeSpace hands a task over to the Computer without waiting for it to be executed.
+	 * The task is placed in the Computer's local buffer, so that the next task is received while the current one is still being executed.
+	 *
+	 * @param t the task
+	 * @throws RemoteException the remote exception
+	 */
+	public void put(Task<?> t) throws RemoteException;
+	
+	/**
+	 * A remote method to take the Result of a task that was handed over using put. This method blocks until a Result is available.
+	 *
+	 * @return result
+	 * @throws RemoteException the remote exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	public Result<?> take() throws RemoteException, InterruptedException;
+	
+	/**
+	 * A remote method through which the ComputeSpace hands a batch of tasks over to the Computer using a single remote call, without waiting for them to be executed.
+	 *
+	 * @param tasks the tasks
+	 * @throws RemoteException the remote exception
+	 */
+	public void putAll(List<Task<?>> tasks) throws RemoteException;
+	
+	/**
+	 * A remote method to take the Results of the tasks that were handed over using put or putAll. This method blocks until at least one Result is available and returns up to max Results.
+	 *
+	 * @param max the maximum number of Results to return
+	 * @return the results
+	 * @throws RemoteException the remote exception
+	 * @throws InterruptedException the interrupted exception
+	 */
+	public List<Result<?>> takeBatch(int max) throws RemoteException, InterruptedException;
+	
+	/**
+	 * A remote method through which the ComputeSpace sends a better bound found for a branch and bound job to the Computer.
+	 *
+	 * @param jobId the job id
+	 * @param bound the bound
+	 * @throws RemoteException the remote exception
+	 */
+	public void updateBound(int jobId, double bound) throws RemoteException;
+	
+	/**
+	 * A remote method through which the ComputeSpace tells the Computer that a job has finished, so that it can release the state held for the job, such as its bound,
+	 * and drop the Tasks of the job that it has not executed yet.
+	 *
+	 * @param jobId the job id
+	 * @throws RemoteException the remote exception
+	 */
+	public void finishJob(int jobId) throws RemoteException;
+	
+	/**
+	 * A remote method through which the ComputeSpace tells the Computer that a shared input has been released, so that it can be removed from the cache.
+	 *
+	 * @param key the key of the input
+	 * @throws RemoteException the remote exception
+	 */
+	public void releaseSharedInput(String key) throws RemoteException;
+	
+	/**
+	 * A remote method that the ComputeSpace calls periodically to check that the Computer is still reachable.
+	 *
+	 * @throws RemoteException the remote exception
+	 */
+	public void heartbeat() throws RemoteException;
+	
 	/**
 	 * Stop.
 	 *
@@ -3,6 +3,7 @@
  */
 package system;
 
+import java.io.Serializable;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 
@@ -14,8 +15,42 @@ public interface Computer2Space extends Remote{
 	/**
 	 * Registers the Computer and creates a ComputerProxy which runs as a separate thread to process the submitted Tasks and to return the Results back to the ComputeSpace
 	 *
+	 * The Space keeps enough tasks outstanding at the Computer to keep all of its processors busy.
+	 *
 	 * @param computer the Computer to be registered
+	 * @param numProcessors the number of tasks that the Computer executes in parallel
+	 * @return the id assigned to the Computer
+	 * @throws RemoteException the remote exception
+	 */
+	int register(Computer computer, int numProcessors) throws RemoteException;
+	
+	/**
+	 * Gets an input that has been put into the ComputeSpace to be shared by many Tasks. The ComputeSpace notes that the Computer holds a copy of the input,
+	 * so that the Tasks that refer to it can be preferably assigned to that Computer.
+	 *
+	 * @param computerId the id of the Computer that fetches the input
+	 * @param key the hash of the content of the input
+	 * @return the input; null if no job that has put the input is running anymore
+	 * @throws RemoteException the remote exception
+	 */
+	Serializable getSharedInput(int computerId, String key) throws RemoteException;
+	
+	/**
+	 * Offers a bound found by a Task of a branch and bound job, along with the solution that achieves it. If it is better than the job's current bound, the ComputeSpace keeps the solution and sends the bound to all the Computers.
+	 *
+	 * @param jobId the job id
+	 * @param bound the bound
+	 * @param solution the solution that achieves the bound
+	 * @throws RemoteException the remote exception
+	 */
+	void updateBound(int jobId, double bound, Serializable solution) throws RemoteException;
+	
+	/**
+	 * Gets the best bound offered so far for a branch and bound job. A Computer gets it when it starts executing the first Task of the job; later bounds are sent to it by the ComputeSpace.
+	 *
+	 * @param jobId the job id
+	 * @return the bound; Double.MAX_VALUE if no bound has been offered
 	 * @throws RemoteException the remote exception
 	 */
-	void register(Computer computer) throws RemoteException;
+	double getBound(int jobId) throws RemoteException;
 }
@@ -3,11 +3,22 @@
  */
 package system;
 
+import java.io.Serializable;
 import java.rmi.Naming;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedBlockingQueue;
 
+import api.BranchAndBoundTask;
 import api.Result;
+import api.SharedBound;
+import api.SharedInput;
 import api.Space;
 import api.Task;
 
@@ -21,13 +32,77 @@ public final class ComputerImpl extends UnicastRemoteObject implements Computer{
 	
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
+	
+	/** The default number of shared inputs that the Computer keeps in its cache. It can be overridden using the system property computer.sharedInputCacheSize. */
+	public static final int DEFAULT_SHARED_INPUT_CACHE_SIZE = 16;
+	
+	/** The number of most recently finished jobs whose ids are kept. The Space assigns the job ids in increasing order, so the ids of the jobs that finished long before have no Tasks left in the local buffer. */
+	private static final int MAX_FINISHED_JOB_IDS = 1024;
+	
+	/** The local buffer of Tasks that have been handed over by the Space and are waiting to be executed. */
+	private BlockingQueue<Task<?>> taskQueue;
+	
+	/** The Results of the executed Tasks, waiting to be taken by the Space. */
+	private BlockingQueue<Result<?>> resultQueue;
+	
+	/** The number of worker threads that execute the tasks; one for every available processor. */
+	private int numWorkers;
+	
+	/** The cache of the inputs shared by the Tasks, which are fetched from the Space. */
+	private SharedInputCache sharedInputCache;
+	
+	/** The Space from which the bounds of the branch and bound jobs are fetched and to which the better bounds found by the Tasks are sent. */
+	private Computer2Space space;
+	
+	/** A mapping between the jobId and the bound of that branch and bound job known to this Computer. */
+	private Map<Integer, JobBound> boundMap;
+	
+	/** The ids of the most recently finished jobs, whose Tasks are dropped instead of being executed. */
+	private ConcurrentSkipListSet<Integer> finishedJobIds;
+	
+	/** The ids of the jobs whose bounds have been improved by the Tasks of this Computer and have to be sent to the Space. */
+	private BlockingQueue<Integer> improvedJobIds;
 
 	/**
 	 * Instantiates a new implementation object for the Computer Interface.
 	 *
+	 * @param space the Space from which the shared inputs of the Tasks are fetched
 	 * @throws RemoteException the remote exception
 	 */
-	public ComputerImpl() throws RemoteException{		
+	public ComputerImpl(Computer2Space space) throws RemoteException{
+		sharedInputCache = new SharedInputCache(space, Math.max(1, Integer.getInteger("computer.sharedInputCacheSize", DEFAULT_SHARED_INPUT_CACHE_SIZE)));
+		this.space = space;
+		boundMap = new ConcurrentHashMap<Integer, JobBound>();
+		finishedJobIds = new ConcurrentSkipListSet<Integer>();
+		improvedJobIds = new LinkedBlockingQueue<Integer>();
+		BoundSender boundSender = new BoundSender();
+		boundSender.start();
+		taskQueue = new LinkedBlockingQueue<Task<?>>();
+		resultQueue = new LinkedBlockingQueue<Result<?>>();
+		numWorkers = Runtime.getRuntime().availableProcessors();
+	}
+	
+	/**
+	 * Starts the workers once the Computer has registered with the Space. The id assigned by the Space is set first, so that the workers that fetch shared inputs are known to the Space by it;
+	 * the tasks that the Space hands over before then wait in the local buffer.
+	 *
+	 * @param computerId the id assigned to the Computer by the Space
+	 */
+	public void start(int computerId) {
+		sharedInputCache.setComputerId(computerId);
+		for(int i = 0; i < numWorkers; i++){
+			Worker worker = new Worker();
+			worker.start();
+		}
+	}
+	
+	/**
+	 * Gets the number of tasks that this Computer executes in parallel.
+	 *
+	 * @return the number of worker threads
+	 */
+	public int getNumWorkers() {
+		return numWorkers;
 	}
 
 	/**
@@ -41,22 +116,141 @@ public final class ComputerImpl extends UnicastRemoteObject implements Computer{
 	 */	
 	@Override
 	public <T> Result<?> execute(Task<T> t) throws RemoteException {
+		if(!resolveSharedInputs(t)){
+			throw new IllegalArgumentException("The shared inputs of task " + t.getTaskId() + " are no longer available");
+		}
+		return runTask(t);
+	}
+	
+	/* (non-Javadoc)
+	 * @see system.Computer#put(api.Task)
+	 */
+	@Override
+	public void put(Task<?> t) throws RemoteException {
+		taskQueue.add(t);
+	}
+	
+	/* (non-Javadoc)
+	 * @see system.Computer#take()
+	 */
+	@Override
+	public Result<?> take() throws RemoteException, InterruptedException {
+		return resultQueue.take();
+	}
+	
+	/* (non-Javadoc)
+	 * @see system.Computer#putAll(java.util.List)
+	 */
+	@Override
+	public void putAll(List<Task<?>> tasks) throws RemoteException {
+		taskQueue.addAll(tasks);
+	}
+	
+	/* (non-Javadoc)
+	 * @see system.Computer#takeBatch(int)
+	 */
+	@Override
+	public List<Result<?>> takeBatch(int max) throws RemoteException, InterruptedException {
+		List<Result<?>> results = new ArrayList<Result<?>>();
+		results.add(resultQueue.take());
+		resultQueue.drainTo(results, max - 1);
+		return results;
+	}
+	
+	/**
+	 * Resolves the inputs that the task shares with the other tasks of its job, fetching from the Space the ones that are not in the cache.
+	 *
+	 * @param t the Task object
+	 * @return true, if all the inputs have been resolved; false if the Space no longer holds one of them, because its job has finished
+	 * @throws RemoteException the remote exception
+	 */
+	private boolean resolveSharedInputs(Task<?> t) throws RemoteException {
+		for(SharedInput<?> input : t.getSharedInputs()){
+			if(!sharedInputCache.resolve(input)){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Runs the task using the task's implementation of the execute method and records the time taken to execute it.
+	 *
+	 * @param t the Task object
+	 * @return Result the return value of the Task object's execute method
+	 */
+	private Result<?> runTask(Task<?> t) {
+		if(t instanceof BranchAndBoundTask){
+			((BranchAndBoundTask<?>) t).setSharedBound(getJobBound(t.getJobId()));
+		}
 		long startTime = System.currentTimeMillis();
 		Result<?> result = (Result<?>) t.execute();
 		long endTime = System.currentTimeMillis();
 		long elapsedTime = endTime - startTime;
 		result.setTaskRunTime(elapsedTime);
+		result.setJobId(t.getJobId());
 		//System.out.println("Computer: Elapsed time for task " + (result.getTaskId() + 1) + ": " + elapsedTime + " ms");
 		return result;		
 	}
 	
 
+	/* (non-Javadoc)
+	 * @see system.Computer#updateBound(int, double)
+	 */
+	@Override
+	public void updateBound(int jobId, double bound) throws RemoteException {
+		getJobBound(jobId).receive(bound);
+	}
+	
+	/* (non-Javadoc)
+	 * @see system.Computer#finishJob(int)
+	 */
+	@Override
+	public void finishJob(int jobId) throws RemoteException {
+		finishedJobIds.add(jobId);
+		// the ids of the oldest jobs are forgotten, so that a long-lived Computer does not keep the id of every job
+		while(finishedJobIds.size() > MAX_FINISHED_JOB_IDS){
+			finishedJobIds.pollFirst();
+		}
+		boundMap.remove(jobId);
+	}
+	
+	/* (non-Javadoc)
+	 * @see system.Computer#releaseSharedInput(java.lang.String)
+	 */
+	@Override
+	public void releaseSharedInput(String key) throws RemoteException {
+		sharedInputCache.remove(key);
+	}
+	
+	/**
+	 * Gets the bound of the job known to this Computer, creating it if the job has not been seen yet.
+	 *
+	 * @param jobId the job id
+	 * @return the job bound
+	 */
+	private JobBound getJobBound(int jobId) {
+		JobBound jobBound = boundMap.get(jobId);
+		if(jobBound == null){
+			boundMap.putIfAbsent(jobId, new JobBound(jobId));
+			jobBound = boundMap.get(jobId);
+		}
+		return jobBound;
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Computer#heartbeat()
+	 */
+	@Override
+	public void heartbeat() throws RemoteException {
+	}
+
 	/* (non-Javadoc)
 	 * @see system.Computer#stop()
 	 */
 	@Override
 	public void stop() throws RemoteException {
-		System.out.println("Received command to stop.");
+		System.out.println("Received command to stop. Cache " + sharedInputCache.getStatistics());
 		System.exit(0);		
 	}
 
@@ -72,12 +266,220 @@ public final class ComputerImpl extends UnicastRemoteObject implements Computer{
 		String spaceURL = "//" + spaceDomainName + "/" + Space.SERVICE_NAME;		
 		Computer2Space space = (Computer2Space) Naming.lookup(spaceURL);
 		
-		Computer computer = new ComputerImpl(); // can throw RemoteException
-		space.register(computer);
-		System.out.println("Computer ready.");
+		ComputerImpl computer = new ComputerImpl(space); // can throw RemoteException
+		computer.start(space.register(computer, computer.getNumWorkers()));
+		System.out.println("Computer ready with " + computer.getNumWorkers() + " worker(s).");
 	}
-
 	
+	/**
+	 * One Worker runs on each available processor. This thread's run method loops forever, removing tasks from the local buffer, executing them and putting the Results in the result queue to be taken by the Space.
+	 */
+	private class Worker extends Thread {
+		
+		/**
+		 * Gets the Result without a return value of a task that is not executed.
+		 *
+		 * @param t the Task object
+		 * @return the empty Result
+		 */
+		private Result<?> getEmptyResult(Task<?> t) {
+			Result<Object> result = new Result<Object>();
+			result.setTaskId(t.getTaskId());
+			result.setJobId(t.getJobId());
+			return result;
+		}
+		
+		/**
+		 * Gets a failed Result of the task, which hands the task back to the Space, so that the Space releases the task's slot and schedules it again.
+		 *
+		 * @param t the task
+		 * @return the result
+		 */
+		private Result<?> getFailedResult(Task<?> t) {
+			Result<Object> result = new Result<Object>();
+			result.setTaskId(t.getTaskId());
+			result.setJobId(t.getJobId());
+			result.setFailed(true);
+			return result;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.Thread#run()
+		 */
+		public void run() {
+			while (true) {
+				Task<?> t;
+				try {
+					t = taskQueue.take();
+				} catch (InterruptedException e) {
+					System.out.println("Interrupted Exception");
+					continue;
+				}
+				try {
+					if(finishedJobIds.contains(t.getJobId())){
+						// the job has finished: an empty Result lets the Space release the task's slot, and is discarded by it
+						System.out.println("Dropping task " + (t.getTaskId() + 1) + " of the finished job " + t.getJobId());
+						resultQueue.add(getEmptyResult(t));
+						continue;
+					}
+					if(!resolveSharedInputs(t)){
+						// the Space has released an input of the task, usually because the job is finishing: the empty Result releases the task's slot
+						System.out.println("Dropping task " + (t.getTaskId() + 1) + " of job " + t.getJobId() + ", whose shared inputs are no longer held by the Space");
+						resultQueue.add(getEmptyResult(t));
+						continue;
+					}
+				} catch (RemoteException e) {
+					System.out.println("Remote Exception while fetching the shared inputs of task " + (t.getTaskId() + 1) + " of job " + t.getJobId() + " from the Space, handing the task back");
+					resultQueue.add(getFailedResult(t));
+					continue;
+				}
+				try {
+					resultQueue.add(runTask(t));
+				} catch (RuntimeException e) {
+					// the Worker keeps running, so that a faulty task does not take a processor of this Computer away
+					System.out.println("Runtime Exception while executing task " + (t.getTaskId() + 1) + " of job " + t.getJobId() + ", handing the task back");
+					e.printStackTrace();
+					resultQueue.add(getFailedResult(t));
+				}
+			}
+		}
+	}
 	
+	/**
+	 * The bound of a branch and bound job known to this Computer. It is fetched from the Space when a Task first asks for it,
+	 * and it is lowered by the bounds found by the Tasks of this Computer and by the bounds sent by the Space.
+	 */
+	private class JobBound implements SharedBound {
+		
+		/** The job id. */
+		private int jobId;
+		
+		/** The best bound known to this Computer. */
+		private volatile double bound;
+		
+		/** The solution that achieves the bound found by the Tasks of this Computer, which has not been sent to the Space yet. */
+		private Serializable solution;
+		
+		/** Whether the bound has been fetched from the Space, or sent by it. */
+		private volatile boolean fetched;
+		
+		/**
+		 * Instantiates a new job bound.
+		 *
+		 * @param jobId the job id
+		 */
+		public JobBound(int jobId) {
+			this.jobId = jobId;
+			this.bound = Double.MAX_VALUE;
+		}
+		
+		/* (non-Javadoc)
+		 * @see api.SharedBound#get()
+		 */
+		@Override
+		public double get() {
+			if(!fetched){
+				fetch();
+			}
+			return bound;
+		}
+		
+		/* (non-Javadoc)
+		 * @see api.SharedBound#update(double, java.io.Serializable)
+		 */
+		@Override
+		public void update(double bound, Serializable solution) {
+			synchronized (this) {
+				if(!receive(bound)){
+					return;
+				}
+				this.solution = solution;
+			}
+			improvedJobIds.add(jobId);
+		}
+		
+		/**
+		 * Sends the bound found by the Tasks of this Computer to the Space, along with its solution.
+		 *
+		 * @throws RemoteException the remote exception
+		 */
+		private void send() throws RemoteException {
+			double bound;
+			Serializable solution;
+			synchronized (this) {
+				if(this.solution == null){
+					// already sent along with an earlier improvement
+					return;
+				}
+				bound = this.bound;
+				solution = this.solution;
+				this.solution = null;
+			}
+			space.updateBound(jobId, bound, solution);
+		}
+		
+		/**
+		 * Lowers the bound, if the given bound is better.
+		 *
+		 * @param bound the bound
+		 * @return true, if the bound has been lowered
+		 */
+		private synchronized boolean receive(double bound) {
+			if(bound >= this.bound){
+				return false;
+			}
+			this.bound = bound;
+			// a better bound found elsewhere makes the solution found here obsolete
+			solution = null;
+			return true;
+		}
+		
+		/**
+		 * Fetches the bound from the Space. If the Space cannot be reached, the Tasks go on with the bound known to this Computer.
+		 */
+		private synchronized void fetch() {
+			if(fetched){
+				return;
+			}
+			fetched = true;
+			try{
+				receive(space.getBound(jobId));
+			}
+			catch(RemoteException e){
+				System.out.println("Remote Exception while fetching the bound of job " + jobId + " from the Space");
+			}
+		}
+	}
 	
+	/**
+	 * This thread's run method loops forever, sending the bounds improved by the Tasks of this Computer to the Space, so that the Tasks do not wait for the remote calls.
+	 */
+	private class BoundSender extends Thread {
+		
+		/**
+		 * Instantiates a new bound sender.
+		 */
+		public BoundSender() {
+			setDaemon(true);
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.Thread#run()
+		 */
+		public void run() {
+			while (true) {
+				try {
+					int jobId = improvedJobIds.take();
+					JobBound jobBound = boundMap.get(jobId);
+					if(jobBound != null){
+						jobBound.send();
+					}
+				} catch (RemoteException e) {
+					System.out.println("Remote Exception while sending a bound to the Space");
+				} catch (InterruptedException e) {
+					System.out.println("Interrupted Exception");
+				}
+			}
+		}
+	}
 }
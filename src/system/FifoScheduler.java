@@ -0,0 +1,112 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import api.Task;
+
+/**
+ * A Scheduler that keeps all the Tasks in a single blocking queue shared by all the Computers, which take the Tasks in the order in which they were scheduled.
+ */
+public class FifoScheduler implements Scheduler {
+	
+	/** A blocking queue that stores the Tasks submitted by the Clients. */
+	private BlockingQueue<Task<?>> taskQueue;
+	
+	/**
+	 * Instantiates a new FIFO scheduler.
+	 */
+	public FifoScheduler() {
+		taskQueue = new LinkedBlockingQueue<Task<?>>();
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#addComputer(int)
+	 */
+	@Override
+	public void addComputer(int computerId) {
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#removeComputer(int)
+	 */
+	@Override
+	public void removeComputer(int computerId) {
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#addSharedInput(int, java.lang.String)
+	 */
+	@Override
+	public void addSharedInput(int computerId, String key) {
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#removeSharedInput(java.lang.String)
+	 */
+	@Override
+	public void removeSharedInput(String key) {
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#removeJob(int)
+	 */
+	@Override
+	public int removeJob(int jobId) {
+		int numRemoved = 0;
+		Iterator<Task<?>> iterator = taskQueue.iterator();
+		while(iterator.hasNext()){
+			if(iterator.next().getJobId() == jobId){
+				iterator.remove();
+				numRemoved++;
+			}
+		}
+		return numRemoved;
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#schedule(api.Task)
+	 */
+	@Override
+	public void schedule(Task<?> task) {
+		taskQueue.add(task);
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#scheduleAll(java.util.List)
+	 */
+	@Override
+	public void scheduleAll(List<Task<?>> tasks) {
+		taskQueue.addAll(tasks);
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#poll(int, long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public Task<?> poll(int computerId, long timeout, TimeUnit unit) throws InterruptedException {
+		return taskQueue.poll(timeout, unit);
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#drainTo(int, java.util.List, int)
+	 */
+	@Override
+	public int drainTo(int computerId, List<Task<?>> tasks, int max) {
+		return taskQueue.drainTo(tasks, max);
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#getStatistics()
+	 */
+	@Override
+	public String getStatistics() {
+		return "queue depth: " + taskQueue.size();
+	}
+}
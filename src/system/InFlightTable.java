@@ -0,0 +1,367 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import api.Result;
+import api.Space;
+import api.Task;
+
+/**
+ * Keeps track of the Tasks that are in flight at the Computers and of the run times of the completed Tasks of every task type.
+ * Every copy of a Task that is handed over to a Computer holds a lease. A Task whose leases have all expired is given back to be scheduled again,
+ * so that a hung Computer holds up a Task for one lease period at most. A Task is given back once, until the copy that has been given back is handed over again.
+ * Once the Scheduler has run out of Tasks, an idle Computer runs a backup copy of the in-flight Task that has been running the longest
+ * compared to the median run time of its type, so that a single slow Computer does not hold up the whole job.
+ * The first Result of a Task is kept and the Results of the other copies are dropped, as are the Results of the jobs that are unknown or have finished.
+ * The record of a Task is kept after its first Result until no copy of it is running or waiting to be handed over, so that the Results of the other copies are recognized.
+ * The Tasks of the default job may reuse their ids, so a Task of the default job that is handed over once its record is complete and no copy of it is waiting is a new Task, and a Result of the default job without a record is dropped.
+ */
+class InFlightTable {
+	
+	/** The number of most recent run times of each task type from which the median is computed. */
+	private static final int NUM_SAMPLES = 101;
+	
+	/** The number of run times of a task type that are needed before its Tasks are considered for backup copies. */
+	private static final int MIN_SAMPLES = 5;
+	
+	/** The least time in milliseconds that a Task needs to be in flight before it is considered a straggler. */
+	private static final long MIN_STRAGGLER_TIME = 50;
+	
+	/** The lease of a Task lasts for at least this factor times the median run time of its type, so that long running Tasks are not taken away from healthy Computers. */
+	private static final int LEASE_FACTOR = 10;
+	
+	/** A Task is considered a straggler when it has been in flight for longer than this factor times the median run time of its type. */
+	private double stragglerFactor;
+	
+	/** The least time in milliseconds for which a Computer holds the lease of a Task. */
+	private long leasePeriod;
+	
+	/** A mapping between the key of a Task and the Task's in-flight record. */
+	private Map<Long, InFlightTask> inFlightMap;
+	
+	/** A mapping between the jobId of a running job other than the default job and the ids of the job's Tasks whose first Result has been received. */
+	private Map<Integer, Set<Integer>> completedMap;
+	
+	/** A mapping between the name of a task type and the most recent run times of its Tasks. */
+	private Map<String, long[]> runTimeMap;
+	
+	/** A mapping between the name of a task type and the number of run times recorded for its Tasks. */
+	private Map<String, Integer> numRunTimesMap;
+	
+	/**
+	 * Instantiates a new in-flight table.
+	 *
+	 * @param stragglerFactor the factor of the median run time after which a Task is considered a straggler
+	 * @param leasePeriod the least time in milliseconds for which a Computer holds the lease of a Task
+	 */
+	InFlightTable(double stragglerFactor, long leasePeriod) {
+		this.stragglerFactor = stragglerFactor;
+		this.leasePeriod = leasePeriod;
+		inFlightMap = new HashMap<Long, InFlightTask>();
+		completedMap = new HashMap<Integer, Set<Integer>>();
+		runTimeMap = new HashMap<String, long[]>();
+		numRunTimesMap = new HashMap<String, Integer>();
+	}
+	
+	/**
+	 * Gets the key that identifies a Task across all the jobs.
+	 *
+	 * @param jobId the job id
+	 * @param taskId the task id
+	 * @return the key
+	 */
+	static long key(int jobId, int taskId) {
+		return ((long) jobId << 32) | (taskId & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Starts keeping track of the Results of a job that has been created.
+	 *
+	 * @param jobId the job id
+	 */
+	synchronized void startJob(int jobId) {
+		completedMap.put(jobId, new HashSet<Integer>());
+	}
+	
+	/**
+	 * Records that the Tasks have been handed over to the Computer, which holds a lease for each of them.
+	 *
+	 * @param tasks the tasks
+	 * @param computerId the computer id
+	 */
+	synchronized void dispatched(List<Task<?>> tasks, int computerId) {
+		long now = System.currentTimeMillis();
+		for(Task<?> task : tasks){
+			long key = key(task.getJobId(), task.getTaskId());
+			InFlightTask inFlightTask = inFlightMap.get(key);
+			if(inFlightTask == null || (task.getJobId() == Space.DEFAULT_JOB_ID && inFlightTask.completed && inFlightTask.numQueued == 0 && !inFlightTask.leaseMap.containsKey(computerId))){
+				inFlightTask = new InFlightTask(task);
+				inFlightMap.put(key, inFlightTask);
+			}
+			else if(inFlightTask.numQueued > 0 && !inFlightTask.leaseMap.containsKey(computerId)){
+				// the copy that was given back to be scheduled again, unlike a backup copy, whose lease has been taken when it was picked
+				inFlightTask.numQueued--;
+			}
+			if(inFlightTask.leaseMap.isEmpty()){
+				inFlightTask.dispatchTime = now;
+			}
+			inFlightTask.leaseMap.put(computerId, now + getLeaseTime(task.getClass().getName()));
+		}
+	}
+	
+	/**
+	 * Removes the expired leases. The Tasks that have not completed and that no Computer holds a lease for anymore are returned, to be scheduled again.
+	 *
+	 * @return the tasks whose leases have all expired
+	 */
+	synchronized List<Task<?>> expireLeases() {
+		long now = System.currentTimeMillis();
+		List<Task<?>> tasks = new ArrayList<Task<?>>();
+		Iterator<InFlightTask> records = inFlightMap.values().iterator();
+		while(records.hasNext()){
+			InFlightTask inFlightTask = records.next();
+			if(inFlightTask.leaseMap.isEmpty()){
+				continue;
+			}
+			Iterator<Entry<Integer, Long>> iterator = inFlightTask.leaseMap.entrySet().iterator();
+			while(iterator.hasNext()){
+				Entry<Integer, Long> lease = iterator.next();
+				if(lease.getValue() < now){
+					System.out.println("Lease of task " + inFlightTask.task.getTaskId() + " of job " + inFlightTask.task.getJobId() 
+							+ " at Computer " + lease.getKey() + " expired");
+					iterator.remove();
+				}
+			}
+			if(inFlightTask.isIdle()){
+				records.remove();
+			}
+			else if(requeue(inFlightTask)){
+				tasks.add(inFlightTask.task);
+			}
+		}
+		return tasks;
+	}
+	
+	/**
+	 * Records that the Computer has failed, or has handed the Tasks back, before returning their Results, which releases its leases.
+	 * The Tasks whose last lease has been released by this call, and that have neither completed nor been given back already, are returned, to be scheduled again.
+	 * The Tasks whose lease at the Computer has already expired have been given back when it expired, and the Tasks of which a backup copy is still running are left to it.
+	 *
+	 * @param tasks the tasks
+	 * @param computerId the computer id
+	 * @return the tasks to schedule again
+	 */
+	synchronized List<Task<?>> abandoned(List<Task<?>> tasks, int computerId) {
+		List<Task<?>> abandonedTasks = new ArrayList<Task<?>>();
+		for(Task<?> task : tasks){
+			long key = key(task.getJobId(), task.getTaskId());
+			InFlightTask inFlightTask = inFlightMap.get(key);
+			if(inFlightTask == null || inFlightTask.leaseMap.remove(computerId) == null){
+				continue;
+			}
+			if(inFlightTask.isIdle()){
+				inFlightMap.remove(key);
+			}
+			else if(requeue(inFlightTask)){
+				abandonedTasks.add(inFlightTask.task);
+			}
+		}
+		return abandonedTasks;
+	}
+	
+	/**
+	 * Gives the Task back to be scheduled again, if it has not completed, no Computer holds a lease for it and no copy of it is waiting to be handed over.
+	 *
+	 * @param inFlightTask the in-flight record of the task
+	 * @return true, if the Task is to be scheduled again
+	 */
+	private boolean requeue(InFlightTask inFlightTask) {
+		if(inFlightTask.completed || !inFlightTask.leaseMap.isEmpty() || inFlightTask.numQueued > 0){
+			return false;
+		}
+		inFlightTask.numQueued++;
+		return true;
+	}
+	
+	/**
+	 * Records the Result of a Task, which releases the lease of the Computer that has returned it.
+	 *
+	 * @param result the result
+	 * @param computerId the id of the Computer that has returned the Result
+	 * @return true, if this is the first Result of the Task; false, if it is the Result of a backup copy that finished later, or if the job is unknown or has finished
+	 */
+	synchronized boolean completed(Result<?> result, int computerId) {
+		long key = key(result.getJobId(), result.getTaskId());
+		InFlightTask inFlightTask = inFlightMap.get(key);
+		boolean first;
+		if(result.getJobId() == Space.DEFAULT_JOB_ID){
+			first = inFlightTask != null && !inFlightTask.completed;
+		}
+		else{
+			Set<Integer> completedTaskIds = completedMap.get(result.getJobId());
+			first = completedTaskIds != null && completedTaskIds.add(result.getTaskId());
+		}
+		if(inFlightTask != null){
+			inFlightTask.leaseMap.remove(computerId);
+			if(first){
+				inFlightTask.completed = true;
+				addRunTime(inFlightTask.task.getClass().getName(), result.getTaskRunTime());
+			}
+			if(inFlightTask.completed && inFlightTask.isIdle()){
+				inFlightMap.remove(key);
+			}
+		}
+		return first;
+	}
+	
+	/**
+	 * Forgets the Tasks of a job that has finished.
+	 *
+	 * @param jobId the job id
+	 */
+	synchronized void finishJob(int jobId) {
+		completedMap.remove(jobId);
+		Iterator<InFlightTask> iterator = inFlightMap.values().iterator();
+		while(iterator.hasNext()){
+			if(iterator.next().task.getJobId() == jobId){
+				iterator.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Picks the straggler of which the Computer is to run a backup copy. 
+	 * It is the Task that has been in flight the longest compared to the median run time of its type, among the Tasks that have no backup copy yet and are not running on the Computer.
+	 *
+	 * @param computerId the id of the idle Computer
+	 * @return the task; null if there is no straggler
+	 */
+	synchronized Task<?> pickStraggler(int computerId) {
+		long now = System.currentTimeMillis();
+		Map<String, Long> medianMap = new HashMap<String, Long>();
+		InFlightTask straggler = null;
+		double maxRatio = 0;
+		for(InFlightTask inFlightTask : inFlightMap.values()){
+			if(inFlightTask.completed || inFlightTask.leaseMap.size() != 1 || inFlightTask.leaseMap.containsKey(computerId)){
+				continue;
+			}
+			String type = inFlightTask.task.getClass().getName();
+			Long median = medianMap.get(type);
+			if(median == null){
+				median = getMedianRunTime(type);
+				medianMap.put(type, median);
+			}
+			long elapsedTime = now - inFlightTask.dispatchTime;
+			if(median < 0 || elapsedTime < MIN_STRAGGLER_TIME || elapsedTime <= stragglerFactor * median){
+				continue;
+			}
+			double ratio = (double) elapsedTime / Math.max(1, median);
+			if(ratio > maxRatio){
+				maxRatio = ratio;
+				straggler = inFlightTask;
+			}
+		}
+		if(straggler == null){
+			return null;
+		}
+		straggler.leaseMap.put(computerId, now + getLeaseTime(straggler.task.getClass().getName()));
+		System.out.println("Running a backup copy of task " + straggler.task.getTaskId() + " of job " + straggler.task.getJobId() 
+				+ " on Computer " + computerId + " after " + (now - straggler.dispatchTime) + " ms");
+		return straggler.task;
+	}
+	
+	/**
+	 * Gets the time for which a Computer holds the lease of a Task of the given type.
+	 *
+	 * @param type the task type
+	 * @return the lease time in milliseconds
+	 */
+	private long getLeaseTime(String type) {
+		return Math.max(leasePeriod, LEASE_FACTOR * getMedianRunTime(type));
+	}
+	
+	/**
+	 * Records the run time of a Task of the given type.
+	 *
+	 * @param type the task type
+	 * @param runTime the run time
+	 */
+	private void addRunTime(String type, long runTime) {
+		long[] runTimes = runTimeMap.get(type);
+		if(runTimes == null){
+			runTimes = new long[NUM_SAMPLES];
+			runTimeMap.put(type, runTimes);
+			numRunTimesMap.put(type, 0);
+		}
+		int numRunTimes = numRunTimesMap.get(type);
+		runTimes[numRunTimes % NUM_SAMPLES] = runTime;
+		numRunTimesMap.put(type, numRunTimes + 1);
+	}
+	
+	/**
+	 * Gets the median of the most recent run times of the given task type.
+	 *
+	 * @param type the task type
+	 * @return the median run time; -1 if too few run times have been recorded
+	 */
+	private long getMedianRunTime(String type) {
+		Integer numRunTimes = numRunTimesMap.get(type);
+		if(numRunTimes == null || numRunTimes < MIN_SAMPLES){
+			return -1;
+		}
+		long[] samples = Arrays.copyOf(runTimeMap.get(type), Math.min(numRunTimes, NUM_SAMPLES));
+		Arrays.sort(samples);
+		return samples[samples.length / 2];
+	}
+	
+	/**
+	 * The in-flight record of a Task.
+	 */
+	private static class InFlightTask {
+		
+		/** The task. */
+		private Task<?> task;
+		
+		/** The time at which the Task was handed over to a Computer. */
+		private long dispatchTime;
+		
+		/** A mapping between the ids of the Computers that are running a copy of the Task and the expiry times of their leases. */
+		private Map<Integer, Long> leaseMap;
+		
+		/** The number of copies of the Task that have been given back to be scheduled again and have not been handed over yet. */
+		private int numQueued;
+		
+		/** Whether the first Result of the Task has been received. */
+		private boolean completed;
+		
+		/**
+		 * Instantiates a new in-flight record.
+		 *
+		 * @param task the task
+		 */
+		private InFlightTask(Task<?> task) {
+			this.task = task;
+			this.leaseMap = new HashMap<Integer, Long>();
+		}
+		
+		/**
+		 * Checks if the record is no longer needed: the Task has completed, and no copy of it is running or waiting to be handed over.
+		 *
+		 * @return true, if the record can be removed
+		 */
+		private boolean isIdle() {
+			return completed && leaseMap.isEmpty() && numQueued == 0;
+		}
+	}
+}
@@ -0,0 +1,357 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The cache of the values returned by the CacheableTasks, held by the Space. The values are kept in their serialized form, so that their size is known exactly,
+ * and the least recently used value is evicted once the values held in memory take more than the memory limit.
+ * If a spill directory is given, an evicted value is written to a file of the directory instead of being dropped, and the least recently used files are deleted once they take more than the disk limit.
+ * The files are named after the hash of their key, so the values spilled by an earlier run of the Space are found again.
+ * The files are read, written and deleted without holding the lock of the cache, which only guards the index of the values, so that a slow spill directory does not hold up the other lookups and puts.
+ */
+class ResultCache {
+
+	/** The suffix of the names of the files of the spilled values. */
+	private static final String FILE_SUFFIX = ".result";
+
+	/** The maximum number of bytes of the values held in memory. */
+	private long maxMemoryBytes;
+
+	/** The maximum number of bytes of the files of the spilled values. */
+	private long maxDiskBytes;
+
+	/** The directory of the files of the spilled values; null if the evicted values are dropped. */
+	private File spillDirectory;
+
+	/** A mapping between the key of a value and its serialized form, in the order in which they were last used. */
+	private LinkedHashMap<String, byte[]> memoryMap;
+
+	/** A mapping between the name of the file of a spilled value and the size of the file, in the order in which they were last used. */
+	private LinkedHashMap<String, Long> diskMap;
+
+	/** The number of bytes of the values held in memory. */
+	private long memoryBytes;
+
+	/** The number of bytes of the files of the spilled values. */
+	private long diskBytes;
+
+	/** The number of values looked for. */
+	private long numLookups;
+
+	/** The number of values found in memory. */
+	private long numMemoryHits;
+
+	/** The number of values read from the spill directory. */
+	private long numDiskHits;
+
+	/**
+	 * Instantiates a new result cache.
+	 *
+	 * @param maxMemoryBytes the maximum number of bytes of the values held in memory
+	 * @param spillDirectory the directory of the files of the spilled values; null if the evicted values are dropped
+	 * @param maxDiskBytes the maximum number of bytes of the files of the spilled values
+	 */
+	ResultCache(long maxMemoryBytes, File spillDirectory, long maxDiskBytes) {
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.maxDiskBytes = maxDiskBytes;
+		this.memoryMap = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+		this.diskMap = new LinkedHashMap<String, Long>(16, 0.75f, true);
+		if(spillDirectory != null){
+			if(!spillDirectory.isDirectory() && !spillDirectory.mkdirs()){
+				System.out.println("Cannot create the result cache directory " + spillDirectory + ", evicted values are dropped");
+				return;
+			}
+			this.spillDirectory = spillDirectory;
+			indexSpillDirectory();
+		}
+	}
+
+	/**
+	 * Gets the value kept under the key. A value read from the spill directory is moved back into memory.
+	 *
+	 * @param key the cache key
+	 * @return the value; null if it is not in the cache
+	 */
+	Serializable get(String key) {
+		byte[] bytes;
+		String fileName;
+		synchronized (this) {
+			numLookups++;
+			bytes = memoryMap.get(key);
+			if(bytes != null){
+				numMemoryHits++;
+			}
+			if(bytes != null || spillDirectory == null){
+				fileName = null;
+			}
+			else{
+				fileName = getFileName(key);
+				Long size = diskMap.remove(fileName);
+				if(size == null){
+					return null;
+				}
+				diskBytes -= size;
+			}
+		}
+		if(bytes != null){
+			return deserialize(bytes);
+		}
+		if(fileName == null){
+			return null;
+		}
+		File file = new File(spillDirectory, fileName);
+		try{
+			bytes = Files.readAllBytes(file.toPath());
+		}
+		catch(IOException e){
+			System.out.println("Cannot read the cached value " + file + ": " + e.getMessage());
+			return null;
+		}
+		finally{
+			file.delete();
+		}
+		List<String> staleFiles = new ArrayList<String>();
+		List<Map.Entry<String, byte[]>> evicted;
+		synchronized (this) {
+			numDiskHits++;
+			evicted = putBytes(key, bytes, staleFiles);
+		}
+		writeBack(staleFiles, evicted);
+		return deserialize(bytes);
+	}
+	
+	/**
+	 * Puts the value into the cache under the key, evicting the least recently used values if the values held in memory take more than the memory limit.
+	 *
+	 * @param key the cache key
+	 * @param value the value
+	 */
+	void put(String key, Serializable value) {
+		// the value is serialized before taking the lock, so that the lookups do not wait for it
+		byte[] bytes;
+		try{
+			ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(byteStream);
+			out.writeObject(value);
+			out.close();
+			bytes = byteStream.toByteArray();
+		}
+		catch(IOException e){
+			System.out.println("Cannot serialize the value of " + key + ": " + e.getMessage());
+			return;
+		}
+		List<String> staleFiles = new ArrayList<String>();
+		List<Map.Entry<String, byte[]>> evicted;
+		synchronized (this) {
+			evicted = putBytes(key, bytes, staleFiles);
+		}
+		writeBack(staleFiles, evicted);
+	}
+	
+	/**
+	 * Puts the serialized value into memory, and evicts the least recently used values until the values held in memory fit in the memory limit.
+	 * A file spilled earlier for the key is removed from the index, since its value is replaced. It is called while holding the lock, and leaves the file I/O to writeBack.
+	 *
+	 * @param key the cache key
+	 * @param bytes the serialized value
+	 * @param staleFiles the list to which the names of the files to delete are added
+	 * @return the evicted values, to be spilled if there is a spill directory
+	 */
+	private List<Map.Entry<String, byte[]>> putBytes(String key, byte[] bytes, List<String> staleFiles) {
+		byte[] previous = memoryMap.put(key, bytes);
+		memoryBytes += bytes.length;
+		if(previous != null){
+			memoryBytes -= previous.length;
+		}
+		if(spillDirectory != null){
+			String fileName = getFileName(key);
+			Long size = diskMap.remove(fileName);
+			if(size != null){
+				diskBytes -= size;
+				staleFiles.add(fileName);
+			}
+		}
+		List<Map.Entry<String, byte[]>> evicted = new ArrayList<Map.Entry<String, byte[]>>();
+		Iterator<Map.Entry<String, byte[]>> iterator = memoryMap.entrySet().iterator();
+		while(memoryBytes > maxMemoryBytes && iterator.hasNext()){
+			Map.Entry<String, byte[]> eldest = iterator.next();
+			evicted.add(new AbstractMap.SimpleImmutableEntry<String, byte[]>(eldest));
+			iterator.remove();
+			memoryBytes -= eldest.getValue().length;
+		}
+		return evicted;
+	}
+	
+	/**
+	 * Deletes the stale files, and then spills the evicted values if there is a spill directory. It is called without holding the lock.
+	 *
+	 * @param staleFiles the names of the files to delete
+	 * @param evicted the evicted values
+	 */
+	private void writeBack(List<String> staleFiles, List<Map.Entry<String, byte[]>> evicted) {
+		if(spillDirectory == null){
+			return;
+		}
+		for(String fileName : staleFiles){
+			new File(spillDirectory, fileName).delete();
+		}
+		for(Map.Entry<String, byte[]> entry : evicted){
+			spill(entry.getKey(), entry.getValue());
+		}
+	}
+	
+	/**
+	 * Writes the evicted value to its file in the spill directory, and deletes the least recently used files until the files fit in the disk limit.
+	 * The files are written and deleted without holding the lock, which is only taken to update the index.
+	 *
+	 * @param key the cache key
+	 * @param bytes the serialized value
+	 */
+	private void spill(String key, byte[] bytes) {
+		if(bytes.length > maxDiskBytes){
+			return;
+		}
+		String fileName = getFileName(key);
+		File file = new File(spillDirectory, fileName);
+		try{
+			FileOutputStream out = new FileOutputStream(file);
+			try{
+				out.write(bytes);
+			}
+			finally{
+				out.close();
+			}
+		}
+		catch(IOException e){
+			System.out.println("Cannot write the cached value " + file + ": " + e.getMessage());
+			file.delete();
+			return;
+		}
+		List<String> deletedFiles = new ArrayList<String>();
+		synchronized (this) {
+			Long previous = diskMap.put(fileName, (long) bytes.length);
+			diskBytes += bytes.length;
+			if(previous != null){
+				diskBytes -= previous;
+			}
+			Iterator<Map.Entry<String, Long>> iterator = diskMap.entrySet().iterator();
+			while(diskBytes > maxDiskBytes && iterator.hasNext()){
+				Map.Entry<String, Long> eldest = iterator.next();
+				iterator.remove();
+				diskBytes -= eldest.getValue();
+				deletedFiles.add(eldest.getKey());
+			}
+		}
+		for(String deletedFile : deletedFiles){
+			new File(spillDirectory, deletedFile).delete();
+		}
+	}
+	
+	/**
+	 * Adds the files left in the spill directory by an earlier run of the Space to the cache, from the least recently modified one, deleting the oldest ones if they take more than the disk limit.
+	 */
+	private void indexSpillDirectory() {
+		File[] files = spillDirectory.listFiles();
+		if(files == null){
+			return;
+		}
+		Arrays.sort(files, new Comparator<File>() {
+
+			@Override
+			public int compare(File f1, File f2) {
+				return Long.compare(f1.lastModified(), f2.lastModified());
+			}
+		});
+		for(File file : files){
+			if(file.isFile() && file.getName().endsWith(FILE_SUFFIX)){
+				diskMap.put(file.getName(), file.length());
+				diskBytes += file.length();
+			}
+		}
+		Iterator<Map.Entry<String, Long>> iterator = diskMap.entrySet().iterator();
+		while(diskBytes > maxDiskBytes && iterator.hasNext()){
+			Map.Entry<String, Long> eldest = iterator.next();
+			iterator.remove();
+			diskBytes -= eldest.getValue();
+			new File(spillDirectory, eldest.getKey()).delete();
+		}
+		if(!diskMap.isEmpty()){
+			System.out.println("Found " + diskMap.size() + " cached value(s) in " + spillDirectory);
+		}
+	}
+
+	/**
+	 * Deserializes the value.
+	 *
+	 * @param bytes the serialized value
+	 * @return the value; null if it cannot be deserialized
+	 */
+	private static Serializable deserialize(byte[] bytes) {
+		try{
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+			return (Serializable) in.readObject();
+		}
+		catch(IOException e){
+			System.out.println("Cannot deserialize a cached value: " + e.getMessage());
+			return null;
+		}
+		catch(ClassNotFoundException e){
+			System.out.println("Cannot deserialize a cached value: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the name of the file of the spilled value, which is the SHA-256 hash of the key, so that any key maps to a valid file name.
+	 *
+	 * @param key the cache key
+	 * @return the file name
+	 */
+	private static String getFileName(String key) {
+		try{
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes("UTF-8"));
+			StringBuilder name = new StringBuilder();
+			for(byte b : digest){
+				name.append(String.format("%02x", b));
+			}
+			return name.append(FILE_SUFFIX).toString();
+		}
+		catch(IOException e){
+			throw new IllegalStateException(e);
+		}
+		catch(NoSuchAlgorithmException e){
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Gets a summary of the values held and the cache hits.
+	 *
+	 * @return the statistics
+	 */
+	synchronized String getStatistics() {
+		return "values cached: " + memoryMap.size() + " (" + memoryBytes + " bytes) in memory, " + diskMap.size() + " (" + diskBytes + " bytes) on disk, lookups: " + numLookups
+				+ ", memory hits: " + numMemoryHits + ", disk hits: " + numDiskHits;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import api.Task;
+
+/**
+ * The Scheduler holds the Tasks that are waiting in the ComputeSpace and decides which Computer executes which Task.
+ * The ComputerProxy of every registered Computer asks the Scheduler for the Tasks to hand over to its Computer.
+ * The implementation to use is chosen using the system property space.scheduler, which names a class that implements this interface.
+ */
+public interface Scheduler {
+	
+	/**
+	 * Adds a Computer to which Tasks can be assigned.
+	 *
+	 * @param computerId the computer id
+	 */
+	void addComputer(int computerId);
+	
+	/**
+	 * Removes a Computer. The Tasks that were waiting to be assigned to it are scheduled on the remaining Computers.
+	 *
+	 * @param computerId the computer id
+	 */
+	void removeComputer(int computerId);
+	
+	/**
+	 * Notes that the Computer holds a copy of the shared input, so that the Tasks that refer to it can be preferably assigned to that Computer.
+	 *
+	 * @param computerId the computer id
+	 * @param key the hash of the content of the input
+	 */
+	void addSharedInput(int computerId, String key);
+	
+	/**
+	 * Forgets the Computers that hold a copy of the shared input, once no running job refers to it.
+	 *
+	 * @param key the hash of the content of the input
+	 */
+	void removeSharedInput(String key);
+	
+	/**
+	 * Removes the Tasks of the job that are waiting to be assigned, once the job has been finished.
+	 *
+	 * @param jobId the job id
+	 * @return the number of Tasks removed
+	 */
+	int removeJob(int jobId);
+	
+	/**
+	 * Schedules a Task to be executed.
+	 *
+	 * @param task the task
+	 */
+	void schedule(Task<?> task);
+	
+	/**
+	 * Schedules a batch of Tasks to be executed.
+	 *
+	 * @param tasks the tasks
+	 */
+	void scheduleAll(List<Task<?>> tasks);
+	
+	/**
+	 * Takes the next Task to be executed by the given Computer, waiting up to the timeout for a Task to become available.
+	 *
+	 * @param computerId the computer id
+	 * @param timeout the time to wait for a Task
+	 * @param unit the unit of the timeout
+	 * @return the task; null if no Task became available before the timeout
+	 * @throws InterruptedException the interrupted exception
+	 */
+	Task<?> poll(int computerId, long timeout, TimeUnit unit) throws InterruptedException;
+	
+	/**
+	 * Moves up to max Tasks that are available for the given Computer to the list, without blocking.
+	 *
+	 * @param computerId the computer id
+	 * @param tasks the list to which the Tasks are added
+	 * @param max the maximum number of Tasks to move
+	 * @return the number of Tasks moved
+	 */
+	int drainTo(int computerId, List<Task<?>> tasks, int max);
+	
+	/**
+	 * Gets a summary of the counters kept by the Scheduler, such as the queue depths.
+	 *
+	 * @return the statistics
+	 */
+	String getStatistics();
+}
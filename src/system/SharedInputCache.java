@@ -0,0 +1,197 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.io.Serializable;
+import java.rmi.RemoteException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import api.SharedInput;
+
+/**
+ * The cache of the shared inputs held by a Computer. An input is fetched from the Space the first time a Task refers to it,
+ * and the least recently used input is evicted once the cache holds more than its capacity.
+ * The inputs are fetched without holding the lock of the cache, so that a large input that is being fetched does not hold up the workers whose inputs are cached or need other inputs;
+ * the workers that need an input that is being fetched wait for that fetch instead of fetching it again.
+ */
+class SharedInputCache {
+	
+	/** The Space from which the inputs are fetched. */
+	private Computer2Space space;
+	
+	/** The id assigned to the Computer by the Space. */
+	private volatile int computerId;
+	
+	/** A mapping between the key of an input and the input, in the order in which they were last used. */
+	private Map<String, Serializable> inputMap;
+	
+	/** A mapping between the key of an input that is being fetched from the Space and the fetch. */
+	private ConcurrentHashMap<String, FutureTask<Serializable>> fetchMap;
+	
+	/** The number of inputs fetched from the Space. */
+	private long numFetches;
+	
+	/** The number of times an input was found in the cache. */
+	private long numHits;
+	
+	/**
+	 * Instantiates a new shared input cache.
+	 *
+	 * @param space the Space from which the inputs are fetched
+	 * @param capacity the maximum number of inputs held
+	 */
+	SharedInputCache(Computer2Space space, final int capacity) {
+		this.space = space;
+		this.inputMap = new LinkedHashMap<String, Serializable>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Serializable> eldest) {
+				return size() > capacity;
+			}
+		};
+		this.fetchMap = new ConcurrentHashMap<String, FutureTask<Serializable>>();
+	}
+	
+	/**
+	 * Sets the id assigned to the Computer by the Space, which the Space uses to note the Computers that hold each input.
+	 *
+	 * @param computerId the computer id
+	 */
+	void setComputerId(int computerId) {
+		this.computerId = computerId;
+	}
+	
+	/**
+	 * Resolves the shared input using the cached copy, fetching it from the Space if it is not in the cache.
+	 * If another worker is already fetching the input, this method waits for that fetch.
+	 *
+	 * @param input the shared input
+	 * @return true, if the input has been resolved; false if the Space no longer holds it
+	 * @throws RemoteException the remote exception
+	 */
+	boolean resolve(SharedInput<?> input) throws RemoteException {
+		if(input.isResolved()){
+			return true;
+		}
+		final String key = input.getKey();
+		Serializable value;
+		synchronized (this) {
+			value = inputMap.get(key);
+			if(value != null){
+				numHits++;
+			}
+		}
+		if(value == null){
+			value = fetch(key);
+			if(value == null){
+				return false;
+			}
+		}
+		input.resolve(value);
+		return true;
+	}
+	
+	/**
+	 * Fetches the input from the Space, or waits for the fetch of another worker if there is one. The fetched input is cached, unless it has been removed while it was being fetched.
+	 *
+	 * @param key the key of the input
+	 * @return the input; null if the Space no longer holds it
+	 * @throws RemoteException the remote exception
+	 */
+	private Serializable fetch(final String key) throws RemoteException {
+		FutureTask<Serializable> fetch = new FutureTask<Serializable>(new Callable<Serializable>() {
+
+			@Override
+			public Serializable call() throws RemoteException {
+				return space.getSharedInput(computerId, key);
+			}
+		});
+		FutureTask<Serializable> running = fetchMap.putIfAbsent(key, fetch);
+		if(running == null){
+			running = fetch;
+			fetch.run();
+		}
+		Serializable value = null;
+		try{
+			value = getUninterruptibly(running);
+		}
+		finally{
+			if(running == fetch){
+				synchronized (this) {
+					// the fetch is no longer in the map if the input has been removed meanwhile, in which case it is not cached
+					if(fetchMap.remove(key, fetch) && value != null){
+						numFetches++;
+						inputMap.put(key, value);
+					}
+				}
+			}
+		}
+		return value;
+	}
+	
+	/**
+	 * Waits for the fetch to complete, keeping the interrupt of the worker for after the wait.
+	 *
+	 * @param fetch the fetch
+	 * @return the input; null if the Space no longer holds it
+	 * @throws RemoteException the remote exception
+	 */
+	private static Serializable getUninterruptibly(FutureTask<Serializable> fetch) throws RemoteException {
+		boolean interrupted = false;
+		try{
+			while(true){
+				try{
+					return fetch.get();
+				}
+				catch(InterruptedException e){
+					interrupted = true;
+				}
+				catch(ExecutionException e){
+					Throwable cause = e.getCause();
+					if(cause instanceof RemoteException){
+						throw (RemoteException) cause;
+					}
+					if(cause instanceof RuntimeException){
+						throw (RuntimeException) cause;
+					}
+					if(cause instanceof Error){
+						throw (Error) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+			}
+		}
+		finally{
+			if(interrupted){
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * Removes the input from the cache.
+	 *
+	 * @param key the key of the input
+	 */
+	synchronized void remove(String key) {
+		inputMap.remove(key);
+		fetchMap.remove(key);
+	}
+	
+	/**
+	 * Gets a summary of the cache hits and the fetches.
+	 *
+	 * @return the statistics
+	 */
+	synchronized String getStatistics() {
+		return "shared inputs cached: " + inputMap.size() + ", fetches: " + numFetches + ", hits: " + numHits;
+	}
+}
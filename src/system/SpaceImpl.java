@@ -3,18 +3,38 @@
  */
 package system;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.rmi.RMISecurityManager;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import api.CacheableTask;
 import api.Result;
+import api.SharedInput;
 import api.Space;
 import api.Task;
 
@@ -28,12 +48,48 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
+	
+	/** The default number of tasks that are kept outstanding for each processor of a Computer. It can be overridden using the system property space.prefetchDepth. */
+	public static final int DEFAULT_PREFETCH_DEPTH = 2;
+	
+	/** The default factor of the expected time in flight after which a task is considered a straggler. It can be overridden using the system property space.stragglerFactor. */
+	public static final double DEFAULT_STRAGGLER_FACTOR = 2;
+	
+	/** The default least time in milliseconds for which a Computer holds the lease of a task. It can be overridden using the system property space.leasePeriod. */
+	public static final long DEFAULT_LEASE_PERIOD = 30000;
+	
+	/** The default time in milliseconds between the heartbeats sent to each Computer. It can be overridden using the system property space.heartbeatInterval. */
+	public static final long DEFAULT_HEARTBEAT_INTERVAL = 5000;
+	
+	/** The default maximum number of bytes of the values of the CacheableTasks held in memory. It can be overridden using the system property space.resultCacheBytes. */
+	public static final long DEFAULT_RESULT_CACHE_BYTES = 64L << 20;
+	
+	/** The default maximum number of bytes of the values of the CacheableTasks spilled to disk. It can be overridden using the system property space.resultCacheDiskBytes; the values are only spilled if the directory is given using the system property space.resultCacheDir. */
+	public static final long DEFAULT_RESULT_CACHE_DISK_BYTES = 1L << 30;
+	
+	/** The time in milliseconds that an idle ComputerProxy waits for a task from the scheduler before looking for a straggler to run a backup copy of. */
+	private static final long SPECULATION_INTERVAL = 100;
 
-	/** A blocking queue that stores the Tasks submitted by the Clients. */
-	private BlockingQueue<Task<?>> taskQueue; 
+	/** The Scheduler that holds the Tasks submitted by the Clients and decides which Computer executes them. */
+	private Scheduler scheduler;
+	
+	/** A mapping between the jobId and the blocking queue that stores the Results submitted by the ComputeServers for the Tasks of that job. */
+	private Map<Integer, BlockingQueue<Result<?>>> resultQueueMap;
 	
-	/** A blocking queue that stores the Results submitted by the ComputeServers. */
-	private BlockingQueue<Result<?>> resultQueue;
+	/** The id of the most recently created job. */
+	private int lastJobId;
+	
+	/** A mapping between the key of a shared input and the input. */
+	private Map<String, Serializable> sharedInputMap;
+	
+	/** A mapping between the jobId and the keys of the shared inputs put by that job. */
+	private Map<Integer, Set<String>> jobInputMap;
+	
+	/** A mapping between the jobId and the best bound offered for that branch and bound job. */
+	private Map<Integer, Double> boundMap;
+	
+	/** A mapping between the jobId and the solution that achieves the best bound of that branch and bound job. */
+	private Map<Integer, Serializable> solutionMap;
 	
 	/** A mapping between the computerId and the actual Computer Object. */
 	private Map<Integer, Computer> computerMap;
@@ -41,6 +97,21 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	/** The computer id. */
 	private int computerId;
 	
+	/** The total number of processors of the registered Computers. */
+	private AtomicInteger parallelism;
+	
+	/** The number of tasks that are kept outstanding for each processor of a Computer, so that a Computer does not sit idle between tasks. */
+	private int prefetchDepth;
+	
+	/** The time in milliseconds between the heartbeats sent to each Computer. */
+	private long heartbeatInterval;
+	
+	/** Keeps track of the leases of the tasks in flight and picks the stragglers that idle Computers run backup copies of. */
+	private InFlightTable inFlightTable;
+	
+	/** Keeps the values returned by the CacheableTasks, so that later jobs do not put their Tasks again. */
+	private ResultCache resultCache;
+	
 	/**
 	 * Instantiates a new space impl.
 	 *
@@ -48,9 +119,34 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	 */
 	protected SpaceImpl() throws RemoteException {
 		super();
-		taskQueue = new LinkedBlockingQueue<Task<?>>();
-		resultQueue = new LinkedBlockingQueue<Result<?>>();
-		computerMap = new HashMap<Integer, Computer>();
+		String schedulerClassName = System.getProperty("space.scheduler", WorkStealingScheduler.class.getName());
+		try{
+			scheduler = (Scheduler) Class.forName(schedulerClassName).getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException e){
+			throw new IllegalArgumentException("Cannot instantiate the scheduler " + schedulerClassName, e);
+		}
+		System.out.println("Using scheduler " + schedulerClassName);
+		resultQueueMap = new ConcurrentHashMap<Integer, BlockingQueue<Result<?>>>();
+		resultQueueMap.put(DEFAULT_JOB_ID, new LinkedBlockingQueue<Result<?>>());
+		lastJobId = DEFAULT_JOB_ID;
+		sharedInputMap = new HashMap<String, Serializable>();
+		jobInputMap = new HashMap<Integer, Set<String>>();
+		boundMap = new ConcurrentHashMap<Integer, Double>();
+		solutionMap = new ConcurrentHashMap<Integer, Serializable>();
+		computerMap = new ConcurrentHashMap<Integer, Computer>();
+		parallelism = new AtomicInteger();
+		prefetchDepth = Math.max(1, Integer.getInteger("space.prefetchDepth", DEFAULT_PREFETCH_DEPTH));
+		double stragglerFactor = Double.parseDouble(System.getProperty("space.stragglerFactor", String.valueOf(DEFAULT_STRAGGLER_FACTOR)));
+		long leasePeriod = Long.getLong("space.leasePeriod", DEFAULT_LEASE_PERIOD);
+		heartbeatInterval = Long.getLong("space.heartbeatInterval", DEFAULT_HEARTBEAT_INTERVAL);
+		// a task may wait behind prefetchDepth - 1 other tasks at the Computer before it starts running
+		inFlightTable = new InFlightTable(stragglerFactor * prefetchDepth, leasePeriod);
+		String resultCacheDir = System.getProperty("space.resultCacheDir");
+		resultCache = new ResultCache(Long.getLong("space.resultCacheBytes", DEFAULT_RESULT_CACHE_BYTES), resultCacheDir == null ? null : new File(resultCacheDir),
+				Long.getLong("space.resultCacheDiskBytes", DEFAULT_RESULT_CACHE_DISK_BYTES));
+		LeaseMonitor leaseMonitor = new LeaseMonitor();
+		leaseMonitor.start();
 	}
 
 	
@@ -58,15 +154,18 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	 * Registers the Computer and creates a ComputerProxy which runs as a separate thread to process the submitted Tasks and to return the Results back to the ComputeSpace
 	 */
 	/* (non-Javadoc)
-	 * @see system.Computer2Space#register(system.Computer)
+	 * @see system.Computer2Space#register(system.Computer, int)
 	 */
 	@Override
-	public void register(Computer computer) throws RemoteException {		
+	public synchronized int register(Computer computer, int numProcessors) throws RemoteException {		
 		computerId ++;
 		computerMap.put(computerId, computer);
-		System.out.println("Registering computer " + computerId);
-		ComputerProxy proxy = new ComputerProxy(computer, computerId);
+		System.out.println("Registering computer " + computerId + " with " + numProcessors + " processor(s)");
+		scheduler.addComputer(computerId);
+		ComputerProxy proxy = new ComputerProxy(computer, computerId, numProcessors);
+		parallelism.addAndGet(proxy.numProcessors);
 		proxy.start();
+		return computerId;
 	}
 
 	/* (non-Javadoc)
@@ -74,19 +173,328 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	 */
 	@Override
 	public void put(Task<?> task) throws RemoteException {
-		taskQueue.add(task);
+		scheduler.schedule(task);
 
 	}
 
+	/* (non-Javadoc)
+	 * @see api.Space#createJob()
+	 */
+	@Override
+	public synchronized int createJob() throws RemoteException {
+		lastJobId++;
+		resultQueueMap.put(lastJobId, new LinkedBlockingQueue<Result<?>>());
+		inFlightTable.startJob(lastJobId);
+		return lastJobId;
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.Space#finishJob(int)
+	 */
+	@Override
+	public void finishJob(int jobId) throws RemoteException {
+		if(jobId != DEFAULT_JOB_ID){
+			resultQueueMap.remove(jobId);
+			// the Tasks still waiting in the Space are cancelled, and the Computers drop the ones they have buffered
+			int numCancelled = scheduler.removeJob(jobId);
+			inFlightTable.finishJob(jobId);
+			releaseSharedInputs(jobId);
+			solutionMap.remove(jobId);
+			boundMap.remove(jobId);
+			for(Entry<Integer, Computer> entry : computerMap.entrySet()){
+				try{
+					entry.getValue().finishJob(jobId);
+				}
+				catch(RemoteException e){
+					System.out.println("Remote Exception while finishing job " + jobId + " on Computer " + entry.getKey());
+				}
+			}
+			if(numCancelled > 0){
+				System.out.println("Cancelled " + numCancelled + " task(s) of job " + jobId);
+			}
+		}
+		System.out.println("Finished job " + jobId + ". Scheduler " + scheduler.getStatistics() + ". Result cache " + resultCache.getStatistics());
+	}
+
+	/* (non-Javadoc)
+	 * @see api.Space#putSharedInput(int, java.io.Serializable)
+	 */
+	@Override
+	public <T extends Serializable> SharedInput<T> putSharedInput(int jobId, T input) throws RemoteException {
+		String key = hash(input);
+		synchronized (sharedInputMap) {
+			sharedInputMap.put(key, input);
+			Set<String> keys = jobInputMap.get(jobId);
+			if(keys == null){
+				keys = new HashSet<String>();
+				jobInputMap.put(jobId, keys);
+			}
+			keys.add(key);
+		}
+		return new SharedInput<T>(key, null);
+	}
+	
+	/* (non-Javadoc)
+	 * @see system.Computer2Space#getSharedInput(int, java.lang.String)
+	 */
+	@Override
+	public Serializable getSharedInput(int computerId, String key) throws RemoteException {
+		Serializable input;
+		synchronized (sharedInputMap) {
+			input = sharedInputMap.get(key);
+		}
+		if(input != null && computerMap.containsKey(computerId)){
+			scheduler.addSharedInput(computerId, key);
+		}
+		return input;
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.Space#getCachedValues(java.util.List)
+	 */
+	@Override
+	public List<Serializable> getCachedValues(List<String> keys) throws RemoteException {
+		List<Serializable> values = new ArrayList<Serializable>(keys.size());
+		for(String key : keys){
+			values.add(key == null ? null : resultCache.get(key));
+		}
+		return values;
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.Space#releaseSharedInput(int, api.SharedInput)
+	 */
+	@Override
+	public void releaseSharedInput(int jobId, SharedInput<?> input) throws RemoteException {
+		Set<String> keys = new HashSet<String>();
+		synchronized (sharedInputMap) {
+			Set<String> jobKeys = jobInputMap.get(jobId);
+			if(jobKeys == null || !jobKeys.remove(input.getKey())){
+				return;
+			}
+			keys.add(input.getKey());
+			removeSharedInputs(keys);
+		}
+		for(String key : keys){
+			for(Entry<Integer, Computer> entry : computerMap.entrySet()){
+				try{
+					entry.getValue().releaseSharedInput(key);
+				}
+				catch(RemoteException e){
+					System.out.println("Remote Exception while releasing a shared input on Computer " + entry.getKey());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Removes the shared inputs put by the job, except the ones that are also used by another running job.
+	 *
+	 * @param jobId the job id
+	 */
+	private void releaseSharedInputs(int jobId) {
+		synchronized (sharedInputMap) {
+			Set<String> keys = jobInputMap.remove(jobId);
+			if(keys == null){
+				return;
+			}
+			removeSharedInputs(keys);
+		}
+	}
+	
+	/**
+	 * Removes the given shared inputs, except the ones that are also used by a running job. The keys of the inputs that are kept are removed from the given set.
+	 * The caller must hold the lock on the shared input map.
+	 *
+	 * @param keys the keys of the inputs
+	 */
+	private void removeSharedInputs(Set<String> keys) {
+		for(Set<String> otherKeys : jobInputMap.values()){
+			keys.removeAll(otherKeys);
+		}
+		for(String key : keys){
+			sharedInputMap.remove(key);
+			scheduler.removeSharedInput(key);
+		}
+	}
+	
+	/**
+	 * Computes the hash of the serialized content of the input, which identifies the input.
+	 *
+	 * @param input the input
+	 * @return the hash as a hexadecimal string
+	 */
+	private static String hash(Serializable input) {
+		try{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(input);
+			out.close();
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes.toByteArray());
+			StringBuilder key = new StringBuilder();
+			for(byte b : digest){
+				key.append(String.format("%02x", b));
+			}
+			return key.toString();
+		}
+		catch(IOException e){
+			throw new IllegalArgumentException("Cannot serialize the shared input", e);
+		}
+		catch(NoSuchAlgorithmException e){
+			throw new IllegalStateException(e);
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see api.Space#take()
 	 */
 	@Override
 	public Result<?> take() throws RemoteException, InterruptedException {
-		return resultQueue.take();
+		return take(DEFAULT_JOB_ID);
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.Space#take(int)
+	 */
+	@Override
+	public Result<?> take(int jobId) throws RemoteException, InterruptedException {
+		return getResultQueue(jobId).take();
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.Space#putAll(java.util.List)
+	 */
+	@Override
+	public void putAll(List<Task<?>> tasks) throws RemoteException {
+		scheduler.scheduleAll(tasks);
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.Space#takeBatch(int, long)
+	 */
+	@Override
+	public List<Result<?>> takeBatch(int max, long timeout) throws RemoteException, InterruptedException {
+		return takeBatch(DEFAULT_JOB_ID, max, timeout);
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.Space#takeBatch(int, int, long)
+	 */
+	@Override
+	public List<Result<?>> takeBatch(int jobId, int max, long timeout) throws RemoteException, InterruptedException {
+		BlockingQueue<Result<?>> resultQueue = getResultQueue(jobId);
+		List<Result<?>> results = new ArrayList<Result<?>>();
+		long deadline = System.currentTimeMillis() + timeout;
+		while(results.size() < max){
+			Result<?> result = resultQueue.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+			if(result == null){
+				break;
+			}
+			results.add(result);
+			resultQueue.drainTo(results, max - results.size());
+		}
+		return results;
+	}
+	
+	/**
+	 * Gets the queue that stores the Results of the given job.
+	 *
+	 * @param jobId the job id
+	 * @return the result queue
+	 */
+	private BlockingQueue<Result<?>> getResultQueue(int jobId) {
+		BlockingQueue<Result<?>> resultQueue = resultQueueMap.get(jobId);
+		if(resultQueue == null){
+			throw new IllegalArgumentException("Unknown job " + jobId);
+		}
+		return resultQueue;
+	}
+	
+	/**
+	 * Keeps the value returned by the CacheableTask in the result cache, even if its job has finished meanwhile. The empty Results of the tasks cancelled by the Computers are not kept.
+	 *
+	 * @param task the task
+	 * @param result the result
+	 */
+	private void cache(CacheableTask<?> task, Result<?> result) {
+		String key = task.getCacheKey();
+		Object value = result.getTaskReturnValue();
+		if(key != null && value instanceof Serializable){
+			resultCache.put(key, (Serializable) value);
+		}
+	}
+	
+	/**
+	 * Puts the Result in the result queue of the job that it belongs to. The Result is discarded if the job has already finished,
+	 * or if it is the Result of a backup copy of a task whose first Result has already been delivered.
+	 *
+	 * @param result the result
+	 * @param computerId the id of the Computer that has returned the Result
+	 */
+	private void deliver(Result<?> result, int computerId) {
+		if(!inFlightTable.completed(result, computerId)){
+			return;
+		}
+		BlockingQueue<Result<?>> resultQueue = resultQueueMap.get(result.getJobId());
+		if(resultQueue != null){
+			resultQueue.add(result);
+		}
 	}
 	
 		
+	/* (non-Javadoc)
+	 * @see api.Space#updateBound(int, double, java.io.Serializable)
+	 */
+	@Override
+	public void updateBound(int jobId, double bound, Serializable solution) throws RemoteException {
+		synchronized (boundMap) {
+			// the bound of a job that has finished is not kept again
+			if(!resultQueueMap.containsKey(jobId) || bound >= getBound(jobId)){
+				return;
+			}
+			boundMap.put(jobId, bound);
+			if(solution != null){
+				solutionMap.put(jobId, solution);
+			}
+		}
+		for(Entry<Integer, Computer> entry : computerMap.entrySet()){
+			try{
+				entry.getValue().updateBound(jobId, bound);
+			}
+			catch(RemoteException e){
+				// the heartbeat of the Computer detects the failure
+				System.out.println("Remote Exception while sending the bound of job " + jobId + " to Computer " + entry.getKey());
+			}
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.Space#getBound(int)
+	 */
+	@Override
+	public double getBound(int jobId) throws RemoteException {
+		Double bound = boundMap.get(jobId);
+		return bound != null ? bound : Double.MAX_VALUE;
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.Space#getSolution(int)
+	 */
+	@Override
+	public Serializable getSolution(int jobId) throws RemoteException {
+		synchronized (boundMap) {
+			return solutionMap.get(jobId);
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.Space#getParallelism()
+	 */
+	@Override
+	public int getParallelism() throws RemoteException {
+		return parallelism.get();
+	}
+	
 	/* (non-Javadoc)
 	 * @see api.Space#stop()
 	 */
@@ -103,10 +511,11 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 			catch(RemoteException e){
 				continue;
 			}
-			computerMap.remove(computer);
+			computerMap.remove(entry.getKey());
 		}
 		
 		System.out.println("--------------------------------------");
+		System.out.println("Scheduler " + scheduler.getStatistics());
 		System.out.println("Stopping Space.");
 		System.exit(0);
 	}
@@ -132,10 +541,10 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	}
 
 	/*
-	 * This thread's run method loops forever, removing tasks from the task queue,
-	 * invoking the associated Computer's execute method with the task as its
-	 * argument, and putting the returned Result object in the result queue for
-	 * retrieval by the client.
+	 * This thread's run method loops forever, taking tasks from the scheduler
+	 * and handing them over to the associated Computer, keeping up to prefetchDepth
+	 * tasks outstanding for each of the Computer's processors. The returned Result objects are received
+	 * asynchronously by a ResultReceiver and put in the result queue of their job for retrieval by the client.
 	 */
 	/**
 	 * It represents the remote proxy to the ComputeServer
@@ -148,44 +557,284 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 		/** The computer id. */
 		private int computerId;
 		
+		/** The number of tasks that the Computer executes in parallel. */
+		private int numProcessors;
+		
+		/** The number of tasks that can be outstanding at the Computer. */
+		private int capacity;
+		
+		/** The permits that limit the number of tasks outstanding at the Computer to its capacity. */
+		private Semaphore slots;
+		
+		/** The tasks that have been handed over to the Computer and whose Results have not been received yet. */
+		private List<Task<?>> inFlight;
+		
+		/** The thread that receives the Results from the Computer. */
+		private ResultReceiver receiver;
+		
+		/** The thread that checks periodically that the Computer and this proxy are still alive. */
+		private HeartbeatMonitor heartbeatMonitor;
+		
+		/** Whether the Computer has failed. */
+		private boolean failed;
+		
 		/**
 		 * Instantiates a new computer proxy.
 		 *
 		 * @param c the c
 		 * @param computerId the computer id
+		 * @param numProcessors the number of tasks that the Computer executes in parallel
 		 */
-		public ComputerProxy(Computer c, int computerId) {
+		public ComputerProxy(Computer c, int computerId, int numProcessors) {
 			this.computer = c;		
 			this.computerId = computerId;
+			this.numProcessors = Math.max(1, numProcessors);
+			this.capacity = this.numProcessors * prefetchDepth;
+			this.slots = new Semaphore(capacity);
+			this.inFlight = new LinkedList<Task<?>>();
+			this.receiver = new ResultReceiver();
+			this.heartbeatMonitor = new HeartbeatMonitor();
 		}
 
 		/* (non-Javadoc)
 		 * @see java.lang.Thread#run()
 		 */
 		public void run() {
-			Task<?> t = null;
+			receiver.start();
+			heartbeatMonitor.start();
+			List<Task<?>> tasks = new ArrayList<Task<?>>();
 			while (true) {
 				try {
-					t = taskQueue.take();
-					Result<?> result = computer.execute(t);
-					resultQueue.add(result);
+					slots.acquire();
+					Task<?> task;
+					try{
+						task = scheduler.poll(computerId, SPECULATION_INTERVAL, TimeUnit.MILLISECONDS);
+					}
+					catch(InterruptedException e){
+						// the slot has not been handed a task, so it is given back before the interrupt is handled below
+						slots.release();
+						throw e;
+					}
+					boolean backup = task == null;
+					if(backup){
+						// the scheduler has run out of tasks: a Computer with an idle processor runs a backup copy of a straggler
+						task = hasIdleProcessor() ? inFlightTable.pickStraggler(computerId) : null;
+						if(task == null){
+							slots.release();
+							continue;
+						}
+						tasks.add(task);
+					}
+					else{
+						tasks.add(task);
+						// hand over as many more tasks as there are free slots at the Computer in the same remote call
+						int freeSlots = slots.drainPermits();
+						int numDrained = scheduler.drainTo(computerId, tasks, freeSlots);
+						slots.release(freeSlots - numDrained);
+					}
+					synchronized (this) {
+						if(failed){
+							// a backup copy only gives up the lease that it has been picked with, since the straggler is still running
+							scheduler.scheduleAll(backup ? inFlightTable.abandoned(tasks, computerId) : tasks);
+							break;
+						}
+						inFlight.addAll(tasks);
+					}
+					inFlightTable.dispatched(tasks, computerId);
+					computer.putAll(tasks);
+					tasks.clear();
 				} catch (RemoteException e) {
 					/*
 					 * The Space accommodates faulty computers: If a computer
 					 * that is running a task returns a RemoteException, the
 					 * task is assigned to another computer.
 					 */
-					System.out.println("Remote Exception while executing task "
-							+ t.getClass().getName() + " from Computer " + this.computerId);
-					// Adding the task back to the task queue
-					System.out.println("Adding the task back to the task queue to be assigned to another Computer");
-					taskQueue.add(t);
-					//Thread.currentThread().interrupt();					
+					System.out.println("Remote Exception while executing " + tasks.size() + " task(s) from Computer " + this.computerId);
+					fail();
 					break;
 				} catch (InterruptedException e) {
+					if(isFailed()){
+						break;
+					}
 					System.out.println("Interrupted Exception");					
 				}
 			}		
 		}
+		
+		/**
+		 * Removes the task whose Result has been received from the tasks that are outstanding at the Computer.
+		 *
+		 * @param result the result
+		 * @return the task; null if it is no longer outstanding at the Computer
+		 */
+		private synchronized Task<?> complete(Result<?> result) {
+			Iterator<Task<?>> iterator = inFlight.iterator();
+			while(iterator.hasNext()){
+				Task<?> t = iterator.next();
+				if(t.getJobId() == result.getJobId() && t.getTaskId() == result.getTaskId()){
+					iterator.remove();
+					return t;
+				}
+			}
+			return null;
+		}
+		
+		/**
+		 * Schedules again a task that the Computer has handed back without executing it, unless it has completed, its lease has expired, a backup copy of it is still running or its job has finished meanwhile.
+		 *
+		 * @param task the task; null if it is no longer outstanding at the Computer, because the Computer has been removed and its tasks scheduled again
+		 */
+		private void handBack(Task<?> task) {
+			if(task == null){
+				return;
+			}
+			List<Task<?>> tasks = inFlightTable.abandoned(Collections.<Task<?>>singletonList(task), computerId);
+			if(!tasks.isEmpty() && resultQueueMap.containsKey(task.getJobId())){
+				System.out.println("Computer " + computerId + " handed back task " + task.getTaskId() + " of job " + task.getJobId() + ", scheduling it again");
+				scheduler.schedule(task);
+			}
+		}
+		
+		/**
+		 * Checks if some of the Computer's processors have no task to execute.
+		 *
+		 * @return true, if fewer tasks are outstanding at the Computer than it executes in parallel
+		 */
+		private synchronized boolean hasIdleProcessor() {
+			return inFlight.size() < numProcessors;
+		}
+		
+		/**
+		 * Checks if the Computer has failed.
+		 *
+		 * @return true, if the Computer has failed
+		 */
+		private synchronized boolean isFailed() {
+			return failed;
+		}
+		
+		/**
+		 * Removes the failed Computer from the Space and the scheduler, schedules the tasks outstanding at the Computer again, to be assigned to another Computer, unless another copy of them takes care of them, and stops the proxy.
+		 */
+		private synchronized void fail() {
+			if(failed){
+				return;
+			}
+			failed = true;
+			System.out.println("Removing computer " + computerId);
+			computerMap.remove(computerId);
+			parallelism.addAndGet(-numProcessors);
+			scheduler.removeComputer(computerId);
+			// Adding the tasks back to the scheduler, except the ones that have completed, whose lease has expired or of which a backup copy is still running
+			List<Task<?>> tasks = inFlightTable.abandoned(inFlight, computerId);
+			System.out.println("Adding the " + tasks.size() + " outstanding task(s) back to the scheduler to be assigned to another Computer");
+			scheduler.scheduleAll(tasks);
+			inFlight.clear();
+			this.interrupt();
+			receiver.interrupt();
+			heartbeatMonitor.interrupt();
+		}
+		
+		/**
+		 * This thread's run method loops forever, taking the Results of the executed tasks from the Computer and putting them in the result queue.
+		 */
+		private class ResultReceiver extends Thread {
+			
+			/* (non-Javadoc)
+			 * @see java.lang.Thread#run()
+			 */
+			public void run() {
+				while (true) {
+					try {
+						List<Result<?>> results = computer.takeBatch(capacity);
+						for(Result<?> result : results){
+							Task<?> task = complete(result);
+							if(result.isFailed()){
+								handBack(task);
+								continue;
+							}
+							deliver(result, computerId);
+							if(task instanceof CacheableTask){
+								cache((CacheableTask<?>) task, result);
+							}
+						}
+						slots.release(results.size());
+					} catch (RemoteException e) {
+						System.out.println("Remote Exception while receiving results from Computer " + computerId);
+						fail();
+						break;
+					} catch (InterruptedException e) {
+						if(isFailed()){
+							break;
+						}
+						System.out.println("Interrupted Exception");
+					}
+				}
+			}
+		}
+		
+		/**
+		 * This thread's run method loops forever, sending a heartbeat to the Computer every heartbeatInterval milliseconds.
+		 * The Computer is considered failed if the heartbeat returns a RemoteException, or if one of the threads of the proxy has died.
+		 */
+		private class HeartbeatMonitor extends Thread {
+			
+			/* (non-Javadoc)
+			 * @see java.lang.Thread#run()
+			 */
+			public void run() {
+				while (true) {
+					try {
+						Thread.sleep(heartbeatInterval);
+						if(!ComputerProxy.this.isAlive() || !receiver.isAlive()){
+							System.out.println("The proxy of Computer " + computerId + " has died");
+							fail();
+							break;
+						}
+						computer.heartbeat();
+					} catch (RemoteException e) {
+						System.out.println("Remote Exception while sending a heartbeat to Computer " + computerId);
+						fail();
+						break;
+					} catch (InterruptedException e) {
+						if(isFailed()){
+							break;
+						}
+						System.out.println("Interrupted Exception");
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This thread's run method loops forever, scheduling again the tasks whose leases have expired, so that they are assigned to another Computer.
+	 */
+	private class LeaseMonitor extends Thread {
+		
+		/**
+		 * Instantiates a new lease monitor.
+		 */
+		public LeaseMonitor() {
+			setDaemon(true);
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.Thread#run()
+		 */
+		public void run() {
+			while (true) {
+				try {
+					Thread.sleep(SPECULATION_INTERVAL);
+					List<Task<?>> tasks = inFlightTable.expireLeases();
+					if(!tasks.isEmpty()){
+						System.out.println("Adding the " + tasks.size() + " task(s) with expired leases back to the scheduler to be assigned to another Computer");
+						scheduler.scheduleAll(tasks);
+					}
+				} catch (InterruptedException e) {
+					System.out.println("Interrupted Exception");
+				}
+			}
+		}
 	}
 }
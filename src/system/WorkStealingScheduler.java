@@ -0,0 +1,337 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import api.SharedInput;
+import api.Task;
+
+/**
+ * The default Scheduler. Every Computer has its own deque of Tasks, so that the Computers do not contend on a single queue.
+ * All the Tasks of a job are placed on the deque of the job's home Computer, which is the least loaded Computer at the time the job's first Task is scheduled.
+ * If some Computers already hold a copy of the inputs shared by that Task, the least loaded of them is chosen instead, so that the inputs are not fetched again.
+ * A Computer takes Tasks from the front of its own deque; when its deque is empty, it steals half of the Tasks from the front of the longest deque,
+ * so that the Tasks of a job are still executed about in the order in which they were scheduled: a job that keeps the Tasks of its next pass or frame queued behind the current one gets the current one first from every Computer.
+ */
+public class WorkStealingScheduler implements Scheduler {
+	
+	/** The largest number of jobs whose home Computer is kept. The Space assigns the job ids in increasing order, so the homes of the oldest jobs are dropped first; a job that schedules Tasks again is given a new home. */
+	private static final int MAX_HOMES = 1024;
+	
+	/** A mapping between the computerId and the deque of Tasks waiting to be executed by that Computer. */
+	private Map<Integer, BlockingDeque<Task<?>>> dequeMap;
+	
+	/** The deque of Tasks that were scheduled while no Computer was registered. */
+	private BlockingDeque<Task<?>> backlog;
+	
+	/** A mapping between the jobId and the computerId of the job's home Computer, in increasing order of the jobIds. */
+	private ConcurrentSkipListMap<Integer, Integer> homeMap;
+	
+	/** A mapping between the key of a shared input and the ids of the Computers that hold a copy of it. */
+	private Map<String, Set<Integer>> holderMap;
+	
+	/** The number of Tasks waiting in all the deques. A Computer acquires one permit for every Task that it takes. */
+	private Semaphore available;
+	
+	/** The number of Tasks that the Computers took from their own deques. */
+	private AtomicLong numLocalTakes;
+	
+	/** The number of times the Computers stole from other deques. Every steal returns one Task to the thief. */
+	private AtomicLong numSteals;
+	
+	/** The number of Tasks that were moved by the steals, including the ones returned to the thieves. */
+	private AtomicLong numStolenTasks;
+	
+	/**
+	 * Instantiates a new work stealing scheduler.
+	 */
+	public WorkStealingScheduler() {
+		dequeMap = new ConcurrentHashMap<Integer, BlockingDeque<Task<?>>>();
+		backlog = new LinkedBlockingDeque<Task<?>>();
+		homeMap = new ConcurrentSkipListMap<Integer, Integer>();
+		holderMap = new ConcurrentHashMap<String, Set<Integer>>();
+		available = new Semaphore(0);
+		numLocalTakes = new AtomicLong();
+		numSteals = new AtomicLong();
+		numStolenTasks = new AtomicLong();
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#addComputer(int)
+	 */
+	@Override
+	public void addComputer(int computerId) {
+		dequeMap.put(computerId, new LinkedBlockingDeque<Task<?>>());
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#removeComputer(int)
+	 */
+	@Override
+	public void removeComputer(int computerId) {
+		BlockingDeque<Task<?>> deque = dequeMap.remove(computerId);
+		if(deque == null){
+			return;
+		}
+		homeMap.values().removeAll(Collections.singleton(computerId));
+		for(Set<Integer> holders : holderMap.values()){
+			holders.remove(computerId);
+		}
+		// the permits of the moved Tasks are still held by the semaphore, so they are not released again
+		Task<?> task;
+		while((task = deque.pollFirst()) != null){
+			place(task);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#addSharedInput(int, java.lang.String)
+	 */
+	@Override
+	public void addSharedInput(int computerId, String key) {
+		Set<Integer> holders = holderMap.get(key);
+		if(holders == null){
+			holderMap.putIfAbsent(key, Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>()));
+			holders = holderMap.get(key);
+		}
+		holders.add(computerId);
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#removeSharedInput(java.lang.String)
+	 */
+	@Override
+	public void removeSharedInput(String key) {
+		holderMap.remove(key);
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#removeJob(int)
+	 */
+	@Override
+	public int removeJob(int jobId) {
+		homeMap.remove(jobId);
+		int numRemoved = 0;
+		List<BlockingDeque<Task<?>>> deques = new ArrayList<BlockingDeque<Task<?>>>(dequeMap.values());
+		deques.add(backlog);
+		for(BlockingDeque<Task<?>> deque : deques){
+			for(Task<?> task : deque){
+				if(task.getJobId() != jobId){
+					continue;
+				}
+				// a Task is removed only with its permit; a Task whose permit has already been acquired is left to the Computer that is about to take it
+				if(!available.tryAcquire()){
+					return numRemoved;
+				}
+				if(deque.remove(task)){
+					numRemoved++;
+				}
+				else{
+					available.release();
+				}
+			}
+		}
+		return numRemoved;
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#schedule(api.Task)
+	 */
+	@Override
+	public void schedule(Task<?> task) {
+		place(task);
+		available.release();
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#scheduleAll(java.util.List)
+	 */
+	@Override
+	public void scheduleAll(List<Task<?>> tasks) {
+		for(Task<?> task : tasks){
+			place(task);
+		}
+		available.release(tasks.size());
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#poll(int, long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public Task<?> poll(int computerId, long timeout, TimeUnit unit) throws InterruptedException {
+		if(!available.tryAcquire(timeout, unit)){
+			return null;
+		}
+		return next(computerId);
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#drainTo(int, java.util.List, int)
+	 */
+	@Override
+	public int drainTo(int computerId, List<Task<?>> tasks, int max) {
+		int numTasks = 0;
+		while(numTasks < max && available.tryAcquire()){
+			tasks.add(next(computerId));
+			numTasks++;
+		}
+		return numTasks;
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Scheduler#getStatistics()
+	 */
+	@Override
+	public String getStatistics() {
+		long numLocal = numLocalTakes.get();
+		long steals = numSteals.get();
+		long total = numLocal + steals;
+		Map<Integer, Integer> depths = new TreeMap<Integer, Integer>();
+		for(Entry<Integer, BlockingDeque<Task<?>>> entry : dequeMap.entrySet()){
+			depths.put(entry.getKey(), entry.getValue().size());
+		}
+		return "tasks taken: " + total + " (" + steals + " by stealing, steal rate " + (total == 0 ? 0 : steals * 100 / total) + "%)"
+				+ ", tasks moved by stealing: " + numStolenTasks.get()
+				+ ", queue depths: " + depths + ", backlog: " + backlog.size();
+	}
+	
+	/**
+	 * Places the Task at the back of the deque of its job's home Computer.
+	 *
+	 * @param task the task
+	 */
+	private void place(Task<?> task) {
+		getHomeDeque(task).addLast(task);
+	}
+	
+	/**
+	 * Gets the deque of the home Computer of the Task's job. A job that does not have a home Computer yet is given the Computer with the shortest deque
+	 * among the ones that hold a copy of the inputs shared by the Task, or among all the Computers if none of them does.
+	 *
+	 * @param task the task
+	 * @return the deque; the backlog if no Computer is registered
+	 */
+	private BlockingDeque<Task<?>> getHomeDeque(Task<?> task) {
+		int jobId = task.getJobId();
+		Integer home = homeMap.get(jobId);
+		if(home != null){
+			BlockingDeque<Task<?>> deque = dequeMap.get(home);
+			if(deque != null){
+				return deque;
+			}
+		}
+		Set<Integer> holders = new HashSet<Integer>();
+		for(SharedInput<?> input : task.getSharedInputs()){
+			Set<Integer> inputHolders = input.getKey() == null ? null : holderMap.get(input.getKey());
+			if(inputHolders != null){
+				holders.addAll(inputHolders);
+			}
+		}
+		holders.retainAll(dequeMap.keySet());
+		Integer leastLoaded = null;
+		int minDepth = Integer.MAX_VALUE;
+		for(Entry<Integer, BlockingDeque<Task<?>>> entry : dequeMap.entrySet()){
+			int depth = entry.getValue().size();
+			if(depth < minDepth && (holders.isEmpty() || holders.contains(entry.getKey()))){
+				minDepth = depth;
+				leastLoaded = entry.getKey();
+			}
+		}
+		if(leastLoaded == null){
+			return backlog;
+		}
+		// the Tasks of a job may be scheduled by several threads at once, and the home chosen first is kept
+		Integer chosen = home == null ? homeMap.putIfAbsent(jobId, leastLoaded) : (homeMap.replace(jobId, home, leastLoaded) ? null : homeMap.get(jobId));
+		if(chosen == null){
+			chosen = leastLoaded;
+			while(homeMap.size() > MAX_HOMES){
+				homeMap.pollFirstEntry();
+			}
+		}
+		BlockingDeque<Task<?>> deque = dequeMap.get(chosen);
+		return deque != null ? deque : backlog;
+	}
+	
+	/**
+	 * Gets the next Task for the given Computer, for which a permit has already been acquired.
+	 * Since every permit stands for a waiting Task, this method keeps looking until it finds one.
+	 *
+	 * @param computerId the computer id
+	 * @return the task
+	 */
+	private Task<?> next(int computerId) {
+		while(true){
+			BlockingDeque<Task<?>> own = dequeMap.get(computerId);
+			if(own != null){
+				Task<?> task = own.pollFirst();
+				if(task != null){
+					numLocalTakes.incrementAndGet();
+					return task;
+				}
+			}
+			Task<?> task = steal(own);
+			if(task != null){
+				return task;
+			}
+			// the Task is being moved between the deques by another Computer
+			Thread.yield();
+		}
+	}
+	
+	/**
+	 * Steals half of the Tasks from the front of the longest deque, which are the ones that have waited the longest. The first of them is returned and the rest are moved to the front of the thief's own deque, in their original order.
+	 *
+	 * @param own the thief's own deque; null if the thief has been removed
+	 * @return the stolen task; null if there was nothing to steal
+	 */
+	private Task<?> steal(BlockingDeque<Task<?>> own) {
+		BlockingDeque<Task<?>> victim = backlog;
+		int maxDepth = backlog.size();
+		for(BlockingDeque<Task<?>> deque : dequeMap.values()){
+			int depth = deque.size();
+			if(deque != own && depth > maxDepth){
+				maxDepth = depth;
+				victim = deque;
+			}
+		}
+		Task<?> task = victim.pollFirst();
+		if(task == null){
+			return null;
+		}
+		numSteals.incrementAndGet();
+		int numStolen = 1;
+		if(own != null){
+			List<Task<?>> stolen = new ArrayList<Task<?>>();
+			for(int i = 1; i < maxDepth / 2; i++){
+				Task<?> next = victim.pollFirst();
+				if(next == null){
+					break;
+				}
+				stolen.add(next);
+			}
+			// the Tasks are added to the front of the deque from the last one, so that they keep their order ahead of any Task placed there meanwhile
+			for(int i = stolen.size() - 1; i >= 0; i--){
+				own.addFirst(stolen.get(i));
+			}
+			numStolen += stolen.size();
+		}
+		numStolenTasks.addAndGet(numStolen);
+		return task;
+	}
+}
@@ -0,0 +1,282 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import api.AbstractTask;
+import api.ArrayCodec;
+import api.BranchAndBoundTask;
+import api.Result;
+import api.SharedBound;
+import api.SharedInput;
+import api.TourResult;
+
+/**
+ * This class represents a unit of task involved in solving a Traveling Salesman Problem (TSP) by branch and bound, where the cities are points in the 2D Euclidean plane.
+ * The task searches all the tours that start with a given prefix of cities, extending the partial tour city by city, nearest city first.
+ * A partial tour is cut as soon as its cost plus a lower bound on the cost of completing it is not less than the shared bound, which is the cost of the shortest tour found by any task of the job.
+ */
+public final class EuclideanTspBranchAndBoundTask extends AbstractTask<TourResult> implements BranchAndBoundTask<TourResult>, Externalizable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+	
+	/** The cities in 2D Euclidean plane that are part of the TSP. They are shared by all the tasks of the job. */
+	private SharedInput<double[][]> cities;
+	
+	/** The first cities of the tours searched by this task. The first city is always city 0. */
+	private int[] prefix;
+	
+	/** The cost of the shortest tour found by any task of the job. It is set by the Computer before the task is executed. */
+	private transient SharedBound sharedBound;
+	
+	/** The distances between the cities. */
+	private transient double[][] distances;
+	
+	/** The cities sorted by their distance from each city, nearest first. */
+	private transient int[][] neighbors;
+	
+	/** The distance from each city to its nearest city. Every city that is not in the partial tour yet, and the last city of the partial tour, is left along an edge at least this long. */
+	private transient double[] minDistances;
+	
+	/** Whether each city is in the partial tour. */
+	private transient boolean[] visited;
+	
+	/** The partial tour. */
+	private transient int[] tour;
+	
+	/** The shortest tour found by this task; null if it has found no tour shorter than the shared bound. */
+	private transient int[] minTour;
+	
+	/**
+	 * Instantiates a new Euclidean TSP branch and bound task. It is used by the deserialization, which sets the fields using readExternal.
+	 */
+	public EuclideanTspBranchAndBoundTask(){
+	}
+	
+	/**
+	 * Instantiates a new Euclidean TSP branch and bound task.
+	 *
+	 * @param cities the reference to the cities
+	 * @param prefix the first cities of the tours searched by this task, starting with city 0
+	 * @param taskId the task id
+	 */
+	public EuclideanTspBranchAndBoundTask(SharedInput<double[][]> cities, int[] prefix, int taskId){
+		this.cities = cities;
+		this.prefix = prefix;
+		this.taskId = taskId;
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.AbstractTask#getSharedInputs()
+	 */
+	@Override
+	public List<SharedInput<?>> getSharedInputs() {
+		return Collections.<SharedInput<?>>singletonList(cities);
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.BranchAndBoundTask#setSharedBound(api.SharedBound)
+	 */
+	@Override
+	public void setSharedBound(SharedBound bound) {
+		this.sharedBound = bound;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(taskId);
+		out.writeInt(jobId);
+		out.writeObject(cities);
+		ArrayCodec.writeInts(out, prefix);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		taskId = in.readInt();
+		jobId = in.readInt();
+		cities = (SharedInput<double[][]>) in.readObject();
+		prefix = ArrayCodec.readInts(in);
+	}
+	
+	/**
+	 * Executes the Euclidean TSP branch and bound Task.
+	 * @return the shortest tour found by this task and its cost; null if no tour shorter than the shared bound starts with the prefix of this task.
+	 */
+	@Override
+	public Result<TourResult> execute() {
+		Result<TourResult> result = new Result<TourResult>();
+		result.setTaskId(this.taskId);
+		if(sharedBound == null){
+			// the task is executed outside a Computer
+			sharedBound = new LocalBound();
+		}
+		initialize(this.cities.getValue());
+		
+		int numCities = distances.length;
+		visited = new boolean[numCities];
+		tour = new int[numCities];
+		double cost = 0;
+		double remainingMinDistance = 0;
+		for(int i = 0; i < numCities; i++){
+			remainingMinDistance += minDistances[i];
+		}
+		for(int i = 0; i < prefix.length; i++){
+			tour[i] = prefix[i];
+			visited[prefix[i]] = true;
+			if(i > 0){
+				cost += distances[prefix[i - 1]][prefix[i]];
+				remainingMinDistance -= minDistances[prefix[i - 1]];
+			}
+		}
+		minTour = null;
+		search(prefix.length, cost, remainingMinDistance);
+		
+		result.setTaskReturnValue(minTour == null ? null : new TourResult(minTour, getCost(minTour)));
+		return result;
+	}
+	
+	/**
+	 * Extends the partial tour with each city that is not in it yet, nearest city first, and searches the tours that start with the extended partial tour.
+	 *
+	 * @param length the number of cities in the partial tour
+	 * @param cost the cost of the partial tour
+	 * @param remainingMinDistance the sum of the distances to their nearest cities of the cities that are not in the partial tour yet and of the last city of the partial tour
+	 */
+	private void search(int length, double cost, double remainingMinDistance) {
+		int numCities = distances.length;
+		int last = tour[length - 1];
+		if(length == numCities){
+			double tourCost = cost + distances[last][tour[0]];
+			if(tourCost < sharedBound.get()){
+				minTour = tour.clone();
+				sharedBound.update(tourCost, minTour);
+			}
+			return;
+		}
+		// every city that is not in the partial tour, and its last city, has to be left along an edge at least as long as its nearest one
+		if(cost + remainingMinDistance >= sharedBound.get()){
+			return;
+		}
+		for(int next : neighbors[last]){
+			if(visited[next]){
+				continue;
+			}
+			double nextCost = cost + distances[last][next];
+			if(nextCost + remainingMinDistance - minDistances[last] >= sharedBound.get()){
+				continue;
+			}
+			visited[next] = true;
+			tour[length] = next;
+			search(length + 1, nextCost, remainingMinDistance - minDistances[last]);
+			visited[next] = false;
+		}
+	}
+	
+	/**
+	 * Computes the distances between the cities, the nearest neighbors of each city and the distance to its nearest city.
+	 *
+	 * @param cities the cities
+	 */
+	private void initialize(double[][] cities) {
+		final int numCities = cities.length;
+		distances = new double[numCities][numCities];
+		minDistances = new double[numCities];
+		neighbors = new int[numCities][];
+		for(int i = 0; i < numCities; i++){
+			minDistances[i] = numCities > 1 ? Double.MAX_VALUE : 0;
+			for(int j = 0; j < numCities; j++){
+				distances[i][j] = calculateDistance(cities[i], cities[j]);
+				if(i != j){
+					minDistances[i] = Math.min(minDistances[i], distances[i][j]);
+				}
+			}
+		}
+		for(int i = 0; i < numCities; i++){
+			final double[] distancesFromCity = distances[i];
+			Integer[] sorted = new Integer[numCities];
+			for(int j = 0; j < numCities; j++){
+				sorted[j] = j;
+			}
+			Arrays.sort(sorted, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					return Double.compare(distancesFromCity[a], distancesFromCity[b]);
+				}
+			});
+			neighbors[i] = new int[numCities];
+			for(int j = 0; j < numCities; j++){
+				neighbors[i][j] = sorted[j];
+			}
+		}
+	}
+	
+	/**
+	 * Gets the cost of the tour, including the edge from its last city back to its first city.
+	 *
+	 * @param tour the tour
+	 * @return the cost
+	 */
+	private double getCost(int[] tour) {
+		double cost = 0;
+		for(int i = 0; i < tour.length; i++){
+			cost += distances[tour[i]][tour[(i + 1) % tour.length]];
+		}
+		return cost;
+	}
+	
+	/**
+	 * Calculate the Euclidean distance.
+	 *
+	 * @param pointA the starting point
+	 * @param pointB the ending point
+	 * @return distance the distance between the points
+	 */
+	private double calculateDistance(double[] pointA, double[] pointB){
+		double dx = pointA[0] - pointB[0];
+		double dy = pointA[1] - pointB[1];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+	
+	/**
+	 * The bound used when the task is executed outside a Computer, which is not shared with any other task.
+	 */
+	private static class LocalBound implements SharedBound {
+		
+		/** The bound. */
+		private double bound = Double.MAX_VALUE;
+
+		/* (non-Javadoc)
+		 * @see api.SharedBound#get()
+		 */
+		@Override
+		public double get() {
+			return bound;
+		}
+
+		/* (non-Javadoc)
+		 * @see api.SharedBound#update(double, java.io.Serializable)
+		 */
+		@Override
+		public void update(double bound, Serializable solution) {
+			this.bound = Math.min(this.bound, bound);
+		}
+	}
+}
@@ -0,0 +1,255 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+import java.util.List;
+
+import api.AbstractTask;
+import api.Result;
+import api.SharedInput;
+
+/**
+ * This class represents a unit of task involved in solving a Traveling Salesman Problem (TSP) by the Held-Karp dynamic programming, where the cities are points in the 2D Euclidean plane.
+ * The Held-Karp table has an entry for every subset S of the cities other than city 0 and every city j in S: the cost of the shortest path that starts at city 0, visits all the cities of S and ends at j.
+ * The entries of the subsets of size k, the layer k, only depend on the entries of layer k - 1, so each task computes the entries of a range of the subsets of a layer from the previous layer, which is shared by all the tasks of the layer.
+ * A subset is a bit mask in which bit b stands for city b + 1, and the subsets of a layer are ranked in increasing order of their masks, which is the order of the combinatorial number system.
+ */
+public final class EuclideanTspHeldKarpTask extends AbstractTask<HeldKarpSlice> implements Externalizable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The largest number of cities, so that the subsets of the cities other than city 0 fit in the bits of an int and the parents fit in a byte. The size of the table limits the number of cities further, see MAX_LAYER_ENTRIES. */
+	public static final int MAX_CITIES = 31;
+
+	/** The largest number of entries of a layer, so that the costs and the parents of a layer fit in an array and are indexed by an int. */
+	public static final int MAX_LAYER_ENTRIES = Integer.MAX_VALUE - 8;
+
+	/** The cities in 2D Euclidean plane that are part of the TSP. They are shared by all the tasks of the job. */
+	private SharedInput<double[][]> cities;
+
+	/** The costs of the entries of the previous layer, in the order of the ranks of their subsets. They are shared by all the tasks of the layer. */
+	private SharedInput<double[]> previousLayer;
+
+	/** The size of the subsets of the layer. */
+	private int subsetSize;
+
+	/** The rank of the first subset computed by this task. */
+	private int fromRank;
+
+	/** The rank after the last subset computed by this task. */
+	private int toRank;
+
+	/**
+	 * Instantiates a new Euclidean TSP Held-Karp task. It is used by the deserialization, which sets the fields using readExternal.
+	 */
+	public EuclideanTspHeldKarpTask(){
+	}
+
+	/**
+	 * Instantiates a new Euclidean TSP Held-Karp task.
+	 *
+	 * @param cities the reference to the cities
+	 * @param previousLayer the reference to the costs of the entries of the previous layer
+	 * @param subsetSize the size of the subsets of the layer, at least 2
+	 * @param fromRank the rank of the first subset computed by this task
+	 * @param toRank the rank after the last subset computed by this task
+	 * @param taskId the task id
+	 * @throws IllegalArgumentException if the range has more than MAX_LAYER_ENTRIES entries
+	 */
+	public EuclideanTspHeldKarpTask(SharedInput<double[][]> cities, SharedInput<double[]> previousLayer, int subsetSize, int fromRank, int toRank, int taskId){
+		if((long) (toRank - fromRank) * subsetSize > MAX_LAYER_ENTRIES){
+			throw new IllegalArgumentException("The " + (toRank - fromRank) + " subsets of size " + subsetSize + " have more entries than an array holds");
+		}
+		this.cities = cities;
+		this.previousLayer = previousLayer;
+		this.subsetSize = subsetSize;
+		this.fromRank = fromRank;
+		this.toRank = toRank;
+		this.taskId = taskId;
+	}
+
+	/* (non-Javadoc)
+	 * @see api.AbstractTask#getSharedInputs()
+	 */
+	@Override
+	public List<SharedInput<?>> getSharedInputs() {
+		return Arrays.<SharedInput<?>>asList(cities, previousLayer);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(taskId);
+		out.writeInt(jobId);
+		out.writeObject(cities);
+		out.writeObject(previousLayer);
+		out.writeInt(subsetSize);
+		out.writeInt(fromRank);
+		out.writeInt(toRank);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		taskId = in.readInt();
+		jobId = in.readInt();
+		cities = (SharedInput<double[][]>) in.readObject();
+		previousLayer = (SharedInput<double[]>) in.readObject();
+		subsetSize = in.readInt();
+		fromRank = in.readInt();
+		toRank = in.readInt();
+	}
+
+	/**
+	 * Executes the Euclidean TSP Held-Karp Task.
+	 * The entry of a subset S and its city j is the least, over the other cities i of S, of the entry of S without j and its city i plus the distance between i and j.
+	 * @return the slice of the layer computed by this task
+	 */
+	@Override
+	public Result<HeldKarpSlice> execute() {
+		Result<HeldKarpSlice> result = new Result<HeldKarpSlice>();
+		result.setTaskId(this.taskId);
+		double[][] cities = this.cities.getValue();
+		double[] previous = this.previousLayer.getValue();
+		int numCities = cities.length;
+		double[] distances = getDistances(cities);
+		int[][] binomials = getBinomials(numCities - 1);
+
+		int k = subsetSize;
+		int numSubsets = toRank - fromRank;
+		double[] costs = new double[numSubsets * k];
+		byte[] parents = new byte[numSubsets * k];
+		// the cities of the current subset, in increasing order
+		int[] members = new int[k];
+		int subset = unrank(fromRank, k, binomials);
+		for(int r = 0; r < numSubsets; r++){
+			int numMembers = 0;
+			for(int bits = subset; bits != 0; bits &= bits - 1){
+				members[numMembers++] = Integer.numberOfTrailingZeros(bits) + 1;
+			}
+			for(int p = 0; p < k; p++){
+				int j = members[p];
+				// the entries of the subset without j start at this index of the previous layer, one for each of its cities in increasing order
+				int base = rank(subset & ~(1 << (j - 1)), binomials) * (k - 1);
+				double minCost = Double.MAX_VALUE;
+				int parent = 0;
+				int q = 0;
+				for(int pp = 0; pp < k; pp++){
+					if(pp == p){
+						continue;
+					}
+					int i = members[pp];
+					double cost = previous[base + q] + distances[i * numCities + j];
+					if(cost < minCost){
+						minCost = cost;
+						parent = i;
+					}
+					q++;
+				}
+				costs[r * k + p] = minCost;
+				parents[r * k + p] = (byte) parent;
+			}
+			subset = nextSubset(subset);
+		}
+		result.setTaskReturnValue(new HeldKarpSlice(fromRank, costs, parents));
+		return result;
+	}
+
+	/**
+	 * Gets the binomial coefficients up to n, where the coefficient n choose k is at [n][k].
+	 *
+	 * @param n the largest n
+	 * @return the binomial coefficients
+	 */
+	public static int[][] getBinomials(int n) {
+		int[][] binomials = new int[n + 1][n + 2];
+		for(int i = 0; i <= n; i++){
+			binomials[i][0] = 1;
+			for(int j = 1; j <= i; j++){
+				binomials[i][j] = binomials[i - 1][j - 1] + binomials[i - 1][j];
+			}
+		}
+		return binomials;
+	}
+
+	/**
+	 * Gets the rank of the subset among the subsets of its size.
+	 *
+	 * @param subset the subset
+	 * @param binomials the binomial coefficients
+	 * @return the rank
+	 */
+	public static int rank(int subset, int[][] binomials) {
+		int rank = 0;
+		int index = 1;
+		for(int bits = subset; bits != 0; bits &= bits - 1){
+			rank += binomials[Integer.numberOfTrailingZeros(bits)][index++];
+		}
+		return rank;
+	}
+
+	/**
+	 * Gets the subset of the given size that has the given rank.
+	 *
+	 * @param rank the rank
+	 * @param size the size of the subset
+	 * @param binomials the binomial coefficients
+	 * @return the subset
+	 */
+	public static int unrank(int rank, int size, int[][] binomials) {
+		int subset = 0;
+		int bit = binomials.length - 1;
+		for(int index = size; index > 0; index--){
+			while(binomials[bit][index] > rank){
+				bit--;
+			}
+			subset |= 1 << bit;
+			rank -= binomials[bit][index];
+			bit--;
+		}
+		return subset;
+	}
+
+	/**
+	 * Gets the next subset of the same size, which is the next greater mask with the same number of bits.
+	 *
+	 * @param subset the subset
+	 * @return the next subset
+	 */
+	private static int nextSubset(int subset) {
+		int lowest = subset & -subset;
+		int ripple = subset + lowest;
+		return ripple | (((subset ^ ripple) >>> 2) / lowest);
+	}
+
+	/**
+	 * Computes the distances between all the cities, as a flattened matrix.
+	 *
+	 * @param cities the cities
+	 * @return the distances, where the distance between city i and city j is at index i * cities.length + j
+	 */
+	public static double[] getDistances(double[][] cities) {
+		int numCities = cities.length;
+		double[] distances = new double[numCities * numCities];
+		for(int i = 0; i < numCities; i++){
+			for(int j = 0; j < numCities; j++){
+				double dx = cities[i][0] - cities[j][0];
+				double dy = cities[i][1] - cities[j][1];
+				distances[i * numCities + j] = Math.sqrt(dx * dx + dy * dy);
+			}
+		}
+		return distances;
+	}
+}
@@ -0,0 +1,527 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import api.AbstractTask;
+import api.Result;
+import api.SharedInput;
+import api.TourResult;
+
+/**
+ * This class represents a unit of task involved in finding a good tour of a large Traveling Salesman Problem (TSP), where the cities are points in the 2D Euclidean plane.
+ * The task builds a tour by a randomized nearest neighbor construction and improves it by 2-opt and Or-opt moves until no move improves it or its time limit has elapsed.
+ * The moves only join a city to one of its nearest neighbors, which are shared by all the tasks of the job, and a city is only looked at again once an edge next to it has changed.
+ * The tour is not guaranteed to be the shortest one; the tasks of the job differ in their seeds, so that they end up in different local optima.
+ */
+public final class EuclideanTspLocalSearchTask extends AbstractTask<TourResult> implements Externalizable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The default number of nearest neighbors of each city that are tried by the moves. */
+	public static final int DEFAULT_NUM_NEIGHBORS = 10;
+
+	/** The least amount by which a move has to shorten the tour, so that the rounding of the costs does not make the search cycle. */
+	private static final double EPSILON = 1e-10;
+
+	/** The longest segment of cities that is moved by an Or-opt move. */
+	private static final int MAX_SEGMENT_LENGTH = 3;
+
+	/** The construction goes to the second nearest unvisited city instead of the nearest one once in this many steps, on average. */
+	private static final int RANDOM_CHOICE = 10;
+
+	/** The number of cities looked at between the checks of the time limit. */
+	private static final int TIME_CHECK_INTERVAL = 256;
+
+	/** The cities in 2D Euclidean plane that are part of the TSP. They are shared by all the tasks of the job. */
+	private SharedInput<double[][]> cities;
+
+	/** The nearest neighbors of the cities, nearest first, where the neighbors of city i start at index i times the number of neighbors. They are shared by all the tasks of the job. */
+	private SharedInput<int[]> neighbors;
+
+	/** The seed of the random choices of the construction. */
+	private long seed;
+
+	/** The time in milliseconds after which the task returns the tour it has, even if it could still be improved. */
+	private long timeLimit;
+
+	/** The number of cities. */
+	private transient int numCities;
+
+	/** The coordinates of the cities. */
+	private transient double[][] points;
+
+	/** The nearest neighbors of the cities. */
+	private transient int[] neighborList;
+
+	/** The number of neighbors of each city. */
+	private transient int numNeighbors;
+
+	/** The tour. */
+	private transient int[] tour;
+
+	/** The position of each city in the tour. */
+	private transient int[] position;
+
+	/** The cities to be looked at, in a circular buffer. */
+	private transient int[] queue;
+
+	/** The index of the first city in the queue and the number of cities in the queue. */
+	private transient int queueHead, queueSize;
+
+	/** Whether each city is in the queue. */
+	private transient boolean[] queued;
+
+	/** The buffer into which the tour is rebuilt by the Or-opt moves. */
+	private transient int[] scratch;
+
+	/**
+	 * Instantiates a new Euclidean TSP local search task. It is used by the deserialization, which sets the fields using readExternal.
+	 */
+	public EuclideanTspLocalSearchTask(){
+	}
+
+	/**
+	 * Instantiates a new Euclidean TSP local search task.
+	 *
+	 * @param cities the reference to the cities
+	 * @param neighbors the reference to the nearest neighbors of the cities, as computed by getNeighbors
+	 * @param seed the seed of the random choices of the construction
+	 * @param timeLimit the time in milliseconds after which the task returns the tour it has
+	 * @param taskId the task id
+	 */
+	public EuclideanTspLocalSearchTask(SharedInput<double[][]> cities, SharedInput<int[]> neighbors, long seed, long timeLimit, int taskId){
+		this.cities = cities;
+		this.neighbors = neighbors;
+		this.seed = seed;
+		this.timeLimit = timeLimit;
+		this.taskId = taskId;
+	}
+
+	/* (non-Javadoc)
+	 * @see api.AbstractTask#getSharedInputs()
+	 */
+	@Override
+	public List<SharedInput<?>> getSharedInputs() {
+		return Arrays.<SharedInput<?>>asList(cities, neighbors);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(taskId);
+		out.writeInt(jobId);
+		out.writeObject(cities);
+		out.writeObject(neighbors);
+		out.writeLong(seed);
+		out.writeLong(timeLimit);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		taskId = in.readInt();
+		jobId = in.readInt();
+		cities = (SharedInput<double[][]>) in.readObject();
+		neighbors = (SharedInput<int[]>) in.readObject();
+		seed = in.readLong();
+		timeLimit = in.readLong();
+	}
+
+	/**
+	 * Executes the Euclidean TSP local search Task.
+	 * @return the tour found by this task, starting with city 0, and its cost
+	 */
+	@Override
+	public Result<TourResult> execute() {
+		Result<TourResult> result = new Result<TourResult>();
+		result.setTaskId(this.taskId);
+		long deadline = System.currentTimeMillis() + timeLimit;
+		points = this.cities.getValue();
+		neighborList = this.neighbors.getValue();
+		numCities = points.length;
+		numNeighbors = numCities == 0 ? 0 : neighborList.length / numCities;
+		tour = new int[numCities];
+		position = new int[numCities];
+		construct(new Random(seed));
+		if(numCities > 3){
+			improve(deadline);
+		}
+
+		// the tour is given starting with city 0
+		int[] minTour = new int[numCities];
+		double cost = 0;
+		int start = numCities == 0 ? 0 : position[0];
+		for(int i = 0; i < numCities; i++){
+			minTour[i] = tour[(start + i) % numCities];
+			if(i > 0){
+				cost += distance(minTour[i - 1], minTour[i]);
+			}
+		}
+		if(numCities > 1){
+			cost += distance(minTour[numCities - 1], minTour[0]);
+		}
+		result.setTaskReturnValue(new TourResult(minTour, cost));
+		return result;
+	}
+
+	/**
+	 * Builds the tour from a random city, going to the nearest unvisited city at every step, or now and then to the second nearest one.
+	 *
+	 * @param random the source of the random choices
+	 */
+	private void construct(Random random) {
+		if(numCities == 0){
+			return;
+		}
+		boolean[] visited = new boolean[numCities];
+		int current = random.nextInt(numCities);
+		for(int i = 0; i < numCities; i++){
+			if(i > 0){
+				int nearest = -1;
+				int second = -1;
+				for(int k = current * numNeighbors; k < (current + 1) * numNeighbors; k++){
+					int city = neighborList[k];
+					if(!visited[city]){
+						if(nearest < 0){
+							nearest = city;
+						}
+						else{
+							second = city;
+							break;
+						}
+					}
+				}
+				if(nearest < 0){
+					// all the neighbors have been visited, so the nearest unvisited city is looked for among all of them
+					double minDistance = Double.MAX_VALUE;
+					for(int city = 0; city < numCities; city++){
+						if(!visited[city] && distance(current, city) < minDistance){
+							minDistance = distance(current, city);
+							nearest = city;
+						}
+					}
+				}
+				else if(second >= 0 && random.nextInt(RANDOM_CHOICE) == 0){
+					nearest = second;
+				}
+				current = nearest;
+			}
+			visited[current] = true;
+			tour[i] = current;
+			position[current] = i;
+		}
+	}
+
+	/**
+	 * Improves the tour by 2-opt and Or-opt moves until no move improves it or the deadline has passed.
+	 *
+	 * @param deadline the time after which the tour is no longer improved
+	 */
+	private void improve(long deadline) {
+		queue = new int[numCities];
+		queued = new boolean[numCities];
+		scratch = new int[numCities];
+		queueHead = 0;
+		queueSize = 0;
+		for(int i = 0; i < numCities; i++){
+			push(tour[i]);
+		}
+		int numLooks = 0;
+		while(queueSize > 0){
+			if(++numLooks % TIME_CHECK_INTERVAL == 0 && System.currentTimeMillis() > deadline){
+				return;
+			}
+			int city = queue[queueHead];
+			queueHead = (queueHead + 1) % numCities;
+			queueSize--;
+			queued[city] = false;
+			if(twoOpt(city) || orOpt(city)){
+				push(city);
+			}
+		}
+	}
+
+	/**
+	 * Looks for a 2-opt move that replaces an edge of the city and another edge by an edge between the city and one of its neighbors and an edge between their former successors, or predecessors.
+	 * The first move found that shortens the tour is made.
+	 *
+	 * @param a the city
+	 * @return true, if the tour has been changed
+	 */
+	private boolean twoOpt(int a) {
+		int succA = next(a);
+		int predA = previous(a);
+		double succDistance = distance(a, succA);
+		double predDistance = distance(predA, a);
+		for(int k = a * numNeighbors; k < (a + 1) * numNeighbors; k++){
+			int c = neighborList[k];
+			double newDistance = distance(a, c);
+			if(newDistance >= succDistance && newDistance >= predDistance){
+				// the neighbors are sorted, so no farther neighbor gives a shorter tour
+				break;
+			}
+			if(newDistance < succDistance){
+				int succC = next(c);
+				if(c != succA && succC != a && newDistance + distance(succA, succC) - succDistance - distance(c, succC) < -EPSILON){
+					// a succA ... c succC becomes a c ... succA succC
+					reverse(position[succA], position[c]);
+					push(succA);
+					push(c);
+					push(succC);
+					return true;
+				}
+			}
+			if(newDistance < predDistance){
+				int predC = previous(c);
+				if(c != predA && predC != a && newDistance + distance(predA, predC) - predDistance - distance(predC, c) < -EPSILON){
+					// predA a ... predC c becomes predA predC ... a c
+					reverse(position[a], position[predC]);
+					push(predA);
+					push(predC);
+					push(c);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Looks for an Or-opt move that moves the segment of up to MAX_SEGMENT_LENGTH cities that starts at the city to a place next to a neighbor of one of its ends, in either direction.
+	 * The first move found that shortens the tour is made.
+	 *
+	 * @param first the first city of the segment
+	 * @return true, if the tour has been changed
+	 */
+	private boolean orOpt(int first) {
+		int start = position[first];
+		for(int length = 1; length <= MAX_SEGMENT_LENGTH && length + 3 <= numCities; length++){
+			int last = tour[(start + length - 1) % numCities];
+			int before = previous(first);
+			int after = next(last);
+			double removalGain = distance(before, first) + distance(last, after) - distance(before, after);
+			if(removalGain <= EPSILON){
+				continue;
+			}
+			// a segment of a single city has a single end
+			for(int end = 0; end < (length == 1 ? 1 : 2); end++){
+				int city = end == 0 ? first : last;
+				for(int k = city * numNeighbors; k < (city + 1) * numNeighbors; k++){
+					int c = neighborList[k];
+					if(distance(city, c) >= removalGain){
+						break;
+					}
+					if(inSegment(c, start, length)){
+						continue;
+					}
+					// the segment is placed either between c and its successor or between its predecessor and c, with the end city next to c
+					int succC = next(c);
+					if(!inSegment(succC, start, length)){
+						boolean reversed = city == last;
+						double insertion = distance(c, city) + distance(reversed ? first : last, succC) - distance(c, succC);
+						if(insertion - removalGain < -EPSILON){
+							moveSegment(start, length, c, reversed);
+							push(before);
+							push(after);
+							push(last);
+							push(c);
+							push(succC);
+							return true;
+						}
+					}
+					int predC = previous(c);
+					if(!inSegment(predC, start, length)){
+						boolean reversed = city == first;
+						double insertion = distance(predC, reversed ? last : first) + distance(city, c) - distance(predC, c);
+						if(insertion - removalGain < -EPSILON){
+							moveSegment(start, length, predC, reversed);
+							push(before);
+							push(after);
+							push(last);
+							push(predC);
+							push(c);
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the city is in the segment of the tour.
+	 *
+	 * @param city the city
+	 * @param start the position of the first city of the segment
+	 * @param length the number of cities of the segment
+	 * @return true, if the city is in the segment
+	 */
+	private boolean inSegment(int city, int start, int length) {
+		int offset = position[city] - start;
+		if(offset < 0){
+			offset += numCities;
+		}
+		return offset < length;
+	}
+
+	/**
+	 * Moves the segment of the tour to the place right after the given city, which is not in the segment.
+	 *
+	 * @param start the position of the first city of the segment
+	 * @param length the number of cities of the segment
+	 * @param target the city after which the segment is placed
+	 * @param reversed whether the segment is placed in the reverse direction
+	 */
+	private void moveSegment(int start, int length, int target, boolean reversed) {
+		int index = 0;
+		int from = (start + length) % numCities;
+		for(int i = 0; i < numCities - length; i++){
+			int city = tour[(from + i) % numCities];
+			scratch[index++] = city;
+			if(city == target){
+				for(int j = 0; j < length; j++){
+					scratch[index++] = tour[(start + (reversed ? length - 1 - j : j)) % numCities];
+				}
+			}
+		}
+		int[] swap = tour;
+		tour = scratch;
+		scratch = swap;
+		for(int i = 0; i < numCities; i++){
+			position[tour[i]] = i;
+		}
+	}
+
+	/**
+	 * Reverses the part of the tour from position i to position j, going forward. Since the tour is a cycle, the other part is reversed instead if it is shorter.
+	 *
+	 * @param i the first position
+	 * @param j the last position
+	 */
+	private void reverse(int i, int j) {
+		int length = j - i;
+		if(length < 0){
+			length += numCities;
+		}
+		length++;
+		if(2 * length > numCities){
+			int k = i;
+			i = (j + 1) % numCities;
+			j = (k - 1 + numCities) % numCities;
+			length = numCities - length;
+		}
+		for(int s = 0; s < length / 2; s++){
+			int cityI = tour[i];
+			int cityJ = tour[j];
+			tour[i] = cityJ;
+			position[cityJ] = i;
+			tour[j] = cityI;
+			position[cityI] = j;
+			i = (i + 1) % numCities;
+			j = (j - 1 + numCities) % numCities;
+		}
+	}
+
+	/**
+	 * Adds the city to the cities to be looked at, unless it is already there.
+	 *
+	 * @param city the city
+	 */
+	private void push(int city) {
+		if(!queued[city]){
+			queued[city] = true;
+			queue[(queueHead + queueSize) % numCities] = city;
+			queueSize++;
+		}
+	}
+
+	/**
+	 * Gets the city after the given one in the tour.
+	 *
+	 * @param city the city
+	 * @return the next city
+	 */
+	private int next(int city) {
+		int i = position[city] + 1;
+		return tour[i == numCities ? 0 : i];
+	}
+
+	/**
+	 * Gets the city before the given one in the tour.
+	 *
+	 * @param city the city
+	 * @return the previous city
+	 */
+	private int previous(int city) {
+		int i = position[city] - 1;
+		return tour[i < 0 ? numCities - 1 : i];
+	}
+
+	/**
+	 * Calculates the distance between two cities.
+	 *
+	 * @param i the first city
+	 * @param j the second city
+	 * @return the distance
+	 */
+	private double distance(int i, int j) {
+		double dx = points[i][0] - points[j][0];
+		double dy = points[i][1] - points[j][1];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Gets the nearest neighbors of every city, nearest first, to be shared by the tasks of a job.
+	 *
+	 * @param cities the cities
+	 * @param numNeighbors the number of neighbors of each city; fewer are kept if there are not as many other cities
+	 * @return the neighbors, where the neighbors of city i start at index i times the number of neighbors kept
+	 */
+	public static int[] getNeighbors(double[][] cities, int numNeighbors) {
+		int numCities = cities.length;
+		int k = Math.max(0, Math.min(numNeighbors, numCities - 1));
+		int[] neighbors = new int[numCities * k];
+		double[] nearestDistances = new double[k];
+		for(int i = 0; i < numCities; i++){
+			int base = i * k;
+			int count = 0;
+			for(int j = 0; j < numCities; j++){
+				if(j == i){
+					continue;
+				}
+				double dx = cities[i][0] - cities[j][0];
+				double dy = cities[i][1] - cities[j][1];
+				double d = dx * dx + dy * dy;
+				if(count == k && (k == 0 || d >= nearestDistances[k - 1])){
+					continue;
+				}
+				// insertion into the sorted list of the nearest cities found so far
+				int index = count < k ? count++ : k - 1;
+				while(index > 0 && nearestDistances[index - 1] > d){
+					nearestDistances[index] = nearestDistances[index - 1];
+					neighbors[base + index] = neighbors[base + index - 1];
+					index--;
+				}
+				nearestDistances[index] = d;
+				neighbors[base + index] = j;
+			}
+		}
+		return neighbors;
+	}
+}
@@ -3,29 +3,60 @@
  */
 package tasks;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.List;
 
+import api.AbstractTask;
+import api.ArrayCodec;
 import api.Result;
-import api.Task;
+import api.SharedInput;
+import api.TourResult;
 
 /**
  * This class represents a unit of task involved in solving a Traveling Salesman Problem (TSP), where the cities are points in the 2D Euclidean plane.
  */
-public final class EuclideanTspTask implements Task<Map<int[], Double>>{
+public final class EuclideanTspTask extends AbstractTask<TourResult> implements Externalizable{
 
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
 	
-	/** The cities in 2D Euclidean plane that are part of the TSP. */
-	private double[][] cities;
+	/** The relative difference up to which the cost of a tour and the cost of its reverse may differ because of the rounding of their sums. */
+	private static final double REVERSE_TOLERANCE = 1e-9;
+	
+	/** The cities in 2D Euclidean plane that are part of the TSP. They are shared by all the tasks of the job. */
+	private SharedInput<double[][]> cities;
 	
 	/** The taskPermutation denotes the permutation of cities given to this task */
 	private int[] taskPermutation;
 	
-	/** The task id. */
-	private int taskId;
+	/** The number of cities at the start of the taskPermutation that are fixed; the task iterates over the permutations of the remaining cities. */
+	private int prefixLength;
+	
+	/** The number of cities. */
+	private transient int numCities;
+	
+	/** The distances between the cities, where the distance between city i and city j is at index i * numCities + j. */
+	private transient double[] distances;
+	
+	/** The cost of the shortest tour found by this task. */
+	private transient double minDistance;
+	
+	/** The shortest tour found by this task; null if the task has found no tour. */
+	private transient int[] minTour;
+	
+	/** The cost up to which a tour may be shorter than the shortest tour found by this task in one of its directions. */
+	private transient double reverseThreshold;
+	
+	/**
+	 * Instantiates a new Euclidean TSP task. It is used by the deserialization, which sets the fields using readExternal.
+	 */
+	public EuclideanTspTask(){
+	}
 	
 	/**
 	 * Instantiates a new Euclidean TSP task.
@@ -33,7 +64,7 @@ public final class EuclideanTspTask implements Task<Map<int[], Double>>{
 	 * @param cities the cities in 2D Euclidean plane that are part of the TSP; it codes the x and y coordinates of city[i]: cities[i][0] is the x-coordinate of city[i] and cities[i][1] is the y-coordinate of city[i]
 	 */
 	public EuclideanTspTask(double[][] cities){
-		this.cities = cities;		
+		this.cities = new SharedInput<double[][]>(cities);		
 	}
 	
 	/**
@@ -44,60 +75,234 @@ public final class EuclideanTspTask implements Task<Map<int[], Double>>{
 	 * @param taskId the task id
 	 */
 	public EuclideanTspTask(double[][] cities, int[] permutation, int taskId){
+		this(new SharedInput<double[][]>(cities), permutation, taskId);
+	}
+	
+	/**
+	 * Instantiates a new euclidean tsp task whose cities have been put into the Space as a shared input, so that they are not sent with every task.
+	 *
+	 * @param cities the reference to the cities
+	 * @param permutation the original permutation of the cities given to this Task
+	 * @param taskId the task id
+	 */
+	public EuclideanTspTask(SharedInput<double[][]> cities, int[] permutation, int taskId){
+		this(cities, permutation, 1, taskId);
+	}
+	
+	/**
+	 * Instantiates a new euclidean tsp task that iterates over the tours that start with city 0 followed by the first prefixLength cities of the permutation.
+	 *
+	 * @param cities the reference to the cities
+	 * @param permutation the original permutation of the cities given to this Task
+	 * @param prefixLength the number of cities at the start of the permutation that are fixed
+	 * @param taskId the task id
+	 */
+	public EuclideanTspTask(SharedInput<double[][]> cities, int[] permutation, int prefixLength, int taskId){
 		this.cities = cities;
 		this.taskPermutation = permutation;	
+		this.prefixLength = prefixLength;
 		this.taskId = taskId;
 	}
+	
+	/* (non-Javadoc)
+	 * @see api.AbstractTask#getSharedInputs()
+	 */
+	@Override
+	public List<SharedInput<?>> getSharedInputs() {
+		return Collections.<SharedInput<?>>singletonList(cities);
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(taskId);
+		out.writeInt(jobId);
+		out.writeObject(cities);
+		ArrayCodec.writeInts(out, taskPermutation);
+		out.writeInt(prefixLength);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		taskId = in.readInt();
+		jobId = in.readInt();
+		cities = (SharedInput<double[][]>) in.readObject();
+		taskPermutation = ArrayCodec.readInts(in);
+		prefixLength = in.readInt();
+	}
+	
 	/**
 	 * Executes the Euclidean TSP Task.
-	 * The method of finding the minimal distance tour is efficient; the program will fix one point as the starting point and iterate over all the remaining permutations of the cities, and returns a permutation of least cost. 
-	 * @return a map of the minimal tour among the permutations computed by this task and the cost involved for that tour. 	
+	 * The method of finding the minimal distance tour is efficient; the program will fix city 0 and the prefix of the task's permutation as the start of the tour and iterate over all the permutations of the remaining cities, and returns a permutation of least cost. 
+	 * Since a tour costs the same in either direction, only the canonical tours, whose second city is smaller than their last city, are iterated over; the cost of the reverse of a tour is computed only when the tour is as short as the shortest one so far.
+	 * The distances between the cities are computed once, and since the next permutation in lexicographic order only changes a suffix of the permutation,
+	 * the costs of the paths up to each city of the permutation are kept and only the costs of the changed suffix are computed again.
+	 * @return the minimal tour among the permutations computed by this task and its cost; null if the task has no canonical tour.
 	 */
 	@Override
-	public Result<Map<int[], Double>> execute() {
+	public Result<TourResult> execute() {
 		// tour lists the order of the cities of a minimal distance tour.
-		Result<Map<int[], Double>> result = new Result<Map<int[], Double>>();		
+		Result<TourResult> result = new Result<TourResult>();		
 		result.setTaskId(this.taskId);
-		// Variable to hold the minimum distance between all the cities.
-		double minDistance = Double.MAX_VALUE;
-		// Array to hold the nth permutation. The first element is fixed and the permutation of the remaining elements are computed
-		int[] permutation = Arrays.copyOfRange(this.taskPermutation, 1, this.taskPermutation.length);
-		// set n = 2 since the first permutation is not needed.
-		int n = 2;
-		
-		// a map of the minimal tour among the permutations computed by this task and the cost involved for that tour.
-		Map<int[], Double> minTourMap = new HashMap<int[], Double>(1);
-		
-		int[] tour = new int[cities.length];
+		double[][] cities = this.cities.getValue();
+		numCities = cities.length;
+		distances = getDistances(cities);
+		minDistance = Double.MAX_VALUE;
+		minTour = null;
+		reverseThreshold = Double.MAX_VALUE;
+		// Array to hold the current permutation. The prefix is fixed and the permutations of the remaining elements are computed
+		int[] permutation = this.taskPermutation.clone();
+		int fixed = Math.min(prefixLength, permutation.length);
+		if(fixed == 0 && permutation.length > 0){
+			// the second city of the tour is not fixed, so each city takes its turn
+			int[] secondCities = permutation.clone();
+			for(int second : secondCities){
+				int index = 0;
+				permutation[index++] = second;
+				for(int city : secondCities){
+					if(city != second){
+						permutation[index++] = city;
+					}
+				}
+				search(permutation, 1);
+			}
+		}
+		else{
+			search(permutation, fixed);
+		}
 		
-		// currentDistance holds the distance traveled for the given permutation of the cities
-		double currentDistance = 0; 
-		double initDistance = calculateDistance(cities[0], cities[this.taskPermutation[0]]);
+		result.setTaskReturnValue(minTour == null ? null : new TourResult(minTour, minDistance));
 		
-		while(true){			
-			permutation = getPermutation(permutation, n++);
-			if(permutation == null){ // All the permutations have been computed. No more left.
-				break;
+		return result;
+	}
+	
+	/**
+	 * Iterates over the canonical tours that start with city 0 followed by the fixed prefix of the permutation. For each city greater than the second city of the tour that can end it,
+	 * the city is placed at the end of the permutation and the permutations of the cities in between are iterated over.
+	 *
+	 * @param permutation the permutation, whose first cities are fixed
+	 * @param fixed the number of fixed cities
+	 */
+	private void search(int[] permutation, int fixed) {
+		int length = permutation.length;
+		Arrays.sort(permutation, fixed, length);
+		if(length - fixed < 2){
+			// the task has a single tour
+			if(length < 2 || permutation[0] < permutation[length - 1]){
+				double currentDistance = 0;
+				for(int j = 0; j < length; j++){
+					currentDistance += distances[(j == 0 ? 0 : permutation[j - 1]) * numCities + permutation[j]];
+				}
+				if(length > 0){
+					currentDistance += distances[permutation[length - 1] * numCities];
+				}
+				consider(permutation, currentDistance);
 			}
-			currentDistance = initDistance;
-			currentDistance += calculateDistance(cities[this.taskPermutation[0]], cities[permutation[0]]);
-			for(int j = 0; j < permutation.length - 1; j++){
-				currentDistance += calculateDistance(cities[permutation[j]], cities[permutation[j + 1]]);				
+			return;
+		}
+		int[] freeCities = Arrays.copyOfRange(permutation, fixed, length);
+		// pathDistances[j] holds the distance traveled from city 0 through the permutation up to permutation[j]
+		double[] pathDistances = new double[length];
+		for(int last : freeCities){
+			if(last < permutation[0]){
+				continue;
 			}
-			currentDistance += calculateDistance(cities[permutation[permutation.length - 1]], cities[0]);
-			
-			if(minDistance > currentDistance){
-				minDistance = currentDistance;
-				//minPerm = Arrays.copyOf(permutation, permutation.length);
-				copyArray(permutation, tour, 2);
+			// the cities in between are placed in increasing order, which is their first permutation in lexicographic order
+			int index = fixed;
+			for(int city : freeCities){
+				if(city != last){
+					permutation[index++] = city;
+				}
 			}
-			
-		}		
-		tour[1] = this.taskPermutation[0];
-		minTourMap.put(tour, minDistance);
-		result.setTaskReturnValue(minTourMap);
-		
-		return result;
+			permutation[length - 1] = last;
+			// the index from which the permutation has changed; the first permutation is computed entirely
+			int changed = 0;
+			while(changed >= 0){
+				for(int j = changed; j < length; j++){
+					if(j == 0){
+						pathDistances[j] = distances[permutation[0]];
+					}
+					else{
+						pathDistances[j] = pathDistances[j - 1] + distances[permutation[j - 1] * numCities + permutation[j]];
+					}
+				}
+				// currentDistance holds the distance traveled for the given permutation of the cities
+				double currentDistance = pathDistances[length - 1] + distances[last * numCities];
+				if(currentDistance <= reverseThreshold){
+					consider(permutation, currentDistance);
+				}
+				changed = nextPermutation(permutation, fixed, length - 1);
+			}
+		}
+	}
+	
+	/**
+	 * Keeps the tour given by the permutation, or its reverse, if it is shorter than the shortest tour so far.
+	 * The cost of the reverse tour is added up in its own order, since it may differ from the cost of the tour in the last bits, and the exhaustive search over all the tours would keep the smaller one.
+	 * Of the tours that cost exactly the same, the one that comes first in lexicographic order is kept, which is the one that the exhaustive search finds first.
+	 *
+	 * @param permutation the permutation of the tour, after city 0
+	 * @param currentDistance the cost of the tour
+	 */
+	private void consider(int[] permutation, double currentDistance) {
+		int length = permutation.length;
+		if(currentDistance <= minDistance){
+			int[] tour = new int[numCities];
+			copyArray(permutation, tour, 1);
+			keep(tour, currentDistance);
+		}
+		if(length < 2){
+			return;
+		}
+		double reverseDistance = distances[permutation[length - 1]];
+		for(int j = length - 1; j > 0; j--){
+			reverseDistance += distances[permutation[j] * numCities + permutation[j - 1]];
+		}
+		reverseDistance += distances[permutation[0] * numCities];
+		if(reverseDistance <= minDistance){
+			int[] tour = new int[numCities];
+			for(int j = 0; j < length; j++){
+				tour[j + 1] = permutation[length - 1 - j];
+			}
+			keep(tour, reverseDistance);
+		}
+	}
+	
+	/**
+	 * Keeps the tour if it is shorter than the shortest tour so far, or if it costs the same and comes first in lexicographic order.
+	 *
+	 * @param tour the tour
+	 * @param distance the cost of the tour
+	 */
+	private void keep(int[] tour, double distance) {
+		if(distance < minDistance || (distance == minDistance && TourResult.precedes(tour, minTour))){
+			minDistance = distance;
+			minTour = tour;
+			reverseThreshold = minDistance * (1 + REVERSE_TOLERANCE);
+		}
+	}
+	
+	/**
+	 * Computes the distances between all the cities, as a flattened matrix.
+	 *
+	 * @param cities the cities
+	 * @return the distances, where the distance between city i and city j is at index i * cities.length + j
+	 */
+	private double[] getDistances(double[][] cities) {
+		int numCities = cities.length;
+		double[] distances = new double[numCities * numCities];
+		for(int i = 0; i < numCities; i++){
+			for(int j = 0; j < numCities; j++){
+				distances[i * numCities + j] = calculateDistance(cities[i], cities[j]);
+			}
+		}
+		return distances;
 	}
 	
 	/**
@@ -113,33 +318,29 @@ public final class EuclideanTspTask implements Task<Map<int[], Double>>{
 		}
 	}
 	/**
-	 * Generate the nth permutations in lexicographic order.
+	 * Rearranges the elements of the permutation in the given range in place into their next permutation in lexicographic order.
 	 *
-	 * @param permutation the (n-1)th permutation array; when n = 1, it is just 0 to permutation length - 1
-	 * @param n the nth permutation to be computed
-	 * @return the nth permutation
-	 */
-	private int[] getPermutation(int[] permutation, int n) {
-		if(n == 1){ // the first permutation is just 0 to permutation length - 1 (0 to no. of cities - 1)
-			for (int i = 0; i < permutation.length; i++)
-		    	permutation[i] = i;
-			return permutation;
-		}
+	 * @param permutation the permutation
+	 * @param from the index of the first element that is permuted; the elements before it are fixed
+	 * @param to the index after the last element that is permuted; the elements from it are fixed
+	 * @return the index of the first element that has changed; -1 if the elements are in their last permutation, in which case they are left unchanged
+	 */
+	private int nextPermutation(int[] permutation, int from, int to) {
 		int k, l;
         // Find the largest index k such that a[k] < a[k + 1]. If no such index exists, the permutation is the last permutation.
-        for (k = permutation.length - 2; k >=0 && permutation[k] >= permutation[k+1]; k--);
-        if(k == -1){
-        	return null;
+        for (k = to - 2; k >= from && permutation[k] >= permutation[k+1]; k--);
+        if(k < from){
+        	return -1;
         }
         // Find the largest index l such that a[k] < a[l]. Since k + 1 is such an index, l is well defined and satisfies k < l.
-        for (l = permutation.length - 1; permutation[k] >= permutation[l]; l--);
+        for (l = to - 1; permutation[k] >= permutation[l]; l--);
         // Swap a[k] with a[l].
         swap(permutation, k, l);
-        // Reverse the sequence from a[k + 1] up to and including the final element a[n].
-        for (int j = 1; k + j < permutation.length - j; j++){
-        	swap(permutation, k + j, permutation.length - j);
+        // Reverse the sequence from a[k + 1] up to and including the final element a[to - 1].
+        for (int j = 1; k + j < to - j; j++){
+        	swap(permutation, k + j, to - j);
         }
-        return permutation;
+        return k;
 	}
 	
 	/**
@@ -188,6 +389,7 @@ public final class EuclideanTspTask implements Task<Map<int[], Double>>{
 	 * @return the distance
 	 */
 	private double getDistance(int[] permutation){
+		double[][] cities = this.cities.getValue();
 		double currentDistance = 0;
 		
 		currentDistance = calculateDistance(cities[this.taskPermutation[0]], cities[permutation[0]]);
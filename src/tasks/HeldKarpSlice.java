@@ -0,0 +1,98 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import api.ArrayCodec;
+
+/**
+ * A slice of a layer of the Held-Karp table, which is computed by a EuclideanTspHeldKarpTask.
+ * The slice holds the entries of a contiguous range of the subsets of the layer, in the order of their ranks; each subset has one entry for each of its cities, in increasing order of the cities.
+ */
+public final class HeldKarpSlice implements Externalizable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The rank of the first subset of the slice. */
+	private int fromRank;
+
+	/** The cost of the shortest path that starts at city 0, visits all the cities of the subset and ends at the city of the entry. */
+	private double[] costs;
+
+	/** The city visited just before the city of the entry on the shortest path. */
+	private byte[] parents;
+
+	/**
+	 * Instantiates a new Held-Karp slice. It is used by the deserialization, which sets the fields using readExternal.
+	 */
+	public HeldKarpSlice(){
+	}
+
+	/**
+	 * Instantiates a new Held-Karp slice.
+	 *
+	 * @param fromRank the rank of the first subset of the slice
+	 * @param costs the costs of the entries
+	 * @param parents the parents of the entries
+	 */
+	public HeldKarpSlice(int fromRank, double[] costs, byte[] parents){
+		this.fromRank = fromRank;
+		this.costs = costs;
+		this.parents = parents;
+	}
+
+	/**
+	 * Gets the rank of the first subset of the slice.
+	 *
+	 * @return the rank
+	 */
+	public int getFromRank() {
+		return fromRank;
+	}
+
+	/**
+	 * Gets the costs of the entries.
+	 *
+	 * @return the costs
+	 */
+	public double[] getCosts() {
+		return costs;
+	}
+
+	/**
+	 * Gets the parents of the entries.
+	 *
+	 * @return the parents
+	 */
+	public byte[] getParents() {
+		return parents;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(fromRank);
+		ArrayCodec.writeDoubles(out, costs);
+		out.writeInt(parents.length);
+		out.write(parents);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		fromRank = in.readInt();
+		costs = ArrayCodec.readDoubles(in);
+		parents = new byte[in.readInt()];
+		in.readFully(parents);
+	}
+}
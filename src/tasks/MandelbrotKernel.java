@@ -0,0 +1,30 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+/**
+ * A kernel that computes the counts of a row of squares of the Mandelbrot set region at once.
+ * The counts must be bit-identical to the ones computed one square at a time by MandelbrotSetTask, so that the kernel used by a Computer does not show in the picture.
+ * A kernel may give a square the iteration limit as its count without iterating up to it, but only when the square is known to be in the set, as MandelbrotSetTask.isInMainCardioidOrBulb does,
+ * or when its orbit has returned exactly to an earlier point, since the orbit then repeats forever without escaping.
+ */
+public interface MandelbrotKernel {
+
+	/**
+	 * Computes the counts of a range of the squares of a row. The real part of the representative point is the same for all the squares of the row,
+	 * and the imaginary part of the point of square j is imagCorner + (j * edgeLength / numSquares).
+	 *
+	 * @param realCoordinate the real part of the representative points of the row
+	 * @param imagCorner the imaginary part of the left corner of the region
+	 * @param edgeLength the edge length of the region
+	 * @param numSquares the number of squares in the row
+	 * @param startColumn the first square of the range
+	 * @param numColumns the number of squares of the range
+	 * @param iterationLimit the iteration limit
+	 * @param interiorChecks whether the squares in the set are looked for without iterating up to the iteration limit
+	 * @param counts the array into which the counts are written
+	 * @param offset the index in counts of the count of the first square of the range; the counts of the range are written in increasing order of the squares
+	 */
+	void computeRow(double realCoordinate, double imagCorner, double edgeLength, int numSquares, int startColumn, int numColumns, int iterationLimit, boolean interiorChecks, int[] counts, int offset);
+}
@@ -0,0 +1,191 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Collections;
+import java.util.List;
+
+import api.AbstractTask;
+import api.Result;
+import api.SharedInput;
+
+/**
+ * This class represents a unit of work of a deep zoom into the Mandelbrot set, where the squares are too small for their points to be told apart in double precision.
+ * The orbit of a reference point is computed once in high precision by the job and shared by all its tasks; the orbit of the point of each square is then iterated in double precision as its difference, or delta, from the reference orbit:
+ * if z = Z + dz and c = C + dc, then the next delta is dz' = (2Z + dz)dz + dc, in which all the terms are as small as the squares.
+ * Where |Z + dz| becomes smaller than |dz|, the delta has lost the precision that it needs relative to the orbit (a glitch), and where the reference orbit ends before the limit, there is no reference left to follow:
+ * in both cases the delta is rebased on the start of the reference orbit, taking the full value Z + dz as the new delta, which is exact since the reference orbit starts at 0.
+ * The counts are the ones of MandelbrotSetTask, and are returned in the order of the framebuffer of MandelbrotSetJob: row after row, with the columns of each row in decreasing order.
+ */
+public final class MandelbrotSetPerturbationTask extends AbstractTask<int[]> implements Externalizable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The reference orbit, as the real and imaginary parts of each of its points in turn, starting at 0. It is shared by all the tasks of the job. */
+	private SharedInput<double[]> referenceOrbit;
+
+	/** The edge length of a square in the complex plane. */
+	private double squareSize;
+
+	/** The row of the square whose point is the reference point. */
+	private int referenceRow;
+
+	/** The column of the square whose point is the reference point. */
+	private int referenceColumn;
+
+	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
+	private int iterationLimit;
+
+	/** The first row of the tile that this task works upon. */
+	private int startRow;
+
+	/** The number of rows of the tile that this task works upon. */
+	private int numRows;
+
+	/** The first column of the tile that this task works upon. */
+	private int startColumn;
+
+	/** The number of columns of the tile that this task works upon. */
+	private int numColumns;
+
+	/**
+	 * Instantiates a new Mandelbrot set perturbation task. It is used by the deserialization, which sets the fields using readExternal.
+	 */
+	public MandelbrotSetPerturbationTask(){
+	}
+
+	/**
+	 * Instantiates a new Mandelbrot set perturbation task.
+	 *
+	 * @param referenceOrbit the reference to the reference orbit, as the real and imaginary parts of each of its points in turn, starting at 0
+	 * @param squareSize the edge length of a square in the complex plane
+	 * @param referenceRow the row of the square whose point is the reference point
+	 * @param referenceColumn the column of the square whose point is the reference point
+	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 * @param startRow the first row of the tile
+	 * @param numRows the number of rows of the tile
+	 * @param startColumn the first column of the tile
+	 * @param numColumns the number of columns of the tile
+	 * @param taskId the task id
+	 */
+	public MandelbrotSetPerturbationTask(SharedInput<double[]> referenceOrbit, double squareSize, int referenceRow, int referenceColumn, int iterationLimit, int startRow, int numRows, int startColumn, int numColumns, int taskId){
+		this.referenceOrbit = referenceOrbit;
+		this.squareSize = squareSize;
+		this.referenceRow = referenceRow;
+		this.referenceColumn = referenceColumn;
+		this.iterationLimit = iterationLimit;
+		this.startRow = startRow;
+		this.numRows = numRows;
+		this.startColumn = startColumn;
+		this.numColumns = numColumns;
+		this.taskId = taskId;
+	}
+
+	/* (non-Javadoc)
+	 * @see api.AbstractTask#getSharedInputs()
+	 */
+	@Override
+	public List<SharedInput<?>> getSharedInputs() {
+		return Collections.<SharedInput<?>>singletonList(referenceOrbit);
+	}
+
+	/**
+	 * Computes the counts of the squares of the tile by perturbation of the reference orbit.
+	 *
+	 * @return the counts, row after row, with the columns of each row in decreasing order
+	 */
+	@Override
+	public Result<int[]> execute() {
+		Result<int[]> result = new Result<int[]>();
+		result.setTaskId(this.taskId);
+		double[] orbit = referenceOrbit.getValue();
+		int[] counts = new int[numRows * numColumns];
+		int index = 0;
+		for(int row = startRow; row < startRow + numRows; row++){
+			double dcReal = (row - referenceRow) * squareSize;
+			for(int column = startColumn + numColumns - 1; column >= startColumn; column--){
+				counts[index++] = getK(orbit, dcReal, (column - referenceColumn) * squareSize, iterationLimit);
+			}
+		}
+		result.setTaskReturnValue(counts);
+		return result;
+	}
+
+	/**
+	 * Gets the value of k for the point at the given delta from the reference point, counting the iterations as MandelbrotSetTask does.
+	 *
+	 * @param orbit the reference orbit, as the real and imaginary parts of each of its points in turn, starting at 0
+	 * @param dcReal the real part of the delta of the point from the reference point
+	 * @param dcImag the imaginary part of the delta of the point from the reference point
+	 * @param iterationLimit the iteration limit
+	 * @return k
+	 */
+	static int getK(double[] orbit, double dcReal, double dcImag, int iterationLimit){
+		int orbitLength = orbit.length / 2;
+		int k = 1;
+		// the index of the point of the reference orbit that the delta is taken from
+		int m = 0;
+		double dzReal = 0, dzImag = 0;
+		double real = 0, imag = 0;
+		while( (real * real + imag * imag < 4) && k < iterationLimit){
+			double twoZPlusDzReal = 2 * orbit[2 * m] + dzReal;
+			double twoZPlusDzImag = 2 * orbit[2 * m + 1] + dzImag;
+			double temp = twoZPlusDzReal * dzReal - twoZPlusDzImag * dzImag + dcReal;
+			dzImag = twoZPlusDzReal * dzImag + twoZPlusDzImag * dzReal + dcImag;
+			dzReal = temp;
+			m++;
+			real = orbit[2 * m] + dzReal;
+			imag = orbit[2 * m + 1] + dzImag;
+			k++;
+			if(m == orbitLength - 1 || real * real + imag * imag < dzReal * dzReal + dzImag * dzImag){
+				dzReal = real;
+				dzImag = imag;
+				m = 0;
+			}
+		}
+		return k;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(taskId);
+		out.writeInt(jobId);
+		out.writeObject(referenceOrbit);
+		out.writeDouble(squareSize);
+		out.writeInt(referenceRow);
+		out.writeInt(referenceColumn);
+		out.writeInt(iterationLimit);
+		out.writeInt(startRow);
+		out.writeInt(numRows);
+		out.writeInt(startColumn);
+		out.writeInt(numColumns);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		taskId = in.readInt();
+		jobId = in.readInt();
+		referenceOrbit = (SharedInput<double[]>) in.readObject();
+		squareSize = in.readDouble();
+		referenceRow = in.readInt();
+		referenceColumn = in.readInt();
+		iterationLimit = in.readInt();
+		startRow = in.readInt();
+		numRows = in.readInt();
+		startColumn = in.readInt();
+		numColumns = in.readInt();
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+
+import api.AbstractTask;
+import api.ArrayCodec;
+import api.Result;
+
+/**
+ * This class represents a unit of work of a pass of a progressive Mandelbrot set job: it computes the squares of a band of rows whose row and column are multiples of the stride of the pass.
+ * In the passes after the first one, the squares whose row and column are both multiples of twice the stride have been computed by the previous passes, and are skipped.
+ * The counts are the ones of MandelbrotSetTask, and are returned in the order of the framebuffer of the job: row after row, with the columns of each row in decreasing order.
+ */
+public final class MandelbrotSetSampleTask extends AbstractTask<int[]> implements Externalizable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The left corner coordinates of the square in the complex plane. */
+	private double[] leftCornerCoordinates;
+
+	/** The edge length of the square in the complex plane. */
+	private double edgeLength;
+
+	/** The numSquares denotes the number of pixels (n x n squares) inside the square region in the complex plane. */
+	private int numSquares;
+
+	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
+	private int iterationLimit;
+
+	/** The first row of the band that this task works upon. */
+	private int startRow;
+
+	/** The number of rows of the band that this task works upon. */
+	private int numRows;
+
+	/** The distance in squares between the squares of the pass. */
+	private int stride;
+
+	/** Whether the squares computed by the previous passes are skipped; false for the first pass. */
+	private boolean refining;
+
+	/**
+	 * Instantiates a new Mandelbrot set sample task. It is used by the deserialization, which sets the fields using readExternal.
+	 */
+	public MandelbrotSetSampleTask(){
+	}
+
+	/**
+	 * Instantiates a new Mandelbrot set sample task.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) inside the square region in the complex plane
+	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 * @param startRow the first row of the band that this task works upon
+	 * @param numRows the number of rows of the band that this task works upon
+	 * @param stride the distance in squares between the squares of the pass
+	 * @param refining whether the squares computed by the previous passes are skipped; false for the first pass
+	 * @param taskId the task id
+	 */
+	public MandelbrotSetSampleTask(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, int startRow, int numRows, int stride, boolean refining, int taskId){
+		this.leftCornerCoordinates = leftCornerCoordinates;
+		this.edgeLength = edgeLength;
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+		this.startRow = startRow;
+		this.numRows = Math.min(numRows, numSquares - startRow);
+		this.stride = stride;
+		this.refining = refining;
+		this.taskId = taskId;
+	}
+
+	/**
+	 * Computes the squares of the band that belong to the pass.
+	 *
+	 * @return the counts of the squares, row after row, with the columns of each row in decreasing order
+	 */
+	@Override
+	public Result<int[]> execute() {
+		Result<int[]> result = new Result<int[]>();
+		result.setTaskId(this.taskId);
+		int[] counts = new int[getNumSamples()];
+		int index = 0;
+		for(int row = getFirstRow(); row < startRow + numRows; row += stride){
+			double c_real = leftCornerCoordinates[0] + (row * edgeLength / numSquares);
+			for(int column = getLastColumn(); column >= 0; column -= stride){
+				if(isComputedBefore(row, column)){
+					continue;
+				}
+				double c_imag = leftCornerCoordinates[1] + (column * edgeLength / numSquares);
+				counts[index++] = MandelbrotSetTask.getK(c_real, c_imag, iterationLimit, MandelbrotSetTask.INTERIOR_CHECKS);
+			}
+		}
+		result.setTaskReturnValue(counts);
+		return result;
+	}
+
+	/**
+	 * Composes the counts computed by this task into the framebuffer of the job. Each square of the pass fills the block of stride x stride squares that starts at it,
+	 * which holds no square of this pass or of the previous passes other than itself, so that the frame shows the finest squares computed so far.
+	 *
+	 * @param counts the counts computed by this task
+	 * @param framebuffer the framebuffer of the counts, row after row, with the columns in decreasing order
+	 */
+	public void compose(int[] counts, int[] framebuffer) {
+		int index = 0;
+		for(int row = getFirstRow(); row < startRow + numRows; row += stride){
+			int lastBlockRow = Math.min(row + stride, numSquares);
+			for(int column = getLastColumn(); column >= 0; column -= stride){
+				if(isComputedBefore(row, column)){
+					continue;
+				}
+				int k = counts[index++];
+				// the block covers the columns column to column + stride - 1 of the square, which are in decreasing order in the framebuffer
+				int fromIndex = numSquares - Math.min(column + stride, numSquares);
+				int toIndex = numSquares - column;
+				for(int blockRow = row; blockRow < lastBlockRow; blockRow++){
+					Arrays.fill(framebuffer, blockRow * numSquares + fromIndex, blockRow * numSquares + toIndex, k);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the first row of the band that belongs to the pass.
+	 *
+	 * @return the row
+	 */
+	private int getFirstRow() {
+		return (startRow + stride - 1) / stride * stride;
+	}
+
+	/**
+	 * Gets the last column that belongs to the pass.
+	 *
+	 * @return the column
+	 */
+	private int getLastColumn() {
+		return (numSquares - 1) / stride * stride;
+	}
+
+	/**
+	 * Checks if the square has been computed by a previous pass.
+	 *
+	 * @param row the row of the square
+	 * @param column the column of the square
+	 * @return true, if the square has been computed before
+	 */
+	private boolean isComputedBefore(int row, int column) {
+		return refining && row % (2 * stride) == 0 && column % (2 * stride) == 0;
+	}
+
+	/**
+	 * Gets the number of squares of the band that belong to the pass.
+	 *
+	 * @return the number of squares
+	 */
+	private int getNumSamples() {
+		int numSamples = 0;
+		int numColumns = getLastColumn() / stride + 1;
+		for(int row = getFirstRow(); row < startRow + numRows; row += stride){
+			numSamples += numColumns;
+			if(refining && row % (2 * stride) == 0){
+				numSamples -= getLastColumn() / (2 * stride) + 1;
+			}
+		}
+		return numSamples;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(taskId);
+		out.writeInt(jobId);
+		ArrayCodec.writeDoubles(out, leftCornerCoordinates);
+		out.writeDouble(edgeLength);
+		out.writeInt(numSquares);
+		out.writeInt(iterationLimit);
+		out.writeInt(startRow);
+		out.writeInt(numRows);
+		out.writeInt(stride);
+		out.writeBoolean(refining);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		taskId = in.readInt();
+		jobId = in.readInt();
+		leftCornerCoordinates = ArrayCodec.readDoubles(in);
+		edgeLength = in.readDouble();
+		numSquares = in.readInt();
+		iterationLimit = in.readInt();
+		startRow = in.readInt();
+		numRows = in.readInt();
+		stride = in.readInt();
+		refining = in.readBoolean();
+	}
+}
@@ -3,17 +3,41 @@
  */
 package tasks;
 
-import jobs.MandelbrotSetJob;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import api.AbstractTask;
+import api.ArrayCodec;
+import api.CacheableTask;
 import api.Result;
-import api.Task;
 
 /**
  * This class represents a unit of work that helps to produce a visualization of the some part of the Mandelbrot set which is probably one of the most well known fractals, and probably one of the most widely implemented fractal in fractal plotting programs.
+ * The task works upon a rectangular tile of the squares, and returns the counts of exactly the squares of the tile, in the order in which they are laid out in the framebuffer of MandelbrotSetJob:
+ * row after row, with the columns of each row in decreasing order, so that the job copies each row of the tile into the framebuffer at once.
+ * A job that gives the task a cache key has the Space keep its counts, so that the later views that cover the same tile get them without computing it again.
  */
-public final class MandelbrotSetTask implements Task<int[]>{
+public final class MandelbrotSetTask extends AbstractTask<int[]> implements CacheableTask<int[]>, Externalizable{
 
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
+	
+	/** The name of the kernel class that uses the Vector API, which is only built and loaded with JDK 16 or later. */
+	private static final String VECTOR_KERNEL_CLASS = "tasks.VectorMandelbrotKernel";
+	
+	/** The kernel that computes a row of squares at once using the Vector API; null if the Vector API is not present, or if it is turned off using the system property mandelbrot.vector. */
+	private static final MandelbrotKernel VECTOR_KERNEL = loadVectorKernel();
+	
+	/**
+	 * Whether the squares in the set are looked for without iterating up to the iteration limit. It is turned on using the system property mandelbrot.interiorChecks.
+	 * The checks pay off for the regions with large areas inside the set, or at high iteration limits, but cost more than they save for the regions near the boundary such as the Client's default view.
+	 */
+	static final boolean INTERIOR_CHECKS = Boolean.parseBoolean(System.getProperty("mandelbrot.interiorChecks", "false"));
+	
+	/** The margin by which a point has to be inside the main cardioid or the period-2 bulb to be taken as in the set, so that the rounding of the closed-form tests does not take in a point that escapes. */
+	private static final double INTERIOR_MARGIN = 1e-9;
 
 	/** The left corner coordinates of the square in the complex plane. */
 	private double[] leftCornerCoordinates;
@@ -27,9 +51,27 @@ public final class MandelbrotSetTask implements Task<int[]>{
 	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
 	private int iterationLimit;
 	
-	/** The task id. */
-	private int taskId;
+	/** The first row of the region that this task works upon. */
+	private int startRow;
+	
+	/** The number of rows that this task works upon. */
+	private int numRows;
+	
+	/** The first column of the region that this task works upon. */
+	private int startColumn;
+	
+	/** The number of columns that this task works upon. */
+	private int numColumns;
+	
+	/** The key under which the Space keeps the counts; null if they are not kept. */
+	private String cacheKey;
 		
+	/**
+	 * Instantiates a new Mandelbrot set task. It is used by the deserialization, which sets the fields using readExternal.
+	 */
+	public MandelbrotSetTask(){
+	}
+	
 	/**
 	 * Instantiates a new Mandelbrot set task.
 	 *
@@ -37,16 +79,57 @@ public final class MandelbrotSetTask implements Task<int[]>{
 	 * @param edgeLength the edge length of the square in the complex plane
 	 * @param numSquares the number denoting the number of pixels (n x n squares) inside the square region in the complex plane
 	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 * @param startRow the first row of the region that this task works upon
+	 * @param numRows the number of rows that this task works upon
 	 * @param taskId the task id
 	 */
 	
-	public MandelbrotSetTask(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, int taskId){
+	public MandelbrotSetTask(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, int startRow, int numRows, int taskId){
+		this(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, startRow, numRows, 0, numSquares, taskId);
+	}
+	
+	/**
+	 * Instantiates a new Mandelbrot set task that works upon a tile of the squares. The tile is cut to the edges of the square region.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) inside the square region in the complex plane
+	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 * @param startRow the first row of the tile
+	 * @param numRows the number of rows of the tile
+	 * @param startColumn the first column of the tile
+	 * @param numColumns the number of columns of the tile
+	 * @param taskId the task id
+	 */
+	public MandelbrotSetTask(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, int startRow, int numRows, int startColumn, int numColumns, int taskId){
 		this.leftCornerCoordinates = leftCornerCoordinates;
 		this.edgeLength = edgeLength;
 		this.numSquares = numSquares;
 		this.iterationLimit = iterationLimit;
+		this.startRow = startRow;
+		this.numRows = Math.min(numRows, numSquares - startRow);
+		this.startColumn = startColumn;
+		this.numColumns = Math.min(numColumns, numSquares - startColumn);
 		this.taskId = taskId;		
 	}
+	
+	/**
+	 * Sets the key under which the Space keeps the counts. The key has to identify all the parameters of the task other than its ids.
+	 *
+	 * @param cacheKey the cache key; null if the counts are not kept
+	 */
+	public void setCacheKey(String cacheKey) {
+		this.cacheKey = cacheKey;
+	}
+	
+	/* (non-Javadoc)
+	 * @see api.CacheableTask#getCacheKey()
+	 */
+	@Override
+	public String getCacheKey() {
+		return cacheKey;
+	}
+	
 	/**
 	 * This method uses a simple algorithm for drawing a picture of the Mandelbrot set. 
 	 * The region of the complex plane that one is considering is subdivided into a certain number of squares (pixels).
@@ -54,54 +137,184 @@ public final class MandelbrotSetTask implements Task<int[]>{
        When this is the case, we know that  does not belong to the Mandelbrot set, and we color our pixel according to the number of iterations used to find out. Otherwise, we keep iterating up to a fixed number of steps, after which we decide that our parameter is "probably" in the Mandelbrot set and color the pixel black.
 	 * 
 	 * @return count array, where count[i] = k, where k defines whether the representative point in the region is part of the Mandelbrot set or not.
-	 * The array contains the k values of multiple rows which correspond to the number of rows that each task works upon.
+	 * The array contains the k values of the rows of the tile that the task works upon, with the columns of each row in decreasing order.
 	 * 
 	 */
 	@Override
 	public Result<int[]> execute() {
 		Result<int[]> result = new Result<int[]>();
 		result.setTaskId(this.taskId);
-		
-		int[] count = new int[MandelbrotSetJob.NUM_ROWS_PER_TASK * numSquares];
+		result.setTaskReturnValue(computeCounts(VECTOR_KERNEL, INTERIOR_CHECKS));
+		return result;
+	}
+	
+	/**
+	 * Computes the counts of the tile of this task using the given kernel, or one square at a time if no kernel is given.
+	 * The counts are the same whether or not the squares in the set are looked for.
+	 *
+	 * @param kernel the kernel; null to compute the counts one square at a time
+	 * @param interiorChecks whether the squares in the set are looked for without iterating up to the iteration limit
+	 * @return the counts, row after row, with the columns of each row in decreasing order
+	 */
+	public int[] computeCounts(MandelbrotKernel kernel, boolean interiorChecks) {
+		int[] count = new int[numRows * numColumns];
 		int countIndex = 0;
-		int index = taskId * MandelbrotSetJob.NUM_ROWS_PER_TASK;
-		for(int i = 0; i < MandelbrotSetJob.NUM_ROWS_PER_TASK; i++){
-			for(int j = 0; j < numSquares; j++){
-				//System.out.println("{" + rowNum + ", " + j + "}");
-				if((index + i) >= numSquares){
-					System.out.println("(index + i) " + (index + i) + " Breaking");
-					break;
+		for(int i = 0; i < numRows; i++){
+			if(kernel != null){
+				kernel.computeRow(leftCornerCoordinates[0] + ((startRow + i) * edgeLength / numSquares), leftCornerCoordinates[1], edgeLength, numSquares, startColumn, numColumns, iterationLimit, interiorChecks, count, countIndex);
+				// the kernel writes the columns in increasing order
+				for(int left = countIndex, right = countIndex + numColumns - 1; left < right; left++, right--){
+					int k = count[left];
+					count[left] = count[right];
+					count[right] = k;
 				}
-				int k = getK(index + i, j);				
+				countIndex += numColumns;
+				continue;
+			}
+			for(int j = startColumn + numColumns - 1; j >= startColumn; j--){
+				int k = getK(startRow + i, j, interiorChecks);				
 				count[countIndex++] = k;			
 			}
 		}
-		result.setTaskReturnValue(count);
-		return result;
+		return count;
+	}
+	
+	/**
+	 * Gets the kernel that computes a row of squares at once using the Vector API.
+	 *
+	 * @return the kernel; null if the Vector API is not present or has been turned off
+	 */
+	public static MandelbrotKernel getVectorKernel() {
+		return VECTOR_KERNEL;
+	}
+	
+	/**
+	 * Loads the kernel that uses the Vector API. The kernel is not available if its class has not been built, if the JVM has not been started with --add-modules jdk.incubator.vector,
+	 * or if the processor has no vectors of more than one double.
+	 *
+	 * @return the kernel; null if it is not available
+	 */
+	private static MandelbrotKernel loadVectorKernel() {
+		if(!Boolean.parseBoolean(System.getProperty("mandelbrot.vector", "true"))){
+			return null;
+		}
+		try{
+			return (MandelbrotKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException e){
+			// the class has not been built, or its constructor has found that the processor has no vectors of more than one double
+			return null;
+		}
+		catch(LinkageError e){
+			// the class has been built, but the Vector API module has not been added to the JVM
+			return null;
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(taskId);
+		out.writeInt(jobId);
+		ArrayCodec.writeDoubles(out, leftCornerCoordinates);
+		out.writeDouble(edgeLength);
+		out.writeInt(numSquares);
+		out.writeInt(iterationLimit);
+		out.writeInt(startRow);
+		out.writeInt(numRows);
+		out.writeInt(startColumn);
+		out.writeInt(numColumns);
+		out.writeBoolean(cacheKey != null);
+		if(cacheKey != null){
+			out.writeUTF(cacheKey);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		taskId = in.readInt();
+		jobId = in.readInt();
+		leftCornerCoordinates = ArrayCodec.readDoubles(in);
+		edgeLength = in.readDouble();
+		numSquares = in.readInt();
+		iterationLimit = in.readInt();
+		startRow = in.readInt();
+		numRows = in.readInt();
+		startColumn = in.readInt();
+		numColumns = in.readInt();
+		cacheKey = in.readBoolean() ? in.readUTF() : null;
 	}
 	
 	/**
 	 * Gets the value of k for the representative point in the region[i][j].
+	 * With the interior checks, a point in the main cardioid or the period-2 bulb gets the iteration limit at once, and the orbit is compared with the point saved at every power of two iterations (Brent's method):
+	 * if it comes back exactly to the saved point, it repeats forever without escaping, and the point gets the iteration limit as well.
 	 *
 	 * @param i the i
 	 * @param j the j
+	 * @param interiorChecks whether the points in the set are looked for without iterating up to the iteration limit
 	 * @return k
 	 */
-	private int getK(int i, int j){
-		int k = 1;
-		
+	private int getK(int i, int j, boolean interiorChecks){
 		double c_real = leftCornerCoordinates[0] + (i * edgeLength / numSquares);
 		double c_imag = leftCornerCoordinates[1] + (j * edgeLength / numSquares);		
+		return getK(c_real, c_imag, iterationLimit, interiorChecks);
+	}
+	
+	/**
+	 * Gets the value of k for the given point, as described by getK(int, int, boolean). It is shared with the tasks that compute the squares in other orders than row by row.
+	 *
+	 * @param c_real the real part of the point
+	 * @param c_imag the imaginary part of the point
+	 * @param iterationLimit the iteration limit
+	 * @param interiorChecks whether the points in the set are looked for without iterating up to the iteration limit
+	 * @return k
+	 */
+	static int getK(double c_real, double c_imag, int iterationLimit, boolean interiorChecks){
+		int k = 1;
 		double real = 0, imag = 0;
+		if(interiorChecks && isInMainCardioidOrBulb(c_real, c_imag)){
+			return Math.max(k, iterationLimit);
+		}
+		double savedReal = 0, savedImag = 0;
 		
 		while( (real * real + imag * imag < 4) && k < iterationLimit){		
+			if(interiorChecks && (k & (k - 1)) == 0){
+				savedReal = real;
+				savedImag = imag;
+			}
 			double temp = real * real - imag * imag + c_real;
 			imag = 2 * real * imag + c_imag;
 			real = temp;
 			k++;
+			if(interiorChecks && real == savedReal && imag == savedImag){
+				return iterationLimit;
+			}
 		}
 		return k;
 	}
+	
+	/**
+	 * Checks if the point is inside the main cardioid or the period-2 bulb of the Mandelbrot set, by their closed-form equations, with a small margin.
+	 *
+	 * @param real the real part of the point
+	 * @param imag the imaginary part of the point
+	 * @return true, if the point is in the set
+	 */
+	public static boolean isInMainCardioidOrBulb(double real, double imag) {
+		double imagSquared = imag * imag;
+		double shifted = real - 0.25;
+		double q = shifted * shifted + imagSquared;
+		if(q * (q + shifted) < 0.25 * imagSquared - INTERIOR_MARGIN){
+			return true;
+		}
+		return (real + 1) * (real + 1) + imagSquared < 0.0625 - INTERIOR_MARGIN;
+	}
 		
 	/**
 	 * The main method.
@@ -111,7 +324,7 @@ public final class MandelbrotSetTask implements Task<int[]>{
 	 */
 	public static void main(String[] args) throws Exception{
 		MandelbrotSetTask task = new MandelbrotSetTask(new double[] {  -0.7510975859375, 0.1315680625 }, 0.01611,
-				1024, 512, 1);
+				1024, 512, 32, 32, 1);
 		//int[][] counts = task.execute();
 		int[] tour = {1,2,3,4,5,6,7,8,9,0};
 		double[][] cities = { { 6, 3 }, { 2, 2 }, { 5, 8 }, { 1, 5 }, { 1, 6 },
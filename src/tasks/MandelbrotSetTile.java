@@ -0,0 +1,156 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import api.ArrayCodec;
+
+/**
+ * A rectangular tile of the squares of a Mandelbrot set region, which is computed by a MandelbrotSetTileTask.
+ * The tile either holds the counts of all its squares, row after row with the columns of each row in decreasing order as in the framebuffer of the jobs, or it has been subdivided, in which case its halves are computed by other tasks and it holds no counts.
+ */
+public final class MandelbrotSetTile implements Externalizable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The first row of the tile. */
+	private int row;
+
+	/** The first column of the tile. */
+	private int column;
+
+	/** The number of rows of the tile. */
+	private int numRows;
+
+	/** The number of columns of the tile. */
+	private int numColumns;
+
+	/** The counts of the squares of the tile, row after row with the columns in decreasing order; null if the tile has been subdivided. */
+	private int[] counts;
+
+	/** The number of squares whose counts have been computed by iterating, rather than filled in. */
+	private int numComputed;
+
+	/**
+	 * Instantiates a new Mandelbrot set tile. It is used by the deserialization, which sets the fields using readExternal.
+	 */
+	public MandelbrotSetTile(){
+	}
+
+	/**
+	 * Instantiates a new Mandelbrot set tile.
+	 *
+	 * @param row the first row of the tile
+	 * @param column the first column of the tile
+	 * @param numRows the number of rows of the tile
+	 * @param numColumns the number of columns of the tile
+	 * @param counts the counts of the squares of the tile, row after row; null if the tile has been subdivided
+	 * @param numComputed the number of squares whose counts have been computed by iterating
+	 */
+	public MandelbrotSetTile(int row, int column, int numRows, int numColumns, int[] counts, int numComputed){
+		this.row = row;
+		this.column = column;
+		this.numRows = numRows;
+		this.numColumns = numColumns;
+		this.counts = counts;
+		this.numComputed = numComputed;
+	}
+
+	/**
+	 * Gets the first row of the tile.
+	 *
+	 * @return the row
+	 */
+	public int getRow() {
+		return row;
+	}
+
+	/**
+	 * Gets the first column of the tile.
+	 *
+	 * @return the column
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * Gets the number of rows of the tile.
+	 *
+	 * @return the number of rows
+	 */
+	public int getNumRows() {
+		return numRows;
+	}
+
+	/**
+	 * Gets the number of columns of the tile.
+	 *
+	 * @return the number of columns
+	 */
+	public int getNumColumns() {
+		return numColumns;
+	}
+
+	/**
+	 * Gets the counts of the squares of the tile, row after row with the columns of each row in decreasing order.
+	 *
+	 * @return the counts; null if the tile has been subdivided
+	 */
+	public int[] getCounts() {
+		return counts;
+	}
+
+	/**
+	 * Checks if the tile has been subdivided, so that its halves have to be computed by other tasks.
+	 *
+	 * @return true, if the tile has been subdivided
+	 */
+	public boolean isSubdivided() {
+		return counts == null;
+	}
+
+	/**
+	 * Gets the number of squares whose counts have been computed by iterating, rather than filled in.
+	 *
+	 * @return the number of squares
+	 */
+	public int getNumComputed() {
+		return numComputed;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(row);
+		out.writeInt(column);
+		out.writeInt(numRows);
+		out.writeInt(numColumns);
+		out.writeInt(numComputed);
+		out.writeBoolean(counts != null);
+		if(counts != null){
+			ArrayCodec.writeInts(out, counts);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		row = in.readInt();
+		column = in.readInt();
+		numRows = in.readInt();
+		numColumns = in.readInt();
+		numComputed = in.readInt();
+		counts = in.readBoolean() ? ArrayCodec.readInts(in) : null;
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * @author gautham
+ */
+package tasks;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import api.AbstractTask;
+import api.ArrayCodec;
+import api.Result;
+
+/**
+ * This class represents a unit of work that computes a rectangular tile of the squares of a Mandelbrot set region by the Mariani-Silver algorithm.
+ * The counts of the border of the tile are computed first. If they are all the same, the squares inside the border are filled in with that count without iterating, since the areas of equal count are connected;
+ * otherwise the tile is split in two halves along its longer edge, the line between the halves is computed, and each half is handled in the same way, down to the tiles of MIN_TILE_EDGE squares, which are computed square by square.
+ * A tile that is larger than the largest tile of a task and whose border is not uniform is returned subdivided, so that the job puts its halves into the Space as separate tasks.
+ * The halves of a tile share the line between them, and the counts are the ones of MandelbrotSetTask for the squares that are computed.
+ */
+public final class MandelbrotSetTileTask extends AbstractTask<MandelbrotSetTile> implements Externalizable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of squares of the edges of the tiles below which the squares are computed one by one, since the border check would save little. */
+	public static final int MIN_TILE_EDGE = 8;
+
+	/** The left corner coordinates of the square in the complex plane. */
+	private double[] leftCornerCoordinates;
+
+	/** The edge length of the square in the complex plane. */
+	private double edgeLength;
+
+	/** The numSquares denotes the number of pixels (n x n squares) inside the square region in the complex plane. */
+	private int numSquares;
+
+	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
+	private int iterationLimit;
+
+	/** The first row of the tile. */
+	private int row;
+
+	/** The first column of the tile. */
+	private int column;
+
+	/** The number of rows of the tile. */
+	private int numRows;
+
+	/** The number of columns of the tile. */
+	private int numColumns;
+
+	/** The largest number of squares of an edge of a tile that is computed by this task, rather than subdivided. */
+	private int maxTileEdge;
+
+	/** The number of squares whose counts have been computed by iterating. */
+	private transient int numComputed;
+
+	/**
+	 * Instantiates a new Mandelbrot set tile task. It is used by the deserialization, which sets the fields using readExternal.
+	 */
+	public MandelbrotSetTileTask(){
+	}
+
+	/**
+	 * Instantiates a new Mandelbrot set tile task.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) inside the square region in the complex plane
+	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 * @param tile the first row, the first column, the number of rows and the number of columns of the tile
+	 * @param maxTileEdge the largest number of squares of an edge of a tile that is computed by this task, rather than subdivided
+	 * @param taskId the task id
+	 */
+	public MandelbrotSetTileTask(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, int[] tile, int maxTileEdge, int taskId){
+		this.leftCornerCoordinates = leftCornerCoordinates;
+		this.edgeLength = edgeLength;
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+		this.row = tile[0];
+		this.column = tile[1];
+		this.numRows = tile[2];
+		this.numColumns = tile[3];
+		this.maxTileEdge = maxTileEdge;
+		this.taskId = taskId;
+	}
+
+	/**
+	 * Computes the tile, or returns it subdivided if it is larger than the largest tile of this task and its border is not uniform.
+	 *
+	 * @return the tile
+	 */
+	@Override
+	public Result<MandelbrotSetTile> execute() {
+		Result<MandelbrotSetTile> result = new Result<MandelbrotSetTile>();
+		result.setTaskId(this.taskId);
+		numComputed = 0;
+		int[] counts = new int[numRows * numColumns];
+		computeBorder(counts, 0, 0, numRows, numColumns);
+		if((numRows > maxTileEdge || numColumns > maxTileEdge) && !isBorderUniform(counts, 0, 0, numRows, numColumns)){
+			result.setTaskReturnValue(new MandelbrotSetTile(row, column, numRows, numColumns, null, numComputed));
+			return result;
+		}
+		fillOrSubdivide(counts, 0, 0, numRows, numColumns);
+		// the tile is returned in the order of the framebuffer of the job, where the columns are in decreasing order
+		for(int i = 0; i < numRows; i++){
+			for(int left = i * numColumns, right = left + numColumns - 1; left < right; left++, right--){
+				int k = counts[left];
+				counts[left] = counts[right];
+				counts[right] = k;
+			}
+		}
+		result.setTaskReturnValue(new MandelbrotSetTile(row, column, numRows, numColumns, counts, numComputed));
+		return result;
+	}
+
+	/**
+	 * Splits a tile in two halves along its longer edge. The halves share the line between them.
+	 *
+	 * @param row the first row of the tile
+	 * @param column the first column of the tile
+	 * @param numRows the number of rows of the tile
+	 * @param numColumns the number of columns of the tile
+	 * @return the halves, each as the first row, the first column, the number of rows and the number of columns
+	 */
+	public static int[][] split(int row, int column, int numRows, int numColumns) {
+		if(numRows >= numColumns){
+			int half = numRows / 2;
+			return new int[][] {{row, column, half + 1, numColumns}, {row + half, column, numRows - half, numColumns}};
+		}
+		int half = numColumns / 2;
+		return new int[][] {{row, column, numRows, half + 1}, {row, column + half, numRows, numColumns - half}};
+	}
+
+	/**
+	 * Fills in or computes the squares inside the border of a part of the tile, whose border has been computed.
+	 *
+	 * @param counts the counts of the tile
+	 * @param i the first row of the part, relative to the tile
+	 * @param j the first column of the part, relative to the tile
+	 * @param height the number of rows of the part
+	 * @param width the number of columns of the part
+	 */
+	private void fillOrSubdivide(int[] counts, int i, int j, int height, int width) {
+		if(height <= 2 || width <= 2){
+			return;
+		}
+		if(isBorderUniform(counts, i, j, height, width)){
+			int k = counts[i * numColumns + j];
+			for(int r = i + 1; r < i + height - 1; r++){
+				for(int c = j + 1; c < j + width - 1; c++){
+					counts[r * numColumns + c] = k;
+				}
+			}
+			return;
+		}
+		if(height <= MIN_TILE_EDGE && width <= MIN_TILE_EDGE){
+			for(int r = i + 1; r < i + height - 1; r++){
+				for(int c = j + 1; c < j + width - 1; c++){
+					compute(counts, r, c);
+				}
+			}
+			return;
+		}
+		int[][] halves = split(i, j, height, width);
+		// the line between the halves is the last row or column of the first half
+		if(halves[0][2] < height){
+			int r = i + halves[0][2] - 1;
+			for(int c = j + 1; c < j + width - 1; c++){
+				compute(counts, r, c);
+			}
+		}
+		else{
+			int c = j + halves[0][3] - 1;
+			for(int r = i + 1; r < i + height - 1; r++){
+				compute(counts, r, c);
+			}
+		}
+		for(int[] half : halves){
+			fillOrSubdivide(counts, half[0], half[1], half[2], half[3]);
+		}
+	}
+
+	/**
+	 * Computes the border of a part of the tile.
+	 *
+	 * @param counts the counts of the tile
+	 * @param i the first row of the part, relative to the tile
+	 * @param j the first column of the part, relative to the tile
+	 * @param height the number of rows of the part
+	 * @param width the number of columns of the part
+	 */
+	private void computeBorder(int[] counts, int i, int j, int height, int width) {
+		for(int c = j; c < j + width; c++){
+			compute(counts, i, c);
+			if(height > 1){
+				compute(counts, i + height - 1, c);
+			}
+		}
+		for(int r = i + 1; r < i + height - 1; r++){
+			compute(counts, r, j);
+			if(width > 1){
+				compute(counts, r, j + width - 1);
+			}
+		}
+	}
+
+	/**
+	 * Checks if all the squares of the border of a part of the tile have the same count.
+	 *
+	 * @param counts the counts of the tile
+	 * @param i the first row of the part, relative to the tile
+	 * @param j the first column of the part, relative to the tile
+	 * @param height the number of rows of the part
+	 * @param width the number of columns of the part
+	 * @return true, if the border is uniform
+	 */
+	private boolean isBorderUniform(int[] counts, int i, int j, int height, int width) {
+		int k = counts[i * numColumns + j];
+		int bottom = (i + height - 1) * numColumns;
+		for(int c = j; c < j + width; c++){
+			if(counts[i * numColumns + c] != k || counts[bottom + c] != k){
+				return false;
+			}
+		}
+		for(int r = i + 1; r < i + height - 1; r++){
+			if(counts[r * numColumns + j] != k || counts[r * numColumns + j + width - 1] != k){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the count of a square of the tile, in the same way as MandelbrotSetTask.
+	 *
+	 * @param counts the counts of the tile
+	 * @param i the row of the square, relative to the tile
+	 * @param j the column of the square, relative to the tile
+	 */
+	private void compute(int[] counts, int i, int j) {
+		double c_real = leftCornerCoordinates[0] + ((row + i) * edgeLength / numSquares);
+		double c_imag = leftCornerCoordinates[1] + ((column + j) * edgeLength / numSquares);
+		counts[i * numColumns + j] = MandelbrotSetTask.getK(c_real, c_imag, iterationLimit, MandelbrotSetTask.INTERIOR_CHECKS);
+		numComputed++;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#writeExternal(java.io.ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(taskId);
+		out.writeInt(jobId);
+		ArrayCodec.writeDoubles(out, leftCornerCoordinates);
+		out.writeDouble(edgeLength);
+		out.writeInt(numSquares);
+		out.writeInt(iterationLimit);
+		out.writeInt(row);
+		out.writeInt(column);
+		out.writeInt(numRows);
+		out.writeInt(numColumns);
+		out.writeInt(maxTileEdge);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Externalizable#readExternal(java.io.ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		taskId = in.readInt();
+		jobId = in.readInt();
+		leftCornerCoordinates = ArrayCodec.readDoubles(in);
+		edgeLength = in.readDouble();
+		numSquares = in.readInt();
+		iterationLimit = in.readInt();
+		row = in.readInt();
+		column = in.readInt();
+		numRows = in.readInt();
+		numColumns = in.readInt();
+		maxTileEdge = in.readInt();
+	}
+}